@@ -0,0 +1,127 @@
+package com.rnzebralinkos;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import androidx.annotation.NonNull;
+
+import com.zebra.sdk.comm.Connection;
+import com.zebra.sdk.comm.ConnectionException;
+import com.zebra.sdk.comm.ResponseValidator;
+import com.zebra.sdk.printer.PrinterLanguage;
+
+/**
+ * Records every byte written to and read from the printer, with timestamps, into an IoCapture file.
+ * Request/response calls are done with this connection's own write and read, so they are recorded too.
+ */
+final class CaptureConnection extends ConnectionWrapper {
+
+	private final IoCapture.Writer capture;
+	private final StreamWriter streamWriter = new StreamWriter(OperationConnection.CHUNK_SIZE);
+
+	CaptureConnection(@NonNull Connection wrapped, @NonNull IoCapture.Writer capture) {
+		super(wrapped);
+		this.capture = capture;
+	}
+
+	@NonNull
+	IoCapture.Writer getCapture() {
+		return capture;
+	}
+
+	void recordLanguage(@NonNull PrinterLanguage language) {
+		byte[] name = language.name().getBytes(StandardCharsets.US_ASCII);
+		capture.record(IoCapture.TYPE_LANGUAGE, System.nanoTime(), name, 0, name.length);
+	}
+
+	@Override
+	public void open() throws ConnectionException {
+		long start = System.nanoTime();
+		wrapped.open();
+		capture.record(IoCapture.TYPE_OPEN, start);
+	}
+
+	@Override
+	public void close() throws ConnectionException {
+		try {
+			long start = System.nanoTime();
+			wrapped.close();
+			capture.record(IoCapture.TYPE_CLOSE, start);
+		} finally {
+			capture.close();
+		}
+	}
+
+	@Override
+	public void write(byte[] data, int offset, int length) throws ConnectionException {
+		long start = System.nanoTime();
+		wrapped.write(data, offset, length);
+		capture.record(IoCapture.TYPE_WRITE, start, data, offset, length);
+	}
+
+	@Override
+	public void write(InputStream stream) throws ConnectionException {
+		streamWriter.write(this, stream);
+	}
+
+	@Override
+	public byte[] read() throws ConnectionException {
+		long start = System.nanoTime();
+		byte[] data = wrapped.read();
+		if(data != null && data.length > 0) {
+			capture.record(IoCapture.TYPE_READ, start, data, 0, data.length);
+		}
+		return data;
+	}
+
+	@Override
+	public int readChar() throws ConnectionException {
+		long start = System.nanoTime();
+		int c = wrapped.readChar();
+		if(c >= 0) {
+			capture.record(IoCapture.TYPE_READ, start, new byte[] { (byte)c }, 0, 1);
+		}
+		return c;
+	}
+
+	@Override
+	public void read(OutputStream stream) throws ConnectionException {
+		long start = System.nanoTime();
+		ByteArrayOutputStream data = new ByteArrayOutputStream();
+		wrapped.read(data);
+		capture.record(IoCapture.TYPE_READ, start, data.toByteArray(), 0, data.size());
+		try {
+			data.writeTo(stream);
+		} catch(IOException e) {
+			throw new ConnectionException(e);
+		}
+	}
+
+	@Override
+	public byte[] sendAndWaitForResponse(byte[] data, int initialResponseTimeout, int responseCompletionTimeout, String terminator) throws ConnectionException {
+		ByteArrayOutputStream response = new ByteArrayOutputStream();
+		IoCapture.exchange(this, response, new ByteArrayInputStream(data), initialResponseTimeout, responseCompletionTimeout, terminator, null);
+		return response.toByteArray();
+	}
+
+	@Override
+	public void sendAndWaitForResponse(OutputStream destination, InputStream source, int initialResponseTimeout, int responseCompletionTimeout, String terminator) throws ConnectionException {
+		IoCapture.exchange(this, destination, source, initialResponseTimeout, responseCompletionTimeout, terminator, null);
+	}
+
+	@Override
+	public byte[] sendAndWaitForValidResponse(byte[] data, int initialResponseTimeout, int responseCompletionTimeout, ResponseValidator validator) throws ConnectionException {
+		ByteArrayOutputStream response = new ByteArrayOutputStream();
+		IoCapture.exchange(this, response, new ByteArrayInputStream(data), initialResponseTimeout, responseCompletionTimeout, null, validator);
+		return response.toByteArray();
+	}
+
+	@Override
+	public void sendAndWaitForValidResponse(OutputStream destination, InputStream source, int initialResponseTimeout, int responseCompletionTimeout, ResponseValidator validator) throws ConnectionException {
+		IoCapture.exchange(this, destination, source, initialResponseTimeout, responseCompletionTimeout, null, validator);
+	}
+}
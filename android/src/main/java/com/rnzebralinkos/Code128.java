@@ -0,0 +1,192 @@
+package com.rnzebralinkos;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Code 128 encoder for ^BC, following the ZPL rules for the field data:
+ * in mode N the data starts in subset B unless it starts with a start code invocation
+ * (">9" A, ">:" B, ">;" C) and can switch subsets with ">7" A, ">6" B, ">5" C and insert FNC1 with ">8";
+ * in the other modes subsets are chosen automatically.
+ */
+final class Code128 {
+
+	//bar and space widths of every symbol, the stop symbol has a 2 module termination bar
+	private static final String[] PATTERNS = {
+		"212222", "222122", "222221", "121223", "121322", "131222", "122213", "122312", "132212", "221213",
+		"221312", "231212", "112232", "122132", "122231", "113222", "123122", "123221", "223211", "221132",
+		"221231", "213212", "223112", "312131", "311222", "321122", "321221", "312212", "322112", "322211",
+		"212123", "212321", "232121", "111323", "131123", "131321", "112313", "132113", "132311", "211313",
+		"231113", "231311", "112133", "112331", "132131", "113123", "113321", "133121", "313121", "211331",
+		"231131", "213113", "213311", "213131", "311123", "311321", "331121", "312113", "312311", "332111",
+		"314111", "221411", "431111", "111224", "111422", "121124", "121421", "141122", "141221", "112214",
+		"112412", "122114", "122411", "142112", "142211", "241211", "221114", "413111", "241112", "134111",
+		"111242", "121142", "121241", "114212", "124112", "124211", "411212", "421112", "421211", "212141",
+		"214121", "412121", "111143", "111341", "131141", "114113", "114311", "411113", "411311", "113141",
+		"114131", "311141", "411131", "211412", "211214", "211232", "2331112"
+	};
+
+	private static final int SUBSET_A = 0;
+	private static final int SUBSET_B = 1;
+	private static final int SUBSET_C = 2;
+	private static final int FNC1 = 102;
+	private static final int START_A = 103;
+	private static final int STOP = 106;
+	//code set switch symbols, indexed by the target subset
+	private static final int[] SWITCH = { 101, 100, 99 };
+
+	static final class Symbol {
+		//module widths, starting with a bar
+		@NonNull
+		final int[] widths;
+		//text of the interpretation line
+		@NonNull
+		final String text;
+
+		Symbol(@NonNull int[] widths, @NonNull String text) {
+			this.widths = widths;
+			this.text = text;
+		}
+
+		int modules() {
+			int modules = 0;
+			for(int width : widths) modules += width;
+			return modules;
+		}
+	}
+
+	private Code128() {}
+
+	/**
+	 * @param automatic choose subsets automatically instead of following the ZPL invocation codes
+	 * @throws IllegalArgumentException if the data can't be encoded
+	 */
+	@NonNull
+	static Symbol encode(@NonNull String data, boolean automatic) {
+		List<Integer> values = new ArrayList<>();
+		StringBuilder text = new StringBuilder();
+		if(automatic) {
+			encodeAutomatic(data, values, text);
+		} else {
+			encodeManual(data, values, text);
+		}
+		int checksum = values.get(0);
+		for(int i = 1; i < values.size(); i++) {
+			checksum += i * values.get(i);
+		}
+		values.add(checksum % 103);
+		values.add(STOP);
+
+		int[] widths = new int[(values.size() - 1) * 6 + 7];
+		int w = 0;
+		for(int value : values) {
+			String pattern = PATTERNS[value];
+			for(int i = 0; i < pattern.length(); i++) {
+				widths[w++] = pattern.charAt(i) - '0';
+			}
+		}
+		return new Symbol(widths, text.toString());
+	}
+
+	private static void encodeManual(String data, List<Integer> values, StringBuilder text) {
+		int subset = SUBSET_B;
+		int i = 0;
+		if(data.length() >= 2 && data.charAt(0) == '>') {
+			switch(data.charAt(1)) {
+				case '9': subset = SUBSET_A; i = 2; break;
+				case ':': subset = SUBSET_B; i = 2; break;
+				case ';': subset = SUBSET_C; i = 2; break;
+			}
+		}
+		values.add(START_A + subset);
+		while(i < data.length()) {
+			char c = data.charAt(i);
+			if(c == '>' && i + 1 < data.length()) {
+				char code = data.charAt(i + 1);
+				int target = code == '7' ? SUBSET_A : code == '6' ? SUBSET_B : code == '5' ? SUBSET_C : -1;
+				if(target >= 0) {
+					if(target != subset) values.add(SWITCH[target]);
+					subset = target;
+					i += 2;
+					continue;
+				}
+				if(code == '8') {
+					values.add(FNC1);
+					i += 2;
+					continue;
+				}
+				if(code == '<' && subset != SUBSET_C) {
+					//escaped '>'
+					values.add(value('>', subset));
+					text.append('>');
+					i += 2;
+					continue;
+				}
+			}
+			if(subset == SUBSET_C) {
+				if(i + 1 >= data.length() || !isDigit(data.charAt(i)) || !isDigit(data.charAt(i + 1))) {
+					throw new IllegalArgumentException("Subset C needs pairs of digits");
+				}
+				values.add((data.charAt(i) - '0') * 10 + data.charAt(i + 1) - '0');
+				text.append(data, i, i + 2);
+				i += 2;
+			} else {
+				values.add(value(data.charAt(i), subset));
+				text.append(data.charAt(i));
+				i++;
+			}
+		}
+	}
+
+	/**
+	 * Subset C for runs of at least 4 digits (or data of 2 digits), A for control characters, B otherwise.
+	 */
+	private static void encodeAutomatic(String data, List<Integer> values, StringBuilder text) {
+		int subset = -1;
+		int i = 0;
+		while(i < data.length()) {
+			int digits = 0;
+			while(i + digits < data.length() && isDigit(data.charAt(i + digits))) digits++;
+			if(digits >= 4 || (digits >= 2 && digits == data.length())) {
+				subset = select(values, subset, SUBSET_C);
+				for(int end = i + digits - digits % 2; i < end; i += 2) {
+					values.add((data.charAt(i) - '0') * 10 + data.charAt(i + 1) - '0');
+					text.append(data, i, i + 2);
+				}
+				continue;
+			}
+			char c = data.charAt(i);
+			int wanted = c < 32 ? SUBSET_A : c >= 96 ? SUBSET_B : subset == SUBSET_A ? SUBSET_A : SUBSET_B;
+			subset = select(values, subset, wanted);
+			values.add(value(c, subset));
+			text.append(c);
+			i++;
+		}
+		if(subset == -1) values.add(START_A + SUBSET_B);
+	}
+
+	private static int select(List<Integer> values, int current, int wanted) {
+		if(current == -1) {
+			values.add(START_A + wanted);
+		} else if(current != wanted) {
+			values.add(SWITCH[wanted]);
+		}
+		return wanted;
+	}
+
+	private static int value(char c, int subset) {
+		if(subset == SUBSET_A) {
+			if(c < 32) return c + 64;
+			if(c < 96) return c - 32;
+		} else if(c >= 32 && c < 128) {
+			return c - 32;
+		}
+		throw new IllegalArgumentException("Character " + (int)c + " can't be encoded in Code 128");
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+}
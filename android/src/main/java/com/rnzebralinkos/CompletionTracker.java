@@ -0,0 +1,239 @@
+package com.rnzebralinkos;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Locale;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeMap;
+import com.zebra.sdk.printer.PrinterStatus;
+
+/**
+ * Follows the jobs sent to one printer until they are printed.
+ * With the odometer (read over the status channel) a job is printed once the label count has reached the
+ * count at its start plus all labels sent up to and including the job. Without it the printer's format and
+ * batch counters are compared with the jobs sent after it: the job is buffered when its formats have left the
+ * receive buffer, and printed when a later format is being processed or the batch has run out. That is only
+ * inferred, the label may still be in the print engine, so such results are not reported as confirmed.
+ * Status requests on the printing channel are answered after the printer has received the preceding jobs,
+ * which keeps the counters in step with the jobs.
+ * The module does the I/O, polling is done by the threads waiting for a job.
+ */
+final class CompletionTracker {
+
+	static final String STAGE_SENT = "sent";
+	static final String STAGE_BUFFERED = "buffered";
+	static final String STAGE_PRINTED = "printed";
+	static final String ODOMETER_SETTING = "odometer.total_label_count";
+	//polls in a row with an idle printer after which jobs the odometer did not count are given up
+	private static final int IDLE_POLLS = 10;
+	private static final int MAX_PENDING = 256;
+
+	static final class Job {
+		final int formats;
+		final int labels;
+		final long queued = System.currentTimeMillis();
+		long sent = 0;
+		long buffered = 0;
+		long printed = 0;
+		//odometer count at which the job is printed, -1 if tracked by status
+		long target = -1;
+		@Nullable
+		String failure;
+
+		Job(int formats, int labels) {
+			this.formats = Math.max(1, formats);
+			this.labels = Math.max(1, labels);
+		}
+	}
+
+	private final ArrayDeque<Job> pending = new ArrayDeque<>();
+	private long odometerBase = -1;
+	private long labelsSinceBase = 0;
+	private int inFlightLabels = 0;
+	private int idlePolls = 0;
+	private long jobsSent = 0;
+	private boolean polling = false;
+	private long lastPoll = 0;
+
+	/**
+	 * @return number of formats (^XZ) in the data, at least 1.
+	 */
+	static int countFormats(@NonNull String data) {
+		String upper = data.toUpperCase(Locale.ROOT);
+		int formats = 0;
+		for(int i = upper.indexOf("^XZ"); i != -1; i = upper.indexOf("^XZ", i + 3)) {
+			formats++;
+		}
+		return Math.max(1, formats);
+	}
+
+	/**
+	 * @return number of labels the data prints, the ^PQ quantity of every format.
+	 */
+	static int countLabels(@NonNull String data) {
+		String upper = data.toUpperCase(Locale.ROOT);
+		int labels = 0;
+		int formatStart = 0;
+		int formatEnd;
+		while((formatEnd = upper.indexOf("^XZ", formatStart)) != -1) {
+			int quantity = 1;
+			int pq = upper.indexOf("^PQ", formatStart);
+			if(pq != -1 && pq < formatEnd) {
+				int digitsEnd = pq + 3;
+				while(digitsEnd < formatEnd && Character.isDigit(upper.charAt(digitsEnd))) digitsEnd++;
+				if(digitsEnd > pq + 3) {
+					try {
+						quantity = Math.max(1, Integer.parseInt(upper.substring(pq + 3, digitsEnd)));
+					} catch(NumberFormatException ignored) {}
+				}
+			}
+			labels += quantity;
+			formatStart = formatEnd + 3;
+		}
+		return Math.max(1, labels);
+	}
+
+	synchronized boolean isIdle() {
+		return pending.isEmpty();
+	}
+
+	/**
+	 * @return number of jobs registered with sent(), to tell if an odometer read is still current.
+	 */
+	synchronized long getJobsSent() {
+		return jobsSent;
+	}
+
+	/**
+	 * @param maxInFlight maximum labels sent but not printed, 0 for no limit
+	 * @return true if a job with this many labels can be sent now. A job is always let through to an idle printer.
+	 */
+	synchronized boolean hasCapacity(int labels, int maxInFlight) {
+		return maxInFlight <= 0 || inFlightLabels == 0 || inFlightLabels + labels <= maxInFlight;
+	}
+
+	/**
+	 * Registers a job which has just been written to the printer.
+	 * @param odometer label count read before the job was sent to an idle printer, -1 if not read
+	 */
+	synchronized void sent(@NonNull Job job, long odometer) {
+		job.sent = System.currentTimeMillis();
+		jobsSent++;
+		if(pending.isEmpty()) {
+			odometerBase = odometer;
+			labelsSinceBase = 0;
+		}
+		labelsSinceBase += job.labels;
+		job.target = odometerBase >= 0 ? odometerBase + labelsSinceBase : -1;
+		pending.addLast(job);
+		inFlightLabels += job.labels;
+		if(pending.size() > MAX_PENDING) {
+			Job dropped = pending.removeFirst();
+			inFlightLabels -= dropped.labels;
+			dropped.failure = "Too many jobs in flight";
+			//its thread may be waiting for the job
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Advances the pending jobs.
+	 * @param odometer current label count, -1 if not available
+	 */
+	synchronized void update(@NonNull PrinterStatus status, long odometer) {
+		long now = System.currentTimeMillis();
+		int formatsInBuffer = status.numberOfFormatsInReceiveBuffer;
+		//formats sent after the job, walking from the newest job backwards
+		int formatsAfter = 0;
+		Iterator<Job> it = pending.descendingIterator();
+		while(it.hasNext()) {
+			Job job = it.next();
+			if(job.buffered == 0 && formatsInBuffer <= formatsAfter) {
+				job.buffered = now;
+			}
+			boolean printed = odometer >= 0 && job.target >= 0
+				? odometer >= job.target
+				: job.buffered != 0 && (formatsInBuffer < formatsAfter || (formatsInBuffer == formatsAfter && status.labelsRemainingInBatch == 0));
+			if(printed) {
+				if(job.buffered == 0) job.buffered = now;
+				job.printed = now;
+				inFlightLabels -= job.labels;
+				it.remove();
+			}
+			formatsAfter += job.formats;
+		}
+		boolean printerIdle = status.isReadyToPrint && formatsInBuffer == 0 && status.labelsRemainingInBatch == 0;
+		if(!pending.isEmpty() && printerIdle) {
+			if(++idlePolls >= IDLE_POLLS) {
+				this.failAll("Job was not printed");
+			}
+		} else {
+			idlePolls = 0;
+		}
+		notifyAll();
+	}
+
+	/**
+	 * Fails all pending jobs, e.g. when the printer can't be queried.
+	 */
+	synchronized void failAll(@NonNull String message) {
+		for(Job job : pending) {
+			job.failure = message;
+		}
+		pending.clear();
+		inFlightLabels = 0;
+		idlePolls = 0;
+		notifyAll();
+	}
+
+	/**
+	 * @return true if the job has reached the stage or failed.
+	 */
+	synchronized boolean reached(@NonNull Job job, @NonNull String stage) {
+		if(job.failure != null) return true;
+		switch(stage) {
+			case STAGE_SENT: return job.sent != 0;
+			case STAGE_BUFFERED: return job.buffered != 0;
+			default: return job.printed != 0;
+		}
+	}
+
+	/**
+	 * @return true if the caller should poll the printer now, it must call endPoll() afterwards.
+	 */
+	synchronized boolean startPoll(long intervalMs) {
+		if(polling || System.currentTimeMillis() - lastPoll < intervalMs) return false;
+		polling = true;
+		return true;
+	}
+
+	synchronized void endPoll() {
+		polling = false;
+		lastPoll = System.currentTimeMillis();
+	}
+
+	/**
+	 * Waits for the next update, at most timeoutMs.
+	 */
+	synchronized void await(long timeoutMs) throws InterruptedException {
+		wait(timeoutMs);
+	}
+
+	@NonNull
+	synchronized WritableMap result(@NonNull Job job) {
+		WritableMap result = new WritableNativeMap();
+		result.putInt("labels", job.labels);
+		result.putString("tracking", job.target >= 0 ? "odometer" : "status");
+		result.putDouble("queued", job.queued);
+		result.putDouble("sent", job.sent);
+		if(job.buffered != 0) result.putDouble("buffered", job.buffered);
+		if(job.printed != 0) result.putDouble("printed", job.printed);
+		//only the odometer counts the labels that came out of the printer
+		result.putBoolean("confirmed", job.printed != 0 && job.target >= 0);
+		return result;
+	}
+}
@@ -0,0 +1,140 @@
+package com.rnzebralinkos;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import androidx.annotation.NonNull;
+
+import com.zebra.sdk.comm.Connection;
+import com.zebra.sdk.comm.ConnectionException;
+import com.zebra.sdk.comm.ConnectionReestablisher;
+import com.zebra.sdk.comm.ResponseValidator;
+
+/**
+ * Connection which forwards every call to another connection.
+ * Subclasses override the calls they want to intercept.
+ */
+class ConnectionWrapper implements Connection {
+
+	protected final Connection wrapped;
+
+	ConnectionWrapper(@NonNull Connection wrapped) {
+		this.wrapped = wrapped;
+	}
+
+	@NonNull
+	Connection getWrapped() {
+		return wrapped;
+	}
+
+	@Override
+	public void open() throws ConnectionException {
+		wrapped.open();
+	}
+
+	@Override
+	public void close() throws ConnectionException {
+		wrapped.close();
+	}
+
+	@Override
+	public void write(byte[] data) throws ConnectionException {
+		write(data, 0, data.length);
+	}
+
+	@Override
+	public void write(byte[] data, int offset, int length) throws ConnectionException {
+		wrapped.write(data, offset, length);
+	}
+
+	@Override
+	public void write(InputStream stream) throws ConnectionException {
+		wrapped.write(stream);
+	}
+
+	@Override
+	public byte[] read() throws ConnectionException {
+		return wrapped.read();
+	}
+
+	@Override
+	public int readChar() throws ConnectionException {
+		return wrapped.readChar();
+	}
+
+	@Override
+	public void read(OutputStream stream) throws ConnectionException {
+		wrapped.read(stream);
+	}
+
+	@Override
+	public boolean isConnected() {
+		return wrapped.isConnected();
+	}
+
+	@Override
+	public int bytesAvailable() throws ConnectionException {
+		return wrapped.bytesAvailable();
+	}
+
+	@NonNull
+	@Override
+	public String toString() {
+		return wrapped.toString();
+	}
+
+	@Override
+	public String getSimpleConnectionName() {
+		return wrapped.getSimpleConnectionName();
+	}
+
+	@Override
+	public void waitForData(int maxTimeout) throws ConnectionException {
+		wrapped.waitForData(maxTimeout);
+	}
+
+	@Override
+	public int getMaxTimeoutForRead() {
+		return wrapped.getMaxTimeoutForRead();
+	}
+
+	@Override
+	public int getTimeToWaitForMoreData() {
+		return wrapped.getTimeToWaitForMoreData();
+	}
+
+	@Override
+	public void setMaxTimeoutForRead(int maxTimeoutForRead) {
+		wrapped.setMaxTimeoutForRead(maxTimeoutForRead);
+	}
+
+	@Override
+	public void setTimeToWaitForMoreData(int timeToWaitForMoreData) {
+		wrapped.setTimeToWaitForMoreData(timeToWaitForMoreData);
+	}
+
+	@Override
+	public byte[] sendAndWaitForResponse(byte[] data, int initialResponseTimeout, int responseCompletionTimeout, String terminator) throws ConnectionException {
+		return wrapped.sendAndWaitForResponse(data, initialResponseTimeout, responseCompletionTimeout, terminator);
+	}
+
+	@Override
+	public void sendAndWaitForResponse(OutputStream destination, InputStream source, int initialResponseTimeout, int responseCompletionTimeout, String terminator) throws ConnectionException {
+		wrapped.sendAndWaitForResponse(destination, source, initialResponseTimeout, responseCompletionTimeout, terminator);
+	}
+
+	@Override
+	public byte[] sendAndWaitForValidResponse(byte[] data, int initialResponseTimeout, int responseCompletionTimeout, ResponseValidator validator) throws ConnectionException {
+		return wrapped.sendAndWaitForValidResponse(data, initialResponseTimeout, responseCompletionTimeout, validator);
+	}
+
+	@Override
+	public void sendAndWaitForValidResponse(OutputStream destination, InputStream source, int initialResponseTimeout, int responseCompletionTimeout, ResponseValidator validator) throws ConnectionException {
+		wrapped.sendAndWaitForValidResponse(destination, source, initialResponseTimeout, responseCompletionTimeout, validator);
+	}
+
+	@Override
+	public ConnectionReestablisher getConnectionReestablisher(long thresholdTime) throws ConnectionException {
+		return wrapped.getConnectionReestablisher(thresholdTime);
+	}
+}
@@ -0,0 +1,195 @@
+package com.rnzebralinkos;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
+import com.facebook.react.bridge.WritableNativeMap;
+import com.zebra.sdk.printer.PrinterObjectProperties;
+
+/**
+ * Files on the drives of one printer. The index is filled from one object listing and kept current by the module's
+ * own uploads and deletes, so lookups don't make the printer list its drives again. Files added that way have no
+ * CRC32 or size until the next listing. Changes made outside the app are picked up when the index expires.
+ * The module does the I/O, this class only does the bookkeeping.
+ */
+final class FileIndex {
+
+	static final int DEFAULT_TTL_MS = 5 * 60_000;
+	//CRC32 and size of files the printer has not listed yet
+	static final long UNKNOWN = -1;
+
+	static final class Entry {
+		//e.g. "E:"
+		final String drivePrefix;
+		final String fileName;
+		final String extension;
+		final long crc32;
+		final long size;
+
+		Entry(@NonNull String drivePrefix, @NonNull String fileName, @NonNull String extension, long crc32, long size) {
+			this.drivePrefix = drivePrefix;
+			this.fileName = fileName;
+			this.extension = extension;
+			this.crc32 = crc32;
+			this.size = size;
+		}
+
+		@NonNull
+		String fullName() {
+			return drivePrefix + fileName + "." + extension;
+		}
+	}
+
+	//by upper case full name
+	private final Map<String, Entry> entries = new TreeMap<>();
+	//-1 if the index was never listed or is invalidated
+	private long listedAt = -1;
+	private int unknown = 0;
+
+	/**
+	 * @param complete the CRC32 and size of every file are needed, not just the names
+	 * @return true if lookups can be served from the index.
+	 */
+	synchronized boolean isCurrent(long ttlMs, boolean complete) {
+		if(listedAt < 0 || System.currentTimeMillis() - listedAt >= ttlMs) return false;
+		return !complete || unknown == 0;
+	}
+
+	/**
+	 * Replaces the index with an object listing of the printer.
+	 */
+	synchronized void populate(@NonNull List<PrinterObjectProperties> objects) {
+		entries.clear();
+		unknown = 0;
+		for(PrinterObjectProperties object : objects) {
+			Entry entry = new Entry(object.getDrivePrefix().toUpperCase(Locale.ROOT), object.getFileName().toUpperCase(Locale.ROOT),
+				object.getExtension().toUpperCase(Locale.ROOT), object.getCRC32(), object.getFileSize());
+			entries.put(entry.fullName(), entry);
+		}
+		listedAt = System.currentTimeMillis();
+	}
+
+	synchronized void invalidate() {
+		listedAt = -1;
+	}
+
+	/**
+	 * Records a file written by the module.
+	 * @param path target path of the upload, e.g. "E:LOGO.GRF", the drive defaults to R:
+	 * @param extension extension the printer stores the file with, null to take it from the path
+	 */
+	synchronized void stored(@NonNull String path, @Nullable String extension) {
+		if(listedAt < 0) return;
+		String[] parts = split(path);
+		if(extension != null) parts[2] = extension;
+		if(parts[2].isEmpty() || parts[1].indexOf('*') != -1 || parts[1].indexOf('?') != -1) {
+			//not a path the printer stores as is
+			listedAt = -1;
+			return;
+		}
+		Entry entry = new Entry(parts[0], parts[1], parts[2], UNKNOWN, UNKNOWN);
+		Entry previous = entries.put(entry.fullName(), entry);
+		if(previous == null || previous.crc32 != UNKNOWN) unknown++;
+	}
+
+	/**
+	 * Removes the files matching a deleted path, which may contain the wildcards * and ?.
+	 */
+	synchronized void deleted(@NonNull String path) {
+		if(listedAt < 0) return;
+		String[] parts = split(path);
+		String name = parts[0] + parts[1] + (parts[2].isEmpty() ? "" : "." + parts[2]);
+		StringBuilder regex = new StringBuilder(name.length() + 16);
+		for(int i = 0; i < name.length(); i++) {
+			char c = name.charAt(i);
+			if(c == '*') regex.append(".*");
+			else if(c == '?') regex.append('.');
+			else regex.append(Pattern.quote(String.valueOf(c)));
+		}
+		Pattern pattern = Pattern.compile(regex.toString());
+		Iterator<Entry> it = entries.values().iterator();
+		while(it.hasNext()) {
+			Entry entry = it.next();
+			if(pattern.matcher(entry.fullName()).matches()) {
+				if(entry.crc32 == UNKNOWN) unknown--;
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * @param drives drive letters to include ("E" or "E:"), null for all
+	 * @param extensions extensions to include ("GRF" or ".GRF"), null for all
+	 */
+	@NonNull
+	synchronized List<Entry> find(@Nullable Set<String> drives, @Nullable Set<String> extensions) {
+		List<Entry> found = new ArrayList<>();
+		for(Entry entry : entries.values()) {
+			if(drives != null && !drives.contains(entry.drivePrefix.substring(0, entry.drivePrefix.length() - 1))) continue;
+			if(extensions != null && !extensions.contains(entry.extension)) continue;
+			found.add(entry);
+		}
+		return found;
+	}
+
+	/**
+	 * Normalizes drive letters or extensions given by the app for find().
+	 */
+	@NonNull
+	static String filterKey(@NonNull String value) {
+		String key = value.trim().toUpperCase(Locale.ROOT);
+		if(key.startsWith(".")) key = key.substring(1);
+		if(key.endsWith(":")) key = key.substring(0, key.length() - 1);
+		return key;
+	}
+
+	/**
+	 * @return drive prefix, name and extension (empty if there is none) in upper case.
+	 */
+	private static String[] split(String path) {
+		String upper = path.trim().toUpperCase(Locale.ROOT);
+		int colon = upper.indexOf(':');
+		int dot = upper.lastIndexOf('.');
+		String drive = colon != -1 ? upper.substring(0, colon + 1) : "R:";
+		String name = dot > colon ? upper.substring(colon + 1, dot) : upper.substring(colon + 1);
+		String extension = dot > colon ? upper.substring(dot + 1) : "";
+		return new String[] { drive, name, extension };
+	}
+
+	@NonNull
+	static WritableArray toProperties(@NonNull List<Entry> entries) {
+		WritableArray array = new WritableNativeArray();
+		for(Entry entry : entries) {
+			WritableMap object = new WritableNativeMap();
+			object.putString("drivePrefix", entry.drivePrefix);
+			object.putString("fileName", entry.fileName);
+			object.putString("extension", entry.extension);
+			object.putString("fullName", entry.fullName());
+			object.putLong("CRC32", entry.crc32);
+			object.putLong("fileSize", entry.size);
+			array.pushMap(object);
+		}
+		return array;
+	}
+
+	@NonNull
+	static WritableArray toNames(@NonNull List<Entry> entries) {
+		WritableArray array = new WritableNativeArray();
+		for(Entry entry : entries) {
+			array.pushString(entry.fullName());
+		}
+		return array;
+	}
+}
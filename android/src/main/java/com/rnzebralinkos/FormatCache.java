@@ -0,0 +1,259 @@
+package com.rnzebralinkos;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
+import com.facebook.react.bridge.WritableNativeMap;
+import com.zebra.sdk.printer.PrinterObjectProperties;
+
+/**
+ * Templates of one printer which are stored on the printer as ^DF formats.
+ * A template is a ZPL label with ^FNn field placeholders; its text is the static part of the job and is
+ * fingerprinted with CRC32. Once a template has been submitted promoteAfter times it is stored on the printer,
+ * later jobs only send ^XF with the field data. Stored formats are checked against the CRC32 the printer
+ * reports for them, after a reconnect and every validateInterval, and are sent again when they changed or are gone.
+ * The module does the I/O, this class only does the bookkeeping.
+ */
+final class FormatCache {
+
+	static final int DEFAULT_PROMOTE_AFTER = 3;
+	static final int DEFAULT_VALIDATE_INTERVAL_MS = 60_000;
+	//stored formats per printer, the least recently used one is deleted to make room
+	static final int MAX_STORED = 16;
+	//free space left on the drive after storing a format
+	static final long SPACE_MARGIN = 64 * 1024;
+	//object listings after ^DF until the format shows up, the printer may still be writing it
+	static final int STORE_CHECKS = 4;
+	static final int STORE_CHECK_DELAY_MS = 150;
+	private static final int MAX_TRACKED = 256;
+	private static final Pattern FIELD = Pattern.compile("\\^FN(\\d+)(\"[^\"^~]*\")?(\\^FD([^^~]*))?", Pattern.CASE_INSENSITIVE);
+
+	static final class StoredFormat {
+		final long fingerprint;
+		final String path;
+		final long crc32;
+		final long size;
+		long validated;
+		long recalls = 0;
+
+		StoredFormat(long fingerprint, @NonNull String path, long crc32, long size) {
+			this.fingerprint = fingerprint;
+			this.path = path;
+			this.crc32 = crc32;
+			this.size = size;
+			this.validated = System.currentTimeMillis();
+		}
+	}
+
+	//submissions of templates which are not stored yet
+	private final Map<Long, Integer> submissions = new LinkedHashMap<Long, Integer>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, Integer> eldest) {
+			return size() > MAX_TRACKED;
+		}
+	};
+	//in least recently used order
+	private final LinkedHashMap<Long, StoredFormat> stored = new LinkedHashMap<>(16, 0.75f, true);
+	//printer instance the stored formats were last validated on, a new one means the printer was reconnected
+	@Nullable
+	private Object validatedOn;
+	private long recalls = 0;
+	private long inlineJobs = 0;
+	private long bytesSaved = 0;
+
+	/**
+	 * @return the template without the surrounding ^XA and ^XZ.
+	 */
+	@NonNull
+	static String body(@NonNull String template) {
+		String body = template.trim();
+		if(body.regionMatches(true, 0, "^XA", 0, 3)) body = body.substring(3);
+		if(body.regionMatches(true, body.length() - 3, "^XZ", 0, 3)) body = body.substring(0, body.length() - 3);
+		return body;
+	}
+
+	static long fingerprint(@NonNull String body) {
+		CRC32 crc = new CRC32();
+		crc.update(body.getBytes(StandardCharsets.UTF_8));
+		return crc.getValue();
+	}
+
+	/**
+	 * @param drive drive letter, e.g. "E"
+	 */
+	@NonNull
+	static String path(@NonNull String drive, long fingerprint) {
+		return String.format(Locale.ROOT, "%s:%08X.ZPL", drive, fingerprint);
+	}
+
+	/**
+	 * The whole label, each ^FNn placeholder (with its prompt and default ^FD) replaced by the field data.
+	 * Fields without data keep their default.
+	 */
+	@NonNull
+	static String inline(@NonNull String body, @NonNull Map<Integer, String> fields) {
+		Matcher matcher = FIELD.matcher(body);
+		StringBuffer label = new StringBuffer(body.length() + 64).append("^XA");
+		while(matcher.find()) {
+			String value = fields.get(Integer.parseInt(matcher.group(1)));
+			if(value == null) value = matcher.group(4) != null ? matcher.group(4) : "";
+			matcher.appendReplacement(label, Matcher.quoteReplacement("^FD" + value));
+		}
+		matcher.appendTail(label);
+		return label.append("^XZ").toString();
+	}
+
+	@NonNull
+	static String storeCommand(@NonNull String path, @NonNull String body) {
+		return "^XA^DF" + path + "^FS" + body + "^XZ";
+	}
+
+	@NonNull
+	static String recallCommand(@NonNull String path, @NonNull Map<Integer, String> fields) {
+		StringBuilder label = new StringBuilder(32 + fields.size() * 24).append("^XA^XF").append(path).append("^FS");
+		for(Map.Entry<Integer, String> field : new TreeMap<>(fields).entrySet()) {
+			label.append("^FN").append(field.getKey()).append("^FD").append(field.getValue()).append("^FS");
+		}
+		return label.append("^XZ").toString();
+	}
+
+	/**
+	 * @return the stored format of the template, null if it is not stored.
+	 */
+	@Nullable
+	synchronized StoredFormat get(long fingerprint) {
+		return stored.get(fingerprint);
+	}
+
+	/**
+	 * @param printer current printer instance of the handle
+	 * @return true if the stored formats have to be compared with the printer's object list before use.
+	 */
+	synchronized boolean needsValidation(@NonNull Object printer, long intervalMs) {
+		if(stored.isEmpty()) return false;
+		if(validatedOn != printer) return true;
+		long now = System.currentTimeMillis();
+		for(StoredFormat format : stored.values()) {
+			if(now - format.validated > intervalMs) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Drops the stored formats which are missing on the printer or whose CRC32 changed.
+	 */
+	synchronized void validate(@NonNull Object printer, @NonNull List<PrinterObjectProperties> objects) {
+		validatedOn = printer;
+		long now = System.currentTimeMillis();
+		Iterator<StoredFormat> it = stored.values().iterator();
+		while(it.hasNext()) {
+			StoredFormat format = it.next();
+			PrinterObjectProperties object = find(objects, format.path);
+			if(object == null || object.getCRC32() != format.crc32) {
+				ZebraLog.d(ZebraLog.Category.IO, "Stored format {} is gone or changed", format.path);
+				it.remove();
+			} else {
+				format.validated = now;
+			}
+		}
+	}
+
+	@Nullable
+	static PrinterObjectProperties find(@NonNull List<PrinterObjectProperties> objects, @NonNull String path) {
+		for(PrinterObjectProperties object : objects) {
+			if(path.equalsIgnoreCase(object.getFullName())) return object;
+		}
+		return null;
+	}
+
+	/**
+	 * Counts a submission of a template which is not stored.
+	 * @return true if the template is now hot enough to be stored.
+	 */
+	synchronized boolean submitted(long fingerprint, int promoteAfter) {
+		Integer count = submissions.get(fingerprint);
+		count = count == null ? 1 : count + 1;
+		submissions.put(fingerprint, count);
+		return count >= promoteAfter;
+	}
+
+	/**
+	 * @return true if a stored format has to be deleted before another one is stored.
+	 */
+	synchronized boolean isFull() {
+		return stored.size() >= MAX_STORED;
+	}
+
+	/**
+	 * @return the stored formats, least recently used first.
+	 */
+	@NonNull
+	synchronized List<StoredFormat> leastRecentlyUsed() {
+		return new ArrayList<>(stored.values());
+	}
+
+	synchronized void put(@NonNull StoredFormat format) {
+		submissions.remove(format.fingerprint);
+		stored.put(format.fingerprint, format);
+	}
+
+	synchronized void remove(long fingerprint) {
+		stored.remove(fingerprint);
+	}
+
+	/**
+	 * @return the stored formats, removed from the cache.
+	 */
+	@NonNull
+	synchronized List<StoredFormat> clear() {
+		List<StoredFormat> formats = new ArrayList<>(stored.values());
+		stored.clear();
+		submissions.clear();
+		return formats;
+	}
+
+	synchronized void recalled(@NonNull StoredFormat format, int bytesSaved) {
+		format.recalls++;
+		recalls++;
+		this.bytesSaved += bytesSaved;
+	}
+
+	synchronized void sentInline() {
+		inlineJobs++;
+	}
+
+	@NonNull
+	synchronized WritableMap stats() {
+		WritableMap stats = new WritableNativeMap();
+		stats.putDouble("recalls", recalls);
+		stats.putDouble("inlineJobs", inlineJobs);
+		stats.putDouble("bytesSaved", bytesSaved);
+		WritableArray formats = new WritableNativeArray();
+		for(StoredFormat format : stored.values()) {
+			WritableMap entry = new WritableNativeMap();
+			entry.putString("path", format.path);
+			entry.putString("fingerprint", String.format(Locale.ROOT, "%08X", format.fingerprint));
+			entry.putDouble("crc32", format.crc32);
+			entry.putDouble("size", format.size);
+			entry.putDouble("recalls", format.recalls);
+			formats.pushMap(entry);
+		}
+		stats.putArray("formats", formats);
+		return stats;
+	}
+}
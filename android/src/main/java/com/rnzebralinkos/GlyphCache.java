@@ -0,0 +1,77 @@
+package com.rnzebralinkos;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Glyphs of the preview font (bold condensed sans serif, close to ZPL font 0), rasterized with the
+ * platform's font renderer and thresholded to 1 bit. The most recently used glyphs are kept.
+ */
+final class GlyphCache implements ZplRenderer.GlyphSource {
+
+	private static final int MAX_GLYPHS = 4096;
+	//font heights and widths up to 32000 dots are valid ZPL, larger glyphs are drawn at this size
+	private static final int MAX_GLYPH_SIZE = 2048;
+
+	private final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+	//font metrics for a text size of 1
+	private final float cellHeight;
+	private final float ascent;
+	private final Map<Long, ZplRenderer.Glyph> glyphs = new LinkedHashMap<Long, ZplRenderer.Glyph>(256, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, ZplRenderer.Glyph> eldest) {
+			return size() > MAX_GLYPHS;
+		}
+	};
+
+	GlyphCache() {
+		paint.setTypeface(Typeface.create(Typeface.SANS_SERIF, Typeface.BOLD));
+		paint.setTextSize(100);
+		Paint.FontMetrics metrics = paint.getFontMetrics();
+		cellHeight = (metrics.descent - metrics.ascent) / 100;
+		ascent = -metrics.ascent / 100;
+	}
+
+	@NonNull
+	@Override
+	public synchronized ZplRenderer.Glyph glyph(char c, int height, int width) {
+		height = Math.max(1, Math.min(MAX_GLYPH_SIZE, height));
+		width = Math.max(1, Math.min(MAX_GLYPH_SIZE, width));
+		long key = (long)c << 32 | (long)height << 16 | width;
+		ZplRenderer.Glyph glyph = glyphs.get(key);
+		if(glyph != null) return glyph;
+
+		float textSize = height / cellHeight;
+		paint.setTextSize(textSize);
+		paint.setTextScaleX((float)width / height);
+		String text = String.valueOf(c);
+		int advance = Math.max(1, Math.round(paint.measureText(text)));
+		int baseline = Math.round(ascent * textSize);
+
+		Bitmap bitmap = Bitmap.createBitmap(advance, height, Bitmap.Config.ALPHA_8);
+		new Canvas(bitmap).drawText(text, 0, baseline, paint);
+		int rowBytes = bitmap.getRowBytes();
+		ByteBuffer pixels = ByteBuffer.allocate(rowBytes * height);
+		bitmap.copyPixelsToBuffer(pixels);
+		bitmap.recycle();
+
+		MonoBitmap mask = new MonoBitmap(advance, height);
+		byte[] alpha = pixels.array();
+		for(int y = 0; y < height; y++) {
+			for(int x = 0; x < advance; x++) {
+				if((alpha[y * rowBytes + x] & 0xFF) >= 0x80) mask.set(x, y, MonoBitmap.PAINT_BLACK);
+			}
+		}
+		glyph = new ZplRenderer.Glyph(mask, advance, baseline);
+		glyphs.put(key, glyph);
+		return glyph;
+	}
+}
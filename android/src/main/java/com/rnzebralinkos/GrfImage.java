@@ -0,0 +1,60 @@
+package com.rnzebralinkos;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import androidx.annotation.NonNull;
+
+import com.zebra.sdk.graphics.ZebraImageI;
+import com.zebra.sdk.graphics.internal.DitheredImageProvider;
+import com.zebra.sdk.graphics.internal.ZebraImageInternal;
+
+/**
+ * An image dithered to a GRF bitmap, the way ZSDK's storeImage() does it.
+ * ZSDK's public API only sends images as ASCII hex (~DG), so the bitmap for the compressed ~DY upload comes from
+ * com.zebra.sdk.graphics.internal, which has no compatibility guarantee. This class is its only user.
+ */
+final class GrfImage {
+
+	/**
+	 * The scaled image, for ZSDK's storeImage() when the upload is not compressed after all.
+	 */
+	@NonNull
+	final ZebraImageI image;
+	@NonNull
+	final byte[] data;
+	final int width;
+	final int height;
+
+	private GrfImage(@NonNull ZebraImageI image, @NonNull byte[] data, int width, int height) {
+		this.image = image;
+		this.data = data;
+		this.width = width;
+		this.height = height;
+	}
+
+	/**
+	 * Scales and dithers the image. A width or height of 0 keeps the aspect ratio, both 0 keep the size.
+	 * @param image image from ZebraImageFactory
+	 */
+	@NonNull
+	static GrfImage dither(@NonNull ZebraImageI image, int width, int height) throws IOException {
+		if(!(image instanceof ZebraImageInternal)) {
+			throw new IOException("Unsupported image type: " + image.getClass().getName());
+		}
+		ZebraImageInternal internal = (ZebraImageInternal)image;
+		if(width > 0 || height > 0) {
+			int scaledWidth = width > 0 ? width : internal.getWidth() * height / internal.getHeight();
+			int scaledHeight = height > 0 ? height : internal.getHeight() * width / internal.getWidth();
+			internal.scaleImage(scaledWidth, scaledHeight);
+		}
+		int bytesPerRow = (internal.getWidth() + 7) / 8;
+		ByteArrayOutputStream grf = new ByteArrayOutputStream(bytesPerRow * internal.getHeight());
+		DitheredImageProvider.getDitheredImage(internal, grf);
+		return new GrfImage(internal, grf.toByteArray(), internal.getWidth(), internal.getHeight());
+	}
+
+	int bytesPerRow() {
+		return (width + 7) / 8;
+	}
+}
@@ -0,0 +1,129 @@
+package com.rnzebralinkos;
+
+import androidx.annotation.NonNull;
+
+import com.zebra.sdk.comm.ConnectionException;
+
+/**
+ * Parsed form of a printer handle string.
+ * Handles are parsed once and cached, so connection paths don't repeat the string splitting.
+ *
+ * Supported handles:
+ * TCP:ip:port, TCP_STATUS:ip:port, TCP_MULTI:ip:printing_port:status_port,
+ * BT:mac, BT_STATUS:mac, BT_INSECURE:mac, BT_STATUS_INSECURE:mac, BT_MULTI:mac,
+ * BTLE:mac, BTLE_STATUS:mac, BTLE_MULTI:mac,
+ * USB:vid:pid (hexadecimal),
+ * REPLAY:path or REPLAY:timeScale:path (capture file, played back with the delays multiplied by timeScale)
+ */
+record HandleDescriptor(
+	@NonNull String handle,
+	@NonNull Transport transport,
+	@NonNull Channel channel,
+	boolean insecure,
+	@NonNull String address,
+	int port,
+	int statusPort
+) {
+
+	enum Transport { TCP, BLUETOOTH, BLUETOOTH_LE, USB, REPLAY }
+
+	enum Channel { PRINTING, STATUS, MULTI }
+
+	/**
+	 * USB handles store the vendor ID in port and the product ID in statusPort.
+	 */
+	int vendorId() {
+		return port;
+	}
+
+	int productId() {
+		return statusPort;
+	}
+
+	/**
+	 * REPLAY handles store the capture path in address and the time scale in permille in port.
+	 */
+	double timeScale() {
+		return port / 1000.0;
+	}
+
+	@NonNull
+	static HandleDescriptor parse(@NonNull String handle) throws ConnectionException {
+		int separator = handle.indexOf(':');
+		if(separator <= 0) {
+			throw new ConnectionException("Invalid connection handle");
+		}
+		String prefix = handle.substring(0, separator);
+		String rest = handle.substring(separator + 1);
+		try {
+			switch(prefix) {
+				case "TCP": return parseTcp(handle, rest, Channel.PRINTING);
+				case "TCP_STATUS": return parseTcp(handle, rest, Channel.STATUS);
+				case "TCP_MULTI": return parseTcp(handle, rest, Channel.MULTI);
+				case "BT": return parseBluetooth(handle, rest, Transport.BLUETOOTH, Channel.PRINTING, false);
+				case "BT_STATUS": return parseBluetooth(handle, rest, Transport.BLUETOOTH, Channel.STATUS, false);
+				case "BT_INSECURE": return parseBluetooth(handle, rest, Transport.BLUETOOTH, Channel.PRINTING, true);
+				case "BT_STATUS_INSECURE": return parseBluetooth(handle, rest, Transport.BLUETOOTH, Channel.STATUS, true);
+				case "BT_MULTI": return parseBluetooth(handle, rest, Transport.BLUETOOTH, Channel.MULTI, false);
+				case "BTLE": return parseBluetooth(handle, rest, Transport.BLUETOOTH_LE, Channel.PRINTING, false);
+				case "BTLE_STATUS": return parseBluetooth(handle, rest, Transport.BLUETOOTH_LE, Channel.STATUS, false);
+				case "BTLE_MULTI": return parseBluetooth(handle, rest, Transport.BLUETOOTH_LE, Channel.MULTI, false);
+				case "USB": return parseUsb(handle, rest);
+				case "REPLAY": return parseReplay(handle, rest);
+			}
+		} catch(NumberFormatException e) {
+			//bottom ConnectionException will be thrown
+		}
+		throw new ConnectionException("Invalid connection handle");
+	}
+
+	private static HandleDescriptor parseTcp(String handle, String rest, Channel channel) throws ConnectionException {
+		String[] parts = rest.split(":");
+		if(parts.length != (channel == Channel.MULTI ? 3 : 2)) {
+			throw new ConnectionException("Invalid connection handle");
+		}
+		int port = Integer.parseInt(parts[1]);
+		int statusPort = channel == Channel.MULTI ? Integer.parseInt(parts[2]) : -1;
+		return new HandleDescriptor(handle, Transport.TCP, channel, false, parts[0], port, statusPort);
+	}
+
+	private static HandleDescriptor parseBluetooth(String handle, String mac, Transport transport, Channel channel, boolean insecure) throws ConnectionException {
+		//MAC address must have 6 groups separated by colons
+		int groups = 1;
+		for(int i = 0; i < mac.length(); i++) {
+			if(mac.charAt(i) == ':') groups++;
+		}
+		if(groups != 6) {
+			throw new ConnectionException("Invalid connection handle");
+		}
+		return new HandleDescriptor(handle, transport, channel, insecure, mac, -1, -1);
+	}
+
+	private static HandleDescriptor parseUsb(String handle, String rest) throws ConnectionException {
+		String[] parts = rest.split(":");
+		if(parts.length != 2) {
+			throw new ConnectionException("Invalid connection handle");
+		}
+		int vid = Integer.parseInt(parts[0], 16);
+		int pid = Integer.parseInt(parts[1], 16);
+		return new HandleDescriptor(handle, Transport.USB, Channel.PRINTING, false, rest, vid, pid);
+	}
+
+	private static HandleDescriptor parseReplay(String handle, String rest) throws ConnectionException {
+		int separator = rest.indexOf(':');
+		int timeScale = 1000;
+		String path = rest;
+		if(separator > 0) {
+			try {
+				timeScale = (int)Math.round(Double.parseDouble(rest.substring(0, separator)) * 1000);
+				path = rest.substring(separator + 1);
+			} catch(NumberFormatException e) {
+				//no time scale, the colon is part of the path
+			}
+		}
+		if(path.isEmpty() || timeScale < 0) {
+			throw new ConnectionException("Invalid connection handle");
+		}
+		return new HandleDescriptor(handle, Transport.REPLAY, Channel.PRINTING, false, path, timeScale, -1);
+	}
+}
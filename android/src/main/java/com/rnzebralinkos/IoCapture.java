@@ -0,0 +1,232 @@
+package com.rnzebralinkos;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.zebra.sdk.comm.Connection;
+import com.zebra.sdk.comm.ConnectionException;
+import com.zebra.sdk.comm.ResponseValidator;
+
+/**
+ * Binary capture of the traffic of one printer connection, written by CaptureConnection and played back by ReplayConnection.
+ *
+ * File layout: "ZCAP", version byte, handle (varint length + UTF-8), capture start (8 bytes, ms since epoch),
+ * then one record per event: type byte, start (varint, us after the previous event's start),
+ * duration (varint, us), data length (varint), data.
+ */
+final class IoCapture {
+
+	static final byte TYPE_OPEN = 'O';
+	static final byte TYPE_CLOSE = 'C';
+	static final byte TYPE_WRITE = 'W';
+	static final byte TYPE_READ = 'R';
+	//printer control language, recorded once the printer is known
+	static final byte TYPE_LANGUAGE = 'L';
+
+	private static final byte[] MAGIC = { 'Z', 'C', 'A', 'P' };
+	private static final int VERSION = 1;
+	private static final byte[] EMPTY = new byte[0];
+
+	static final class Event {
+		final byte type;
+		//us since the capture started
+		final long start;
+		final long duration;
+		@NonNull
+		final byte[] data;
+
+		Event(byte type, long start, long duration, @NonNull byte[] data) {
+			this.type = type;
+			this.start = start;
+			this.duration = duration;
+			this.data = data;
+		}
+
+		long end() {
+			return start + duration;
+		}
+	}
+
+	static final class Capture {
+		@NonNull
+		final String handle;
+		final long startTime;
+		@NonNull
+		final List<Event> events;
+
+		Capture(@NonNull String handle, long startTime, @NonNull List<Event> events) {
+			this.handle = handle;
+			this.startTime = startTime;
+			this.events = events;
+		}
+	}
+
+	private IoCapture() {}
+
+	/**
+	 * Appends events to a capture file. Events are buffered, close() writes them out.
+	 */
+	static final class Writer {
+		private final File file;
+		private final OutputStream out;
+		private final long startNanos = System.nanoTime();
+		private long previousStart = 0;
+		private long events = 0;
+		private long bytes = 0;
+		private boolean closed = false;
+
+		Writer(@NonNull File file, @NonNull String handle) throws IOException {
+			this.file = file;
+			out = new BufferedOutputStream(new FileOutputStream(file), 64 * 1024);
+			out.write(MAGIC);
+			out.write(VERSION);
+			byte[] name = handle.getBytes(StandardCharsets.UTF_8);
+			writeVarint(out, name.length);
+			out.write(name);
+			long now = System.currentTimeMillis();
+			for(int shift = 56; shift >= 0; shift -= 8) {
+				out.write((int)(now >>> shift));
+			}
+		}
+
+		@NonNull
+		File getFile() {
+			return file;
+		}
+
+		void record(byte type, long startNanos, @NonNull byte[] data, int offset, int length) {
+			long endNanos = System.nanoTime();
+			synchronized (this) {
+				if(closed) return;
+				long start = Math.max(previousStart, (startNanos - this.startNanos) / 1_000);
+				try {
+					out.write(type);
+					writeVarint(out, start - previousStart);
+					writeVarint(out, Math.max(0, (endNanos - startNanos) / 1_000));
+					writeVarint(out, length);
+					out.write(data, offset, length);
+				} catch(IOException e) {
+					ZebraLog.w(ZebraLog.Category.IO, "Capture stopped: {}", e.getMessage());
+					closed = true;
+					return;
+				}
+				previousStart = start;
+				events++;
+				bytes += length;
+			}
+		}
+
+		void record(byte type, long startNanos) {
+			record(type, startNanos, EMPTY, 0, 0);
+		}
+
+		synchronized long getEvents() {
+			return events;
+		}
+
+		synchronized long getBytes() {
+			return bytes;
+		}
+
+		synchronized void close() {
+			if(closed) return;
+			closed = true;
+			try {
+				out.close();
+			} catch(IOException e) {
+				ZebraLog.w(ZebraLog.Category.IO, "Closing capture failed: {}", e.getMessage());
+			}
+		}
+	}
+
+	@NonNull
+	static Capture read(@NonNull File file) throws IOException {
+		try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			byte[] magic = new byte[MAGIC.length];
+			in.readFully(magic);
+			for(int i = 0; i < MAGIC.length; i++) {
+				if(magic[i] != MAGIC[i]) throw new IOException("Not a capture file");
+			}
+			int version = in.readUnsignedByte();
+			if(version != VERSION) throw new IOException("Unsupported capture version " + version);
+			byte[] name = new byte[(int)readVarint(in)];
+			in.readFully(name);
+			long startTime = in.readLong();
+			List<Event> events = new ArrayList<>();
+			long start = 0;
+			int type;
+			while((type = in.read()) != -1) {
+				start += readVarint(in);
+				long duration = readVarint(in);
+				byte[] data = new byte[(int)readVarint(in)];
+				in.readFully(data);
+				events.add(new Event((byte)type, start, duration, data));
+			}
+			return new Capture(new String(name, StandardCharsets.UTF_8), startTime, events);
+		}
+	}
+
+	private static void writeVarint(OutputStream out, long value) throws IOException {
+		while((value & ~0x7FL) != 0) {
+			out.write((int)((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.write((int)value);
+	}
+
+	private static long readVarint(InputStream in) throws IOException {
+		long value = 0;
+		for(int shift = 0; shift < 64; shift += 7) {
+			int b = in.read();
+			if(b == -1) throw new EOFException("Truncated capture");
+			value |= (long)(b & 0x7F) << shift;
+			if((b & 0x80) == 0) return value;
+		}
+		throw new IOException("Invalid capture");
+	}
+
+	/**
+	 * sendAndWaitForResponse done with the connection's own write, waitForData and read,
+	 * so wrapping connections see the whole exchange.
+	 * @param terminator the response is complete once it contains this string
+	 * @param validator the response is complete once it accepts it
+	 */
+	static void exchange(@NonNull Connection conn, @NonNull OutputStream destination, @NonNull InputStream source, int initialResponseTimeout,
+			int responseCompletionTimeout, @Nullable String terminator, @Nullable ResponseValidator validator) throws ConnectionException {
+		conn.write(source);
+		TerminatorMatcher matcher = terminator != null && !terminator.isEmpty() ? new TerminatorMatcher(terminator) : null;
+		//the validator needs the whole response, it is only collected for one
+		ByteArrayOutputStream response = validator != null ? new ByteArrayOutputStream() : null;
+		conn.waitForData(initialResponseTimeout);
+		try {
+			while(conn.bytesAvailable() > 0) {
+				byte[] chunk = conn.read();
+				if(chunk == null || chunk.length == 0) break;
+				destination.write(chunk);
+				if(matcher != null && matcher.found(chunk)) break;
+				if(response != null) {
+					response.write(chunk);
+					if(validator.isResponseComplete(response.toByteArray())) break;
+				}
+				conn.waitForData(responseCompletionTimeout);
+			}
+		} catch(IOException e) {
+			throw new ConnectionException(e);
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package com.rnzebralinkos;
+
+import androidx.annotation.NonNull;
+
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
+import com.facebook.react.bridge.WritableNativeMap;
+
+/**
+ * Ring buffer of the last N I/O events for support dumps.
+ * Storage is preallocated when the capacity is set, recording an event does not allocate.
+ * Disabled (capacity 0) by default.
+ */
+final class IoTrace {
+
+	static final String KIND_COMMAND = "command";
+	static final String KIND_TRANSFER = "transfer";
+
+	private long[] timestamps = new long[0];
+	private String[] handles = new String[0];
+	private String[] kinds = new String[0];
+	private long[] bytesOut = new long[0];
+	private long[] bytesIn = new long[0];
+	private long[] durations = new long[0];
+	private int next = 0;
+	private int count = 0;
+
+	synchronized void setCapacity(int capacity) {
+		capacity = Math.max(0, capacity);
+		timestamps = new long[capacity];
+		handles = new String[capacity];
+		kinds = new String[capacity];
+		bytesOut = new long[capacity];
+		bytesIn = new long[capacity];
+		durations = new long[capacity];
+		next = 0;
+		count = 0;
+	}
+
+	boolean isEnabled() {
+		return timestamps.length > 0;
+	}
+
+	/**
+	 * @param kind one of the KIND_ constants
+	 * @param startNanos System.nanoTime() when the exchange started
+	 */
+	synchronized void record(@NonNull String handle, @NonNull String kind, long out, long in, long startNanos) {
+		int capacity = timestamps.length;
+		if(capacity == 0) return;
+		long durationNanos = System.nanoTime() - startNanos;
+		timestamps[next] = System.currentTimeMillis() - durationNanos / 1_000_000;
+		handles[next] = handle;
+		kinds[next] = kind;
+		bytesOut[next] = out;
+		bytesIn[next] = in;
+		durations[next] = durationNanos / 1_000;
+		next = (next + 1) % capacity;
+		if(count < capacity) count++;
+	}
+
+	/**
+	 * @return the recorded events, oldest first.
+	 */
+	@NonNull
+	synchronized WritableArray dump() {
+		WritableArray events = new WritableNativeArray();
+		int capacity = timestamps.length;
+		for(int i = 0; i < count; i++) {
+			int index = (next - count + i + capacity) % capacity;
+			WritableMap event = new WritableNativeMap();
+			event.putDouble("timestamp", timestamps[index]);
+			event.putString("handle", handles[index]);
+			event.putString("kind", kinds[index]);
+			event.putDouble("bytesOut", bytesOut[index]);
+			event.putDouble("bytesIn", bytesIn[index]);
+			event.putDouble("durationUs", durations[index]);
+			events.pushMap(event);
+		}
+		return events;
+	}
+}
@@ -0,0 +1,172 @@
+package com.rnzebralinkos;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.zebra.sdk.printer.LinkOsInformation;
+import com.zebra.sdk.printer.PrinterLanguage;
+
+/**
+ * Persisted list of recently used printers with their control language and Link-OS version,
+ * so reconnecting after an app restart skips the language and version probing.
+ * Entries are stored in SharedPreferences as "lastUsed;LANGUAGE;major.minor.micro;chunkSize".
+ */
+final class KnownPrinterStore {
+
+	private static final String PREFERENCES_NAME = "RNZebraLinkOS.knownPrinters";
+	//handles never start with '#'
+	private static final String KEY_WARM_UP = "#warmUp";
+	static final int MAX_ENTRIES = 32;
+
+	/**
+	 * @param chunkSize tuned Bluetooth write chunk size, 0 if unknown
+	 */
+	record KnownPrinter(String handle, long lastUsed, @Nullable PrinterLanguage language, @Nullable LinkOsInformation linkOsInformation, int chunkSize) {}
+
+	private final Context context;
+	@Nullable
+	private SharedPreferences preferences;
+	private final Map<String, KnownPrinter> printers = new ConcurrentHashMap<>();
+
+	KnownPrinterStore(@NonNull Context context) {
+		this.context = context;
+	}
+
+	/**
+	 * Loads the store on first use, SharedPreferences reads the file synchronously.
+	 */
+	@NonNull
+	private synchronized SharedPreferences preferences() {
+		if(preferences == null) {
+			preferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+			for(Map.Entry<String, ?> entry : preferences.getAll().entrySet()) {
+				if(entry.getKey().startsWith("#") || !(entry.getValue() instanceof String)) continue;
+				KnownPrinter printer = decode(entry.getKey(), (String)entry.getValue());
+				if(printer != null) printers.put(printer.handle(), printer);
+			}
+		}
+		return preferences;
+	}
+
+	@Nullable
+	private static KnownPrinter decode(String handle, String value) {
+		String[] parts = value.split(";", -1);
+		//entries written before the chunk size was stored have 3 parts
+		if(parts.length != 3 && parts.length != 4) return null;
+		try {
+			PrinterLanguage language = parts[1].isEmpty() ? null : PrinterLanguage.valueOf(parts[1]);
+			LinkOsInformation linkOs = null;
+			if(!parts[2].isEmpty()) {
+				String[] version = parts[2].split("\\.");
+				linkOs = new LinkOsInformation(Integer.parseInt(version[0]), Integer.parseInt(version[1]), Integer.parseInt(version[2]));
+			}
+			int chunkSize = parts.length == 4 && !parts[3].isEmpty() ? Integer.parseInt(parts[3]) : 0;
+			return new KnownPrinter(handle, Long.parseLong(parts[0]), language, linkOs, chunkSize);
+		} catch(IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+			return null;
+		}
+	}
+
+	@NonNull
+	private static String encode(KnownPrinter printer) {
+		LinkOsInformation linkOs = printer.linkOsInformation();
+		return printer.lastUsed() + ";"
+			+ (printer.language() != null ? printer.language().name() : "") + ";"
+			+ (linkOs != null ? linkOs.getMajor() + "." + linkOs.getMinor() + "." + linkOs.getMicro() : "") + ";"
+			+ (printer.chunkSize() > 0 ? printer.chunkSize() : "");
+	}
+
+	@Nullable
+	KnownPrinter get(@NonNull String handle) {
+		preferences();
+		return printers.get(handle);
+	}
+
+	/**
+	 * Records a successful connection, evicting the least recently used entry when the store is full.
+	 */
+	synchronized void rememberConnection(@NonNull String handle, @NonNull PrinterLanguage language) {
+		SharedPreferences.Editor editor = preferences().edit();
+		KnownPrinter previous = printers.get(handle);
+		//the Link-OS version is kept as long as the language did not change, i.e. it is the same printer
+		LinkOsInformation linkOs = previous != null && previous.language() == language ? previous.linkOsInformation() : null;
+		int chunkSize = previous != null ? previous.chunkSize() : 0;
+		put(editor, new KnownPrinter(handle, System.currentTimeMillis(), language, linkOs, chunkSize));
+		if(printers.size() > MAX_ENTRIES) {
+			KnownPrinter oldest = null;
+			for(KnownPrinter printer : printers.values()) {
+				if(oldest == null || printer.lastUsed() < oldest.lastUsed()) oldest = printer;
+			}
+			printers.remove(oldest.handle());
+			editor.remove(oldest.handle());
+		}
+		editor.apply();
+	}
+
+	/**
+	 * @param linkOs null if the printer turned out not to be a Link-OS printer
+	 */
+	synchronized void rememberLinkOsInformation(@NonNull String handle, @Nullable LinkOsInformation linkOs) {
+		KnownPrinter previous = get(handle);
+		if(previous == null) return;
+		SharedPreferences.Editor editor = preferences().edit();
+		put(editor, new KnownPrinter(handle, previous.lastUsed(), previous.language(), linkOs, previous.chunkSize()));
+		editor.apply();
+	}
+
+	synchronized void rememberChunkSize(@NonNull String handle, int chunkSize) {
+		KnownPrinter previous = get(handle);
+		if(previous == null || previous.chunkSize() == chunkSize) return;
+		SharedPreferences.Editor editor = preferences().edit();
+		put(editor, new KnownPrinter(handle, previous.lastUsed(), previous.language(), previous.linkOsInformation(), chunkSize));
+		editor.apply();
+	}
+
+	private void put(SharedPreferences.Editor editor, KnownPrinter printer) {
+		printers.put(printer.handle(), printer);
+		editor.putString(printer.handle(), encode(printer));
+	}
+
+	synchronized boolean forget(@NonNull String handle) {
+		preferences().edit().remove(handle).apply();
+		return printers.remove(handle) != null;
+	}
+
+	synchronized void clear() {
+		boolean warmUp = isWarmUpEnabled();
+		printers.clear();
+		SharedPreferences.Editor editor = preferences().edit().clear();
+		if(warmUp) editor.putString(KEY_WARM_UP, "1");
+		editor.apply();
+	}
+
+	/**
+	 * @return known printers, most recently used first.
+	 */
+	@NonNull
+	List<KnownPrinter> list() {
+		preferences();
+		List<KnownPrinter> list = new ArrayList<>(printers.values());
+		list.sort((a, b) -> Long.compare(b.lastUsed(), a.lastUsed()));
+		return list;
+	}
+
+	boolean isWarmUpEnabled() {
+		return "1".equals(preferences().getString(KEY_WARM_UP, null));
+	}
+
+	void setWarmUpEnabled(boolean enabled) {
+		SharedPreferences.Editor editor = preferences().edit();
+		if(enabled) editor.putString(KEY_WARM_UP, "1");
+		else editor.remove(KEY_WARM_UP);
+		editor.apply();
+	}
+}
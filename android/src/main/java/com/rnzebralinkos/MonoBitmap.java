@@ -0,0 +1,206 @@
+package com.rnzebralinkos;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import androidx.annotation.NonNull;
+
+/**
+ * 1-bit image, rows packed most significant bit first like ZPL graphics. A set bit is a black dot.
+ * Drawing is clipped to the image.
+ */
+final class MonoBitmap {
+
+	static final int ROTATE_NONE = 0;
+	static final int ROTATE_90 = 1;
+	static final int ROTATE_180 = 2;
+	static final int ROTATE_270 = 3;
+	static final int PAINT_BLACK = 0;
+	static final int PAINT_WHITE = 1;
+	//inverts the dots, for reversed fields
+	static final int PAINT_INVERT = 2;
+
+	private static final byte[] PNG_SIGNATURE = { (byte)0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+
+	final int width;
+	final int height;
+	final int stride;
+	final byte[] bits;
+
+	MonoBitmap(int width, int height) {
+		this.width = Math.max(0, width);
+		this.height = Math.max(0, height);
+		this.stride = (this.width + 7) / 8;
+		this.bits = new byte[stride * this.height];
+	}
+
+	/**
+	 * Wraps packed rows, e.g. the data of ^GF.
+	 */
+	MonoBitmap(int width, int height, int stride, @NonNull byte[] bits) {
+		this.width = width;
+		this.height = height;
+		this.stride = stride;
+		this.bits = bits;
+	}
+
+	boolean get(int x, int y) {
+		if(x < 0 || y < 0 || x >= width || y >= height) return false;
+		return (bits[y * stride + (x >> 3)] & (0x80 >> (x & 7))) != 0;
+	}
+
+	void set(int x, int y, int paint) {
+		if(x < 0 || y < 0 || x >= width || y >= height) return;
+		int index = y * stride + (x >> 3);
+		bits[index] = apply(bits[index], 0x80 >> (x & 7), paint);
+	}
+
+	private static byte apply(byte value, int mask, int paint) {
+		switch(paint) {
+			case PAINT_WHITE: return (byte)(value & ~mask);
+			case PAINT_INVERT: return (byte)(value ^ mask);
+			default: return (byte)(value | mask);
+		}
+	}
+
+	void fill(int x, int y, int w, int h, int paint) {
+		int x0 = Math.max(0, x);
+		int x1 = Math.min(width, x + w);
+		int y0 = Math.max(0, y);
+		int y1 = Math.min(height, y + h);
+		if(x0 >= x1 || y0 >= y1) return;
+		int firstByte = x0 >> 3;
+		int lastByte = (x1 - 1) >> 3;
+		int firstMask = 0xFF >> (x0 & 7);
+		int lastMask = 0xFF << (7 - ((x1 - 1) & 7)) & 0xFF;
+		for(int row = y0; row < y1; row++) {
+			int base = row * stride;
+			for(int i = firstByte; i <= lastByte; i++) {
+				int mask = 0xFF;
+				if(i == firstByte) mask &= firstMask;
+				if(i == lastByte) mask &= lastMask;
+				bits[base + i] = apply(bits[base + i], mask, paint);
+			}
+		}
+	}
+
+	/**
+	 * Paints the dots under the black dots of the source, rotated clockwise, with the rotated image's top left corner at x, y.
+	 */
+	void draw(@NonNull MonoBitmap source, int x, int y, int rotation, int paint) {
+		if(rotation == ROTATE_NONE) {
+			drawAligned(source, x, y, paint);
+			return;
+		}
+		for(int sy = 0; sy < source.height; sy++) {
+			int base = sy * source.stride;
+			for(int sx = 0; sx < source.width; sx++) {
+				if((source.bits[base + (sx >> 3)] & (0x80 >> (sx & 7))) == 0) continue;
+				switch(rotation) {
+					case ROTATE_90: set(x + source.height - 1 - sy, y + sx, paint); break;
+					case ROTATE_180: set(x + source.width - 1 - sx, y + source.height - 1 - sy, paint); break;
+					default: set(x + sy, y + source.width - 1 - sx, paint); break;
+				}
+			}
+		}
+	}
+
+	private void drawAligned(MonoBitmap source, int x, int y, int paint) {
+		int shift = x & 7;
+		int startByte = x >> 3;
+		int sy0 = Math.max(0, -y);
+		int sy1 = Math.min(source.height, height - y);
+		for(int sy = sy0; sy < sy1; sy++) {
+			int sourceBase = sy * source.stride;
+			int base = (y + sy) * stride;
+			for(int i = 0; i < source.stride; i++) {
+				int value = source.bits[sourceBase + i] & 0xFF;
+				//dots past the source's width are padding
+				if(i == source.stride - 1 && (source.width & 7) != 0) value &= 0xFF << (8 - (source.width & 7));
+				if(value == 0) continue;
+				//a byte of the source covers up to two bytes of the destination
+				int word = value << (8 - shift);
+				for(int part = 0; part < 2; part++) {
+					int index = startByte + i + part;
+					int mask = part == 0 ? word >> 8 & 0xFF : word & 0xFF;
+					if(mask == 0 || index < 0 || index >= stride) continue;
+					//keep the padding of the last byte clear
+					if(index == stride - 1 && (width & 7) != 0) mask &= 0xFF << (8 - (width & 7));
+					bits[base + index] = apply(bits[base + index], mask, paint);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Encodes the image as a 1-bit grayscale PNG.
+	 * @param dpi stored as the physical pixel size, 0 to leave it out
+	 */
+	@NonNull
+	byte[] toPng(int dpi) {
+		ByteArrayOutputStream png = new ByteArrayOutputStream(bits.length / 8 + 256);
+		try {
+			png.write(PNG_SIGNATURE);
+			byte[] header = new byte[13];
+			putInt(header, 0, width);
+			putInt(header, 4, height);
+			header[8] = 1; //bit depth
+			header[9] = 0; //grayscale
+			writeChunk(png, "IHDR", header, header.length);
+			if(dpi > 0) {
+				byte[] physical = new byte[9];
+				int perMeter = (int)Math.round(dpi / 0.0254);
+				putInt(physical, 0, perMeter);
+				putInt(physical, 4, perMeter);
+				physical[8] = 1; //unit is the meter
+				writeChunk(png, "pHYs", physical, physical.length);
+			}
+			ByteArrayOutputStream data = new ByteArrayOutputStream(bits.length / 8 + 64);
+			Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+			try(DeflaterOutputStream out = new DeflaterOutputStream(data, deflater, 8192)) {
+				//PNG grayscale has 0 for black
+				byte[] row = new byte[stride + 1];
+				for(int y = 0; y < height; y++) {
+					row[0] = 0; //no filter
+					int base = y * stride;
+					for(int i = 0; i < stride; i++) {
+						row[i + 1] = (byte)~bits[base + i];
+					}
+					out.write(row);
+				}
+			} finally {
+				deflater.end();
+			}
+			writeChunk(png, "IDAT", data.toByteArray(), data.size());
+			writeChunk(png, "IEND", new byte[0], 0);
+		} catch(IOException e) {
+			//ByteArrayOutputStream does not throw
+			throw new IllegalStateException(e);
+		}
+		return png.toByteArray();
+	}
+
+	private static void writeChunk(ByteArrayOutputStream out, String type, byte[] data, int length) {
+		byte[] number = new byte[4];
+		putInt(number, 0, length);
+		out.write(number, 0, 4);
+		byte[] typeBytes = { (byte)type.charAt(0), (byte)type.charAt(1), (byte)type.charAt(2), (byte)type.charAt(3) };
+		out.write(typeBytes, 0, 4);
+		out.write(data, 0, length);
+		CRC32 crc = new CRC32();
+		crc.update(typeBytes);
+		crc.update(data, 0, length);
+		putInt(number, 0, (int)crc.getValue());
+		out.write(number, 0, 4);
+	}
+
+	private static void putInt(byte[] array, int offset, int value) {
+		array[offset] = (byte)(value >>> 24);
+		array[offset + 1] = (byte)(value >>> 16);
+		array[offset + 2] = (byte)(value >>> 8);
+		array[offset + 3] = (byte)value;
+	}
+}
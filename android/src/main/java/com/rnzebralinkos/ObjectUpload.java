@@ -0,0 +1,237 @@
+package com.rnzebralinkos;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.zip.DeflaterOutputStream;
+
+import android.util.Base64;
+import android.util.Base64OutputStream;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.zebra.sdk.comm.Connection;
+import com.zebra.sdk.comm.ConnectionException;
+
+/**
+ * Uploads objects with ZPL ~DY, the data encoded as Z64 (zlib deflate + base64) or B64, followed by
+ * the CRC-16 of the encoded text. Data is compressed and encoded while it is written to the connection,
+ * the encoded form is never held in memory.
+ */
+final class ObjectUpload {
+
+	static final String MODE_NONE = "none";
+	static final String MODE_AUTO = "auto";
+	static final String MODE_Z64 = "z64";
+	static final String MODE_B64 = "b64";
+
+	private static final int SAMPLE_SLICES = 16;
+	private static final int SAMPLE_SLICE_SIZE = 256;
+	//Z64 pays off when deflate output plus the base64 overhead (4/3) is clearly smaller than the raw data,
+	//i.e. estimated ratio entropy/8 * 4/3 < 0.9
+	private static final double Z64_MAX_ENTROPY = 5.4;
+
+	private ObjectUpload() {}
+
+	/**
+	 * Estimates the Shannon entropy in bits per byte from slices spread over the data.
+	 */
+	static double sampleEntropy(@NonNull byte[] data) {
+		int[] counts = new int[256];
+		int sampled = 0;
+		int slices = Math.max(1, Math.min(SAMPLE_SLICES, data.length / SAMPLE_SLICE_SIZE));
+		long stride = data.length / slices;
+		for(int slice = 0; slice < slices; slice++) {
+			int start = (int)(slice * stride);
+			int end = Math.min(data.length, start + SAMPLE_SLICE_SIZE);
+			for(int i = start; i < end; i++) {
+				counts[data[i] & 0xFF]++;
+			}
+			sampled += end - start;
+		}
+		if(sampled == 0) return 0;
+		double entropy = 0;
+		for(int count : counts) {
+			if(count == 0) continue;
+			double p = (double)count / sampled;
+			entropy -= p * Math.log(p) / Math.log(2);
+		}
+		return entropy;
+	}
+
+	/**
+	 * @param mode requested mode, null for none
+	 * @throws IllegalArgumentException for an unknown mode
+	 */
+	static void checkMode(@Nullable String mode) {
+		if(mode == null) return;
+		switch(mode) {
+			case MODE_NONE:
+			case MODE_Z64:
+			case MODE_B64:
+			case MODE_AUTO:
+				return;
+			default:
+				throw new IllegalArgumentException("Unknown compression mode: " + mode);
+		}
+	}
+
+	/**
+	 * Resolves MODE_AUTO to MODE_Z64 or MODE_NONE.
+	 * @throws IllegalArgumentException for an unknown mode
+	 */
+	@NonNull
+	static String resolveMode(@Nullable String mode, @NonNull byte[] data) {
+		checkMode(mode);
+		if(mode == null) return MODE_NONE;
+		return mode.equals(MODE_AUTO) ? (sampleEntropy(data) < Z64_MAX_ENTROPY ? MODE_Z64 : MODE_NONE) : mode;
+	}
+
+	/**
+	 * Maps the file extension to the ~DY extension parameter.
+	 * FNT has no code of its own (F is for .HTM pages), fonts of that type are uploaded uncompressed.
+	 * @return null if ~DY can't store this file type.
+	 */
+	@Nullable
+	static String extensionCode(@NonNull String targetPath) {
+		int dot = targetPath.lastIndexOf('.');
+		if(dot == -1) return null;
+		switch(targetPath.substring(dot + 1).toUpperCase(Locale.ROOT)) {
+			case "BMP": return "B";
+			case "TTE": return "E";
+			case "GRF": return "G";
+			case "PNG": return "P";
+			case "TTF": return "T";
+			case "PCX": return "X";
+			case "NRD": return "NRD";
+			case "PAC": return "PAC";
+			default: return null;
+		}
+	}
+
+	/**
+	 * Writes the ~DY command.
+	 * @param targetPath e.g. "E:LOGO.GRF", the drive defaults to R:
+	 * @param bytesPerRow row width of a GRF image, 0 for other objects
+	 * @param mode MODE_Z64 or MODE_B64
+	 */
+	static void write(@NonNull Connection conn, @NonNull String targetPath, @NonNull String extension, @NonNull byte[] data,
+			int bytesPerRow, @NonNull String mode) throws ConnectionException {
+		int colon = targetPath.indexOf(':');
+		int dot = targetPath.lastIndexOf('.');
+		String drive = colon != -1 ? targetPath.substring(0, colon) : "R";
+		String name = dot > colon ? targetPath.substring(colon + 1, dot) : targetPath.substring(colon + 1);
+		String header = "~DY" + drive + ":" + name + ",A," + extension + "," + data.length + ","
+			+ (bytesPerRow > 0 ? bytesPerRow : "") + ",:" + mode.toUpperCase(Locale.ROOT) + ":";
+		conn.write(header.getBytes(StandardCharsets.US_ASCII));
+
+		ConnectionStream connectionStream = new ConnectionStream(conn);
+		Crc16Stream crcStream = new Crc16Stream(connectionStream);
+		try {
+			OutputStream out = new Base64OutputStream(crcStream, Base64.NO_WRAP);
+			if(mode.equals(MODE_Z64)) {
+				out = new DeflaterOutputStream(out);
+			}
+			out.write(data);
+			//finishes deflate and base64 padding, the connection itself stays open
+			out.close();
+			connectionStream.write(String.format(Locale.ROOT, ":%04X\r\n", crcStream.getCrc()).getBytes(StandardCharsets.US_ASCII));
+			connectionStream.flush();
+		} catch(IOException e) {
+			if(e.getCause() instanceof ConnectionException) throw (ConnectionException)e.getCause();
+			throw new ConnectionException(e.getMessage());
+		}
+	}
+
+	/**
+	 * Buffers writes to the connection. close() only flushes.
+	 */
+	private static final class ConnectionStream extends OutputStream {
+		private final Connection conn;
+		private final byte[] buffer = new byte[WriteTuning.MAX_CHUNK];
+		private int count = 0;
+
+		ConnectionStream(Connection conn) {
+			this.conn = conn;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			if(count == buffer.length) flush();
+			buffer[count++] = (byte)b;
+		}
+
+		@Override
+		public void write(@NonNull byte[] data, int offset, int length) throws IOException {
+			while(length > 0) {
+				if(count == buffer.length) flush();
+				int n = Math.min(length, buffer.length - count);
+				System.arraycopy(data, offset, buffer, count, n);
+				count += n;
+				offset += n;
+				length -= n;
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			if(count == 0) return;
+			try {
+				conn.write(buffer, 0, count);
+			} catch(ConnectionException e) {
+				throw new IOException(e.getMessage(), e);
+			}
+			count = 0;
+		}
+
+		@Override
+		public void close() throws IOException {
+			flush();
+		}
+	}
+
+	/**
+	 * CRC-16/XMODEM (CCITT polynomial 0x1021, initial value 0) of everything written through it.
+	 */
+	private static final class Crc16Stream extends FilterOutputStream {
+		private int crc = 0;
+
+		Crc16Stream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			update(b);
+			out.write(b);
+		}
+
+		@Override
+		public void write(@NonNull byte[] data, int offset, int length) throws IOException {
+			for(int i = offset; i < offset + length; i++) {
+				update(data[i]);
+			}
+			out.write(data, offset, length);
+		}
+
+		private void update(int b) {
+			crc ^= (b & 0xFF) << 8;
+			for(int bit = 0; bit < 8; bit++) {
+				crc = (crc & 0x8000) != 0 ? (crc << 1) ^ 0x1021 : crc << 1;
+			}
+			crc &= 0xFFFF;
+		}
+
+		int getCrc() {
+			return crc;
+		}
+
+		@Override
+		public void close() throws IOException {
+			flush();
+		}
+	}
+}
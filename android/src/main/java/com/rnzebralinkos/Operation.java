@@ -0,0 +1,113 @@
+package com.rnzebralinkos;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * A long-running call (file transfer, font upload, discovery scan) which can be
+ * cancelled from JS or aborted when its deadline passes.
+ * Work is interrupted cooperatively - transfers call checkpoint() between chunks.
+ */
+final class Operation {
+
+	static final String CODE_CANCELLED = "OperationCancelledException";
+	static final String CODE_TIMEOUT = "OperationTimeoutException";
+
+	private static final int RUNNING = 0;
+	private static final int COMPLETED = 1;
+	private static final int CANCELLED = 2;
+	private static final int TIMED_OUT = 3;
+
+	private final String id;
+	private final long timeoutMs;
+	private final AtomicInteger state = new AtomicInteger(RUNNING);
+	@Nullable
+	private volatile Runnable abortListener;
+
+	Operation(@NonNull String id, long timeoutMs) {
+		this.id = id;
+		this.timeoutMs = timeoutMs;
+	}
+
+	String getId() {
+		return id;
+	}
+
+	long getTimeoutMs() {
+		return timeoutMs;
+	}
+
+	/**
+	 * Registers a listener which is run once when the operation is cancelled or times out.
+	 * Used by operations which cannot poll checkpoint(), e.g. discovery.
+	 */
+	void setAbortListener(@Nullable Runnable listener) {
+		abortListener = listener;
+		if(listener != null && isAborted()) {
+			listener.run();
+		}
+	}
+
+	/**
+	 * Marks the operation as finished.
+	 * @return false if the operation was already aborted or completed.
+	 */
+	boolean complete() {
+		return state.compareAndSet(RUNNING, COMPLETED);
+	}
+
+	boolean cancel() {
+		return abort(CANCELLED);
+	}
+
+	boolean timeout() {
+		return abort(TIMED_OUT);
+	}
+
+	private boolean abort(int newState) {
+		if(!state.compareAndSet(RUNNING, newState)) {
+			return false;
+		}
+		Runnable listener = abortListener;
+		if(listener != null) {
+			listener.run();
+		}
+		return true;
+	}
+
+	boolean isAborted() {
+		int s = state.get();
+		return s == CANCELLED || s == TIMED_OUT;
+	}
+
+	/**
+	 * @return the promise rejection code for an aborted operation, null while it is not aborted.
+	 */
+	@Nullable
+	String getAbortCode() {
+		switch(state.get()) {
+			case CANCELLED: return CODE_CANCELLED;
+			case TIMED_OUT: return CODE_TIMEOUT;
+			default: return null;
+		}
+	}
+
+	@NonNull
+	String getAbortMessage() {
+		return state.get() == TIMED_OUT
+			? "Operation " + id + " timed out after " + timeoutMs + " ms"
+			: "Operation " + id + " was cancelled";
+	}
+
+	/**
+	 * Throws if the operation was cancelled or its deadline has passed.
+	 * Called at chunk boundaries of long transfers.
+	 */
+	void checkpoint() throws OperationAbortedException {
+		if(isAborted()) {
+			throw new OperationAbortedException(this);
+		}
+	}
+}
@@ -0,0 +1,23 @@
+package com.rnzebralinkos;
+
+import androidx.annotation.NonNull;
+
+import com.zebra.sdk.comm.ConnectionException;
+
+/**
+ * Thrown from a connection write when the running operation was cancelled or timed out.
+ * Extends ConnectionException so it can pass through ZSDK code unchanged.
+ */
+class OperationAbortedException extends ConnectionException {
+
+	private final String code;
+
+	OperationAbortedException(@NonNull Operation operation) {
+		super(operation.getAbortMessage());
+		this.code = operation.getAbortCode();
+	}
+
+	String getCode() {
+		return code;
+	}
+}
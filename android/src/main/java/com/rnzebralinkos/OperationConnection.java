@@ -0,0 +1,146 @@
+package com.rnzebralinkos;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.zebra.sdk.comm.Connection;
+import com.zebra.sdk.comm.ConnectionException;
+
+/**
+ * Splits writes into chunks and checks the owning operation between them,
+ * so a cancelled or timed out transfer stops at the next chunk boundary.
+ * On Bluetooth the chunk size and pauses between chunks come from the printer's WriteTuning,
+ * requests sent with sendAndWaitForResponse() are written the same way.
+ * The task runs holding the printer's lane, tasks made of several commands hand it over between them.
+ */
+class OperationConnection extends ConnectionWrapper {
+
+	static final int CHUNK_SIZE = 4096;
+
+	private final Operation operation;
+	@Nullable
+	private final WriteTuning tuning;
+	private final PrinterLane lane;
+	private final PrinterLane.Priority priority;
+	private long bytesWritten = 0;
+	//reads as much as a tuned chunk, so full chunks are written
+	private final StreamWriter streamWriter;
+
+	OperationConnection(@NonNull Connection wrapped, @NonNull Operation operation, @Nullable WriteTuning tuning,
+			@NonNull PrinterLane lane, @NonNull PrinterLane.Priority priority) {
+		super(wrapped);
+		this.operation = operation;
+		this.tuning = tuning;
+		this.lane = lane;
+		this.priority = priority;
+		this.streamWriter = new StreamWriter(tuning != null ? WriteTuning.MAX_CHUNK : CHUNK_SIZE);
+	}
+
+	/**
+	 * Marks the end of a command: waiting work of a higher priority class runs before the next one.
+	 */
+	void commandBoundary() throws ConnectionException {
+		lane.yieldTo(operation);
+	}
+
+	/**
+	 * Gives up the lane while the task waits without I/O, e.g. for a print to finish.
+	 * Must be followed by acquireLane() before the connection is used again.
+	 */
+	void releaseLane() {
+		if(lane.isHeld()) lane.release();
+	}
+
+	void acquireLane() throws ConnectionException {
+		if(!lane.isHeld()) lane.acquire(priority, operation);
+	}
+
+	@NonNull
+	Operation getOperation() {
+		return operation;
+	}
+
+	/**
+	 * @return number of bytes written through this connection so far.
+	 */
+	long getBytesWritten() {
+		return bytesWritten;
+	}
+
+	@Override
+	public void write(byte[] data, int offset, int length) throws ConnectionException {
+		int end = offset + length;
+		while(offset < end) {
+			operation.checkpoint();
+			if(tuning == null) {
+				int chunk = Math.min(CHUNK_SIZE, end - offset);
+				wrapped.write(data, offset, chunk);
+				offset += chunk;
+				bytesWritten += chunk;
+				continue;
+			}
+			pause(tuning.getPauseNanos());
+			int chunk = Math.min(tuning.getChunkSize(), end - offset);
+			long start = System.nanoTime();
+			wrapped.write(data, offset, chunk);
+			tuning.chunkWritten(chunk, System.nanoTime() - start);
+			offset += chunk;
+			bytesWritten += chunk;
+		}
+	}
+
+	private void pause(long nanos) throws ConnectionException {
+		if(nanos <= 0) return;
+		try {
+			Thread.sleep(nanos / 1_000_000, (int)(nanos % 1_000_000));
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ConnectionException(e);
+		}
+	}
+
+	@Override
+	public byte[] sendAndWaitForResponse(byte[] data, int initialResponseTimeout, int responseCompletionTimeout, @Nullable String terminator) throws ConnectionException {
+		ByteArrayOutputStream response = new ByteArrayOutputStream();
+		write(data, 0, data.length);
+		readResponse(response, initialResponseTimeout, responseCompletionTimeout, terminator);
+		return response.toByteArray();
+	}
+
+	@Override
+	public void sendAndWaitForResponse(OutputStream destination, InputStream source, int initialResponseTimeout, int responseCompletionTimeout, @Nullable String terminator) throws ConnectionException {
+		write(source);
+		readResponse(destination, initialResponseTimeout, responseCompletionTimeout, terminator);
+	}
+
+	/**
+	 * Reads a reply like ZSDK does: the first data within initialTimeout, then until no more data
+	 * comes within completionTimeout or the terminator was received.
+	 */
+	void readResponse(OutputStream destination, int initialTimeout, int completionTimeout, @Nullable String terminator) throws ConnectionException {
+		TerminatorMatcher matcher = terminator != null && !terminator.isEmpty() ? new TerminatorMatcher(terminator) : null;
+		try {
+			wrapped.waitForData(initialTimeout);
+			while(wrapped.bytesAvailable() > 0) {
+				byte[] chunk = wrapped.read();
+				if(chunk == null) break;
+				destination.write(chunk);
+				if(matcher != null && matcher.found(chunk)) return;
+				operation.checkpoint();
+				wrapped.waitForData(completionTimeout);
+			}
+		} catch(IOException e) {
+			throw new ConnectionException(e);
+		}
+	}
+
+	@Override
+	public void write(InputStream stream) throws ConnectionException {
+		streamWriter.write(this, stream);
+	}
+}
@@ -0,0 +1,99 @@
+package com.rnzebralinkos;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.ReadableMap;
+
+/**
+ * Keeps track of running operations so they can be cancelled by their ID,
+ * and enforces per-call deadlines.
+ */
+final class OperationRegistry {
+
+	private final Map<String, Operation> operations = new ConcurrentHashMap<>();
+	private final Map<String, ScheduledFuture<?>> deadlines = new ConcurrentHashMap<>();
+	private final AtomicLong nextId = new AtomicLong(1);
+	private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "ZebraOperationTimer");
+		t.setDaemon(true);
+		return t;
+	});
+
+	/**
+	 * Shared timer thread, also used for periodic work of running operations such as flushing discovery batches.
+	 */
+	@NonNull
+	ScheduledExecutorService getTimer() {
+		return timer;
+	}
+
+	/**
+	 * Starts a new operation.
+	 * @param options JS options object with optional "operationId" and "timeout" (ms) keys.
+	 * @throws IllegalArgumentException if an operation with the same ID is already running.
+	 */
+	@NonNull
+	Operation start(@Nullable ReadableMap options) {
+		String id = null;
+		long timeoutMs = 0;
+		if(options != null) {
+			if(options.hasKey("operationId") && !options.isNull("operationId")) {
+				id = options.getString("operationId");
+			}
+			if(options.hasKey("timeout") && !options.isNull("timeout")) {
+				timeoutMs = (long)options.getDouble("timeout");
+			}
+		}
+		return start(id, timeoutMs);
+	}
+
+	@NonNull
+	Operation start(@Nullable String id, long timeoutMs) {
+		if(id == null || id.isEmpty()) {
+			id = "native-" + nextId.getAndIncrement();
+		}
+		Operation operation = new Operation(id, timeoutMs);
+		if(operations.putIfAbsent(id, operation) != null) {
+			throw new IllegalArgumentException("Operation " + id + " is already running");
+		}
+		if(timeoutMs > 0) {
+			deadlines.put(id, timer.schedule(operation::timeout, timeoutMs, TimeUnit.MILLISECONDS));
+		}
+		return operation;
+	}
+
+	/**
+	 * Removes a finished (completed or aborted) operation from the registry.
+	 */
+	void finish(@NonNull Operation operation) {
+		operation.complete();
+		operations.remove(operation.getId(), operation);
+		ScheduledFuture<?> deadline = deadlines.remove(operation.getId());
+		if(deadline != null) {
+			deadline.cancel(false);
+		}
+	}
+
+	/**
+	 * @return true if a running operation was found and cancelled.
+	 */
+	boolean cancel(@NonNull String id) {
+		Operation operation = operations.get(id);
+		return operation != null && operation.cancel();
+	}
+
+	void cancelAll() {
+		for(Operation operation : operations.values()) {
+			operation.cancel();
+		}
+	}
+}
@@ -0,0 +1,333 @@
+package com.rnzebralinkos;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeMap;
+import com.zebra.sdk.comm.ConnectionException;
+
+/**
+ * Write stream for long print runs. Chunks written from JS are encoded into a fixed ring buffer,
+ * a worker drains the ring to the printer, so memory stays the same however long the run is.
+ * A write resolves false once the ring is over 3/4 full, the "drain" event tells JS when it is down to 1/4 again.
+ * A chunk which does not fit is kept and its promise resolves once the worker has made room for it;
+ * only one such chunk is kept, so JS has to wait for it before writing again.
+ * Each chunk should hold whole commands, other work can use the printer between chunks.
+ */
+final class PrintSink {
+
+	static final String EVENT_FLUSHED = "flushed";
+	static final String EVENT_DRAIN = "drain";
+	static final String EVENT_ERROR = "error";
+	static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+	static final int MIN_BUFFER_SIZE = 4096;
+	static final int MAX_BUFFER_SIZE = 16 * 1024 * 1024;
+	static final int DEFAULT_PROGRESS_INTERVAL_MS = 250;
+	//largest write to the connection, so room is made and progress reported while a full ring drains
+	private static final int MAX_WRITE = 64 * 1024;
+	//chunk ends remembered for command boundaries, further ones are dropped
+	private static final int MAX_BOUNDARIES = 256;
+
+	@FunctionalInterface
+	interface Listener {
+		void onEvent(@NonNull WritableMap event);
+	}
+
+	final String id;
+	private final Listener listener;
+	//own encoding, so writes don't wait for other jobs holding the printer's encoding
+	private final PrinterEncoding encoding = new PrinterEncoding();
+	//code page when the stream was opened, ^CI in the data may change it
+	private final int initialCodePage;
+	@Nullable
+	private final String template;
+	private final int progressInterval;
+	private final byte[] ring;
+	private int readPos = 0;
+	private int count = 0;
+	//absolute stream positions where chunks end
+	private final ArrayDeque<Long> boundaries = new ArrayDeque<>();
+	private long bytesAccepted = 0;
+	private long bytesFlushed = 0;
+	private long records = 0;
+	private long chunks = 0;
+	private final long startNanos = System.nanoTime();
+	private long lastProgress = 0;
+	//a write resolved false and no drain event followed yet
+	private boolean backpressured = false;
+	@Nullable
+	private byte[] pending;
+	private int pendingOffset;
+	@Nullable
+	private Promise pendingPromise;
+	private boolean closing = false;
+	private boolean aborting = false;
+	private boolean finished = false;
+	@Nullable
+	private Promise closePromise;
+
+	/**
+	 * @param codePage code page the printer is in, see PrinterEncoding
+	 * @param template label with ^FNn placeholders for writeRecords(), null if the stream only takes raw chunks
+	 */
+	PrintSink(@NonNull String id, int bufferSize, int progressInterval, int codePage, @Nullable String template, @NonNull Listener listener) {
+		this.id = id;
+		this.ring = new byte[Math.max(MIN_BUFFER_SIZE, Math.min(MAX_BUFFER_SIZE, bufferSize))];
+		this.progressInterval = Math.max(0, progressInterval);
+		this.template = template != null ? FormatCache.body(template) : null;
+		this.listener = listener;
+		if(codePage != PrinterEncoding.CODE_PAGE_UNKNOWN) encoding.setCodePage(codePage);
+		this.initialCodePage = encoding.getCodePage();
+	}
+
+	int getCodePage() {
+		return encoding.getCodePage();
+	}
+
+	/**
+	 * @return true if a ^CI written to the stream switched the code page.
+	 */
+	boolean isCodePageChanged() {
+		return encoding.getCodePage() != initialCodePage;
+	}
+
+	void write(@NonNull String data, @NonNull Promise promise) {
+		this.write(data, 0, promise);
+	}
+
+	/**
+	 * Renders every record into the template, like printTemplate() does for labels sent inline.
+	 */
+	void writeRecords(@NonNull List<Map<Integer, String>> fields, @NonNull Promise promise) {
+		if(template == null) {
+			promise.reject("ZebraIllegalArgumentException", "Print stream " + id + " was opened without a template");
+			return;
+		}
+		StringBuilder labels = new StringBuilder(fields.size() * (template.length() + 64));
+		for(Map<Integer, String> record : fields) {
+			labels.append(FormatCache.inline(template, record));
+		}
+		this.write(labels.toString(), fields.size(), promise);
+	}
+
+	private void write(String data, int recordCount, Promise promise) {
+		boolean wake;
+		synchronized (this) {
+			if(closing || finished) {
+				promise.reject("ZebraIllegalArgumentException", "Print stream " + id + " is closed");
+				return;
+			}
+			if(pending != null) {
+				promise.reject("ZebraIllegalArgumentException", "Print stream " + id + " is still waiting for room for the previous write");
+				return;
+			}
+			int length = encoding.encode(data);
+			if(length == 0) {
+				promise.resolve(count <= ring.length / 4 * 3);
+				return;
+			}
+			byte[] bytes = encoding.array();
+			int copied = this.copyIn(bytes, 0, length);
+			records += recordCount;
+			chunks++;
+			wake = copied > 0;
+			if(copied < length) {
+				pending = Arrays.copyOfRange(bytes, copied, length);
+				pendingOffset = 0;
+				pendingPromise = promise;
+				backpressured = true;
+			} else {
+				this.chunkEnded();
+				boolean ready = count <= ring.length / 4 * 3;
+				if(!ready) backpressured = true;
+				promise.resolve(ready);
+			}
+			if(wake) notifyAll();
+		}
+	}
+
+	private int copyIn(byte[] data, int offset, int length) {
+		int copied = Math.min(length, ring.length - count);
+		int writePos = (readPos + count) % ring.length;
+		int first = Math.min(copied, ring.length - writePos);
+		System.arraycopy(data, offset, ring, writePos, first);
+		System.arraycopy(data, offset + first, ring, 0, copied - first);
+		count += copied;
+		bytesAccepted += copied;
+		return copied;
+	}
+
+	private void chunkEnded() {
+		if(boundaries.size() < MAX_BOUNDARIES) boundaries.add(bytesAccepted);
+	}
+
+	/**
+	 * Stops accepting writes. The worker finishes the buffered data, or drops it if abort is set
+	 * (the module then cancels the worker's operation), and the promise resolves with the summary.
+	 */
+	synchronized void close(boolean abort, @NonNull Promise promise) {
+		if(closePromise != null) {
+			promise.reject("ZebraIllegalArgumentException", "Print stream " + id + " is already closing");
+			return;
+		}
+		closing = true;
+		closePromise = promise;
+		if(abort) {
+			aborting = true;
+			count = 0;
+			boundaries.clear();
+			if(pendingPromise != null) pendingPromise.reject(Operation.CODE_CANCELLED, "Print stream " + id + " was aborted");
+			pending = null;
+			pendingPromise = null;
+		}
+		notifyAll();
+	}
+
+	/**
+	 * Wakes the worker waiting for data, e.g. when the operation is cancelled.
+	 */
+	synchronized void wake() {
+		notifyAll();
+	}
+
+	/**
+	 * Writes the ring to the connection until the stream is closed and empty. Runs on the worker.
+	 * The printer's lane is given up while the ring is empty.
+	 */
+	void drain(@NonNull OperationConnection conn) throws ConnectionException {
+		Operation operation = conn.getOperation();
+		while(true) {
+			int offset;
+			int length;
+			synchronized (this) {
+				if(count == 0 && !closing && !operation.isAborted()) {
+					conn.releaseLane();
+					while(count == 0 && !closing && !operation.isAborted()) {
+						try {
+							wait();
+						} catch(InterruptedException e) {
+							Thread.currentThread().interrupt();
+							throw new ConnectionException(e);
+						}
+					}
+				}
+				operation.checkpoint();
+				if(count == 0) return;
+				offset = readPos;
+				length = Math.min(Math.min(count, ring.length - readPos), MAX_WRITE);
+				//end the write at the last chunk end it covers, so other work can go in between
+				long lastBoundary = -1;
+				for(long boundary : boundaries) {
+					if(boundary > bytesFlushed + length) break;
+					lastBoundary = boundary;
+				}
+				if(lastBoundary != -1) length = (int)(lastBoundary - bytesFlushed);
+			}
+			conn.acquireLane();
+			//the worker owns the bytes between readPos and readPos + count, writes only append after them
+			conn.write(ring, offset, length);
+
+			WritableMap drained = null;
+			WritableMap progress = null;
+			boolean atBoundary;
+			synchronized (this) {
+				if(aborting) return;
+				readPos = (readPos + length) % ring.length;
+				count -= length;
+				bytesFlushed += length;
+				atBoundary = false;
+				while(!boundaries.isEmpty() && boundaries.peek() <= bytesFlushed) {
+					atBoundary = true;
+					boundaries.poll();
+				}
+				this.fillFromPending();
+				if(backpressured && pending == null && count <= ring.length / 4) {
+					backpressured = false;
+					drained = this.event(EVENT_DRAIN, null);
+				}
+				long now = System.nanoTime();
+				if(now - lastProgress >= progressInterval * 1_000_000L) {
+					lastProgress = now;
+					progress = this.event(EVENT_FLUSHED, null);
+				}
+			}
+			if(drained != null) listener.onEvent(drained);
+			if(progress != null) listener.onEvent(progress);
+			if(atBoundary) conn.commandBoundary();
+		}
+	}
+
+	private void fillFromPending() {
+		if(pending == null || count == ring.length) return;
+		int copied = this.copyIn(pending, pendingOffset, pending.length - pendingOffset);
+		pendingOffset += copied;
+		if(pendingOffset < pending.length) return;
+		this.chunkEnded();
+		Promise promise = pendingPromise;
+		pending = null;
+		pendingPromise = null;
+		if(promise != null) promise.resolve(count <= ring.length / 4 * 3);
+	}
+
+	/**
+	 * Called when the worker ended, resolves the close promise.
+	 * @param code rejection code if the worker failed, null if it drained the stream
+	 */
+	void finish(@Nullable String code, @Nullable String message, @Nullable Exception e) {
+		Promise close;
+		WritableMap last;
+		synchronized (this) {
+			finished = true;
+			close = closePromise;
+			closePromise = null;
+			if(code != null && !aborting) {
+				if(pendingPromise != null) pendingPromise.reject(code, message, e);
+				pending = null;
+				pendingPromise = null;
+				last = this.event(EVENT_ERROR, message != null ? message : code);
+				last.putString("code", code);
+			} else {
+				last = this.event(EVENT_FLUSHED, null);
+			}
+			notifyAll();
+		}
+		listener.onEvent(last);
+		if(close == null) return;
+		if(code != null && !aborting) {
+			close.reject(code, message, e);
+		} else {
+			close.resolve(this.summary());
+		}
+	}
+
+	@NonNull
+	private WritableMap event(String type, @Nullable String message) {
+		WritableMap event = new WritableNativeMap();
+		event.putString("streamId", id);
+		event.putString("type", type);
+		event.putDouble("bytesFlushed", bytesFlushed);
+		event.putDouble("bytesBuffered", count + (pending != null ? pending.length - pendingOffset : 0));
+		event.putDouble("records", records);
+		if(message != null) event.putString("message", message);
+		return event;
+	}
+
+	@NonNull
+	synchronized WritableMap summary() {
+		WritableMap summary = new WritableNativeMap();
+		summary.putDouble("bytesWritten", bytesFlushed);
+		summary.putDouble("bytesDropped", bytesAccepted - bytesFlushed);
+		summary.putDouble("chunks", chunks);
+		summary.putDouble("records", records);
+		summary.putDouble("elapsedMs", (System.nanoTime() - startNanos) / 1_000_000);
+		summary.putBoolean("aborted", aborting);
+		return summary;
+	}
+}
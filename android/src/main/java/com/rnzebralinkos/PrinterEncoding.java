@@ -0,0 +1,163 @@
+package com.rnzebralinkos;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Per-printer text encoding state.
+ * Tracks the code page selected by ZPL ^CI commands and encodes outgoing commands into a reusable buffer,
+ * switching charsets at every ^CI found in the data, so text following e.g. ^CI31 is sent as CP1250.
+ * Replies are decoded with the code page which was active at the end of the last command.
+ */
+final class PrinterEncoding {
+
+	//existing behaviour before the code page is known
+	static final int CODE_PAGE_UNKNOWN = -1;
+	private static final int INITIAL_BUFFER_SIZE = 4096;
+
+	private int codePage = CODE_PAGE_UNKNOWN;
+	private Charset charset = StandardCharsets.UTF_8;
+	private CharsetEncoder encoder = newEncoder(charset);
+	private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+	private final ResponseBuffer response = new ResponseBuffer();
+
+	/**
+	 * ByteArrayOutputStream which lets the received bytes be decoded in place.
+	 */
+	static final class ResponseBuffer extends ByteArrayOutputStream {
+		@NonNull
+		String decode(@NonNull Charset charset) {
+			return new String(buf, 0, count, charset);
+		}
+	}
+
+	/**
+	 * Maps a ZPL ^CI value to a Java charset.
+	 * @return null for values without a matching charset (e.g. 7-bit national sets or double-byte Asian sets).
+	 */
+	@Nullable
+	static Charset charsetForCodePage(int codePage) {
+		String name;
+		switch(codePage) {
+			case 13: name = "IBM850"; break;
+			case 27: name = "windows-1252"; break;
+			case 28: return StandardCharsets.UTF_8;
+			case 29: return StandardCharsets.UTF_16BE;
+			case 30: return StandardCharsets.UTF_16LE;
+			case 31: name = "windows-1250"; break;
+			case 33: name = "windows-1251"; break;
+			case 34: name = "windows-1253"; break;
+			case 35: name = "windows-1254"; break;
+			case 36: name = "windows-1255"; break;
+			default: return null;
+		}
+		return Charset.isSupported(name) ? Charset.forName(name) : null;
+	}
+
+	private static CharsetEncoder newEncoder(Charset charset) {
+		return charset.newEncoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	}
+
+	synchronized int getCodePage() {
+		return codePage;
+	}
+
+	@NonNull
+	synchronized Charset getCharset() {
+		return charset;
+	}
+
+	/**
+	 * @return false if the code page has no supported charset, the current one is kept.
+	 */
+	synchronized boolean setCodePage(int codePage) {
+		Charset newCharset = charsetForCodePage(codePage);
+		if(newCharset == null) {
+			return false;
+		}
+		this.codePage = codePage;
+		if(!newCharset.equals(charset)) {
+			charset = newCharset;
+			encoder = newEncoder(newCharset);
+		}
+		return true;
+	}
+
+	/**
+	 * Encodes the command into the internal buffer. The result stays valid until the next encode() call,
+	 * callers must hold the lock on this object while using it.
+	 * @return number of encoded bytes in array()
+	 */
+	synchronized int encode(@NonNull String data) {
+		buffer.clear();
+		int segmentStart = 0;
+		int ci = data.indexOf("^CI");
+		while(ci != -1) {
+			int digitsEnd = ci + 3;
+			while(digitsEnd < data.length() && Character.isDigit(data.charAt(digitsEnd))) digitsEnd++;
+			//the ^CI command itself is still written in the previous code page
+			encodeSegment(data, segmentStart, digitsEnd);
+			segmentStart = digitsEnd;
+			if(digitsEnd > ci + 3) {
+				try {
+					this.setCodePage(Integer.parseInt(data.substring(ci + 3, digitsEnd)));
+				} catch(NumberFormatException ignored) {}
+			}
+			ci = data.indexOf("^CI", digitsEnd);
+		}
+		encodeSegment(data, segmentStart, data.length());
+		return buffer.position();
+	}
+
+	private void encodeSegment(String data, int start, int end) {
+		if(start >= end) return;
+		CharBuffer chars = CharBuffer.wrap(data, start, end);
+		encoder.reset();
+		while(encoder.encode(chars, buffer, true).isOverflow()) {
+			grow((int)(chars.remaining() * encoder.maxBytesPerChar()));
+		}
+		while(encoder.flush(buffer).isOverflow()) {
+			grow(16);
+		}
+	}
+
+	private void grow(int extra) {
+		int capacity = Math.max(buffer.capacity() * 2, buffer.position() + extra);
+		ByteBuffer bigger = ByteBuffer.allocate(capacity);
+		buffer.flip();
+		bigger.put(buffer);
+		buffer = bigger;
+	}
+
+	/**
+	 * Backing array of the last encode() call.
+	 */
+	@NonNull
+	byte[] array() {
+		return buffer.array();
+	}
+
+	/**
+	 * Reusable buffer for printer replies, reset before every use.
+	 */
+	@NonNull
+	synchronized ResponseBuffer responseBuffer() {
+		response.reset();
+		return response;
+	}
+
+	@NonNull
+	synchronized String decode(@NonNull byte[] data) {
+		return new String(data, charset);
+	}
+}
@@ -0,0 +1,158 @@
+package com.rnzebralinkos;
+
+import java.util.ArrayDeque;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeMap;
+import com.zebra.sdk.comm.ConnectionException;
+
+/**
+ * Priority lock for one printer channel. Work waiting for the channel is granted it by priority class,
+ * first come first served within a class. The holder keeps the channel until it releases it, a command
+ * in progress is never interrupted; bulk transfers hand the channel over between commands with yieldTo().
+ * Reentrant, so code holding the lane can call helpers which take it again.
+ */
+final class PrinterLane {
+
+	enum Priority {
+		CONTROL("control"),
+		STATUS("status"),
+		INTERACTIVE("interactive"),
+		BULK("bulk");
+
+		final String jsName;
+
+		Priority(String jsName) {
+			this.jsName = jsName;
+		}
+	}
+
+	//waiting for the lane is interrupted this often to check the operation
+	private static final long CHECK_INTERVAL_MS = 100;
+
+	@SuppressWarnings("unchecked")
+	private final ArrayDeque<Thread>[] waiting = new ArrayDeque[Priority.values().length];
+	@Nullable
+	private Thread owner;
+	private Priority ownerPriority;
+	private int holds = 0;
+	private final long[] grants = new long[Priority.values().length];
+	private final long[] totalWaitNanos = new long[Priority.values().length];
+	private final long[] maxWaitNanos = new long[Priority.values().length];
+
+	/**
+	 * Releases the lane when closed, for try-with-resources.
+	 */
+	final class Hold implements AutoCloseable {
+		@Override
+		public void close() {
+			release();
+		}
+	}
+
+	PrinterLane() {
+		for(int i = 0; i < waiting.length; i++) {
+			waiting[i] = new ArrayDeque<>();
+		}
+	}
+
+	/**
+	 * Waits until the lane is free and no work of a higher class, or earlier work of the same class, is waiting.
+	 * @param operation checked while waiting, null for calls which can't be cancelled
+	 */
+	@NonNull
+	Hold acquire(@NonNull Priority priority, @Nullable Operation operation) throws ConnectionException {
+		Thread thread = Thread.currentThread();
+		synchronized (this) {
+			if(owner == thread) {
+				holds++;
+				return new Hold();
+			}
+			long start = System.nanoTime();
+			ArrayDeque<Thread> queue = waiting[priority.ordinal()];
+			queue.addLast(thread);
+			try {
+				while(owner != null || !isNext(thread, priority)) {
+					if(operation != null) operation.checkpoint();
+					wait(CHECK_INTERVAL_MS);
+				}
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new ConnectionException(e);
+			} finally {
+				queue.remove(thread);
+				//an aborted waiter may have been the one blocking lower classes
+				notifyAll();
+			}
+			owner = thread;
+			ownerPriority = priority;
+			holds = 1;
+			long waited = System.nanoTime() - start;
+			grants[priority.ordinal()]++;
+			totalWaitNanos[priority.ordinal()] += waited;
+			maxWaitNanos[priority.ordinal()] = Math.max(maxWaitNanos[priority.ordinal()], waited);
+			return new Hold();
+		}
+	}
+
+	private boolean isNext(Thread thread, Priority priority) {
+		for(int i = 0; i < priority.ordinal(); i++) {
+			if(!waiting[i].isEmpty()) return false;
+		}
+		return waiting[priority.ordinal()].peekFirst() == thread;
+	}
+
+	synchronized void release() {
+		if(owner != Thread.currentThread()) return;
+		if(--holds == 0) {
+			owner = null;
+			notifyAll();
+		}
+	}
+
+	/**
+	 * @return true if the calling thread holds the lane.
+	 */
+	synchronized boolean isHeld() {
+		return owner == Thread.currentThread();
+	}
+
+	/**
+	 * Lets waiting work of a higher class run, then takes the lane back.
+	 * Only call between commands, and not while holding the lane more than once.
+	 */
+	void yieldTo(@Nullable Operation operation) throws ConnectionException {
+		Priority priority;
+		synchronized (this) {
+			if(owner != Thread.currentThread() || holds != 1) return;
+			priority = ownerPriority;
+			boolean contended = false;
+			for(int i = 0; i < priority.ordinal(); i++) {
+				contended |= !waiting[i].isEmpty();
+			}
+			if(!contended) return;
+			owner = null;
+			holds = 0;
+			notifyAll();
+		}
+		this.acquire(priority, operation);
+	}
+
+	@NonNull
+	synchronized WritableMap stats() {
+		WritableMap stats = new WritableNativeMap();
+		for(Priority priority : Priority.values()) {
+			int i = priority.ordinal();
+			WritableMap lane = new WritableNativeMap();
+			lane.putDouble("grants", grants[i]);
+			lane.putInt("waiting", waiting[i].size());
+			lane.putDouble("averageWaitMs", grants[i] > 0 ? totalWaitNanos[i] / 1_000_000.0 / grants[i] : 0);
+			lane.putDouble("maxWaitMs", maxWaitNanos[i] / 1_000_000.0);
+			stats.putMap(priority.jsName, lane);
+		}
+		return stats;
+	}
+}
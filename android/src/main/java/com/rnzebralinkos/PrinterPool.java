@@ -0,0 +1,191 @@
+package com.rnzebralinkos;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
+import com.facebook.react.bridge.WritableNativeMap;
+import com.zebra.sdk.printer.PrinterStatus;
+
+/**
+ * Several identical printers used as one logical printer.
+ * Keeps the last known status of every member and picks the ready printer with the shallowest queue,
+ * counting formats waiting in the printer, labels left in the batch and jobs this pool is still sending.
+ * Connecting and sending is done by the module, the pool only does the bookkeeping.
+ */
+final class PrinterPool {
+
+	private static final long RATE_WINDOW_MS = 60_000;
+	//unreachable printers are not queried again for this long, connect timeouts would stall every job
+	private static final long UNREACHABLE_BACKOFF_MS = 10_000;
+
+	private static final class Member {
+		final String handle;
+		boolean ready = false;
+		//formats in receive buffer + labels remaining in batch, from the last status
+		int printerDepth = 0;
+		long statusTime = 0;
+		int inFlight = 0;
+		long jobs = 0;
+		long failures = 0;
+		long bytes = 0;
+
+		Member(String handle) {
+			this.handle = handle;
+		}
+	}
+
+	private final String id;
+	private final Map<String, Member> members = new LinkedHashMap<>();
+	private final long created = System.currentTimeMillis();
+	//completion times of the jobs in the last RATE_WINDOW_MS
+	private final ArrayDeque<Long> recentJobs = new ArrayDeque<>();
+	private long jobsCompleted = 0;
+	private long jobsFailed = 0;
+	private long failovers = 0;
+	private long bytesSent = 0;
+	private long busyNanos = 0;
+
+	PrinterPool(@NonNull String id, @NonNull List<String> handles) {
+		this.id = id;
+		for(String handle : handles) {
+			members.put(handle, new Member(handle));
+		}
+	}
+
+	@NonNull
+	String getId() {
+		return id;
+	}
+
+	@NonNull
+	synchronized Collection<String> getHandles() {
+		return new ArrayList<>(members.keySet());
+	}
+
+	/**
+	 * @return true if the member's status is older than maxAgeMs and should be queried again.
+	 */
+	synchronized boolean isStatusStale(@NonNull String handle, long maxAgeMs) {
+		Member member = members.get(handle);
+		return member != null && System.currentTimeMillis() - member.statusTime > maxAgeMs;
+	}
+
+	/**
+	 * @param status null if the status could not be read, the printer is then treated as not ready.
+	 */
+	synchronized void updateStatus(@NonNull String handle, @Nullable PrinterStatus status) {
+		Member member = members.get(handle);
+		if(member == null) return;
+		member.statusTime = System.currentTimeMillis();
+		if(status == null) {
+			member.ready = false;
+			member.statusTime += UNREACHABLE_BACKOFF_MS;
+			return;
+		}
+		member.ready = status.isReadyToPrint && !status.isHeadOpen && !status.isPaperOut && !status.isPaused;
+		member.printerDepth = status.numberOfFormatsInReceiveBuffer + status.labelsRemainingInBatch;
+	}
+
+	/**
+	 * Picks the ready member with the shallowest queue and reserves a slot on it.
+	 * Must be paired with finish().
+	 * @param exclude members which already failed this job
+	 * @return null if no member is ready.
+	 */
+	@Nullable
+	synchronized String acquire(@NonNull Set<String> exclude) {
+		Member best = null;
+		for(Member member : members.values()) {
+			if(!member.ready || exclude.contains(member.handle)) continue;
+			if(best == null || depth(member) < depth(best)) {
+				best = member;
+			}
+		}
+		if(best == null) return null;
+		best.inFlight++;
+		return best.handle;
+	}
+
+	private static int depth(Member member) {
+		return member.printerDepth + member.inFlight;
+	}
+
+	/**
+	 * Releases the slot taken by acquire(). A failed member is marked not ready until its next status update.
+	 */
+	synchronized void finish(@NonNull String handle, boolean success, long bytes, long durationNanos) {
+		Member member = members.get(handle);
+		if(member == null) return;
+		member.inFlight--;
+		busyNanos += durationNanos;
+		if(success) {
+			member.jobs++;
+			member.bytes += bytes;
+			bytesSent += bytes;
+		} else {
+			member.failures++;
+			member.ready = false;
+			member.statusTime = 0;
+		}
+	}
+
+	synchronized void jobCompleted() {
+		jobsCompleted++;
+		long now = System.currentTimeMillis();
+		recentJobs.addLast(now);
+		pruneRecent(now);
+	}
+
+	synchronized void jobFailed() {
+		jobsFailed++;
+	}
+
+	synchronized void failover() {
+		failovers++;
+	}
+
+	private void pruneRecent(long now) {
+		while(!recentJobs.isEmpty() && now - recentJobs.peekFirst() > RATE_WINDOW_MS) {
+			recentJobs.removeFirst();
+		}
+	}
+
+	@NonNull
+	synchronized WritableMap stats() {
+		long now = System.currentTimeMillis();
+		pruneRecent(now);
+		WritableMap stats = new WritableNativeMap();
+		stats.putString("poolId", id);
+		stats.putDouble("uptimeMs", now - created);
+		stats.putDouble("jobsCompleted", jobsCompleted);
+		stats.putDouble("jobsFailed", jobsFailed);
+		stats.putDouble("failovers", failovers);
+		stats.putDouble("bytesSent", bytesSent);
+		stats.putInt("jobsLastMinute", recentJobs.size());
+		stats.putDouble("averageJobMs", jobsCompleted + jobsFailed > 0 ? busyNanos / 1_000_000.0 / (jobsCompleted + jobsFailed) : 0);
+		WritableArray printers = new WritableNativeArray();
+		for(Member member : members.values()) {
+			WritableMap printer = new WritableNativeMap();
+			printer.putString("handle", member.handle);
+			printer.putBoolean("ready", member.ready);
+			printer.putInt("queueDepth", depth(member));
+			printer.putDouble("jobs", member.jobs);
+			printer.putDouble("failures", member.failures);
+			printer.putDouble("bytesSent", member.bytes);
+			printers.pushMap(printer);
+		}
+		stats.putArray("printers", printers);
+		return stats;
+	}
+}
@@ -0,0 +1,55 @@
+package com.rnzebralinkos;
+
+import androidx.annotation.NonNull;
+
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableNativeArray;
+import com.zebra.sdk.printer.PrinterStatus;
+
+/**
+ * Compact encoding of PrinterStatus sent to JS as [flags, labelLengthInDots, numberOfFormatsInReceiveBuffer, labelsRemainingInBatch].
+ * The flags word holds the boolean fields in the low bits and the print mode ordinal in bits 16-23.
+ * Must be kept in sync with src/PrinterStatusDecoder.ts.
+ */
+final class PrinterStatusEncoder {
+
+	static final int FLAG_PARTIAL_FORMAT_IN_PROGRESS = 1;
+	static final int FLAG_HEAD_COLD = 1 << 1;
+	static final int FLAG_HEAD_OPEN = 1 << 2;
+	static final int FLAG_HEAD_TOO_HOT = 1 << 3;
+	static final int FLAG_PAPER_OUT = 1 << 4;
+	static final int FLAG_RIBBON_OUT = 1 << 5;
+	static final int FLAG_RECEIVE_BUFFER_FULL = 1 << 6;
+	static final int FLAG_PAUSED = 1 << 7;
+	static final int FLAG_READY_TO_PRINT = 1 << 8;
+	static final int PRINT_MODE_SHIFT = 16;
+	//ZplPrintMode.UNKNOWN
+	static final int PRINT_MODE_UNKNOWN = 11;
+
+	private PrinterStatusEncoder() {}
+
+	static int encodeFlags(@NonNull PrinterStatus status) {
+		int flags = 0;
+		if(status.isPartialFormatInProgress) flags |= FLAG_PARTIAL_FORMAT_IN_PROGRESS;
+		if(status.isHeadCold) flags |= FLAG_HEAD_COLD;
+		if(status.isHeadOpen) flags |= FLAG_HEAD_OPEN;
+		if(status.isHeadTooHot) flags |= FLAG_HEAD_TOO_HOT;
+		if(status.isPaperOut) flags |= FLAG_PAPER_OUT;
+		if(status.isRibbonOut) flags |= FLAG_RIBBON_OUT;
+		if(status.isReceiveBufferFull) flags |= FLAG_RECEIVE_BUFFER_FULL;
+		if(status.isPaused) flags |= FLAG_PAUSED;
+		if(status.isReadyToPrint) flags |= FLAG_READY_TO_PRINT;
+		int printMode = status.printMode != null ? status.printMode.ordinal() : PRINT_MODE_UNKNOWN;
+		return flags | (printMode << PRINT_MODE_SHIFT);
+	}
+
+	@NonNull
+	static WritableArray encode(@NonNull PrinterStatus status) {
+		WritableArray array = new WritableNativeArray();
+		array.pushInt(encodeFlags(status));
+		array.pushInt(status.labelLengthInDots);
+		array.pushInt(status.numberOfFormatsInReceiveBuffer);
+		array.pushInt(status.labelsRemainingInBatch);
+		return array;
+	}
+}
@@ -0,0 +1,460 @@
+package com.rnzebralinkos;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import androidx.annotation.NonNull;
+
+/**
+ * QR Code model 2 encoder for ^BQ, all 40 versions with a single numeric, alphanumeric or byte segment.
+ * The smallest version which fits the data is used.
+ */
+final class QrCode {
+
+	static final int ECC_L = 0;
+	static final int ECC_M = 1;
+	static final int ECC_Q = 2;
+	static final int ECC_H = 3;
+	//picks the mask with the lowest penalty
+	static final int MASK_AUTO = -1;
+
+	private static final int MODE_NUMERIC = 0x1;
+	private static final int MODE_ALPHANUMERIC = 0x2;
+	private static final int MODE_BYTE = 0x4;
+	private static final String ALPHANUMERIC = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ $%*+-./:";
+
+	//format information bits of the levels L, M, Q, H
+	private static final int[] FORMAT_BITS = { 1, 0, 3, 2 };
+	//per level and version (index 0 unused)
+	private static final int[][] ECC_CODEWORDS_PER_BLOCK = {
+		{ -1, 7, 10, 15, 20, 26, 18, 20, 24, 30, 18, 20, 24, 26, 30, 22, 24, 28, 30, 28, 28, 28, 28, 30, 30, 26, 28, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30 },
+		{ -1, 10, 16, 26, 18, 24, 16, 18, 22, 22, 26, 30, 22, 22, 24, 24, 28, 28, 26, 26, 26, 26, 28, 28, 28, 28, 28, 28, 28, 28, 28, 28, 28, 28, 28, 28, 28, 28, 28, 28, 28 },
+		{ -1, 13, 22, 18, 26, 18, 24, 18, 22, 20, 24, 28, 26, 24, 20, 30, 24, 28, 28, 26, 30, 28, 30, 30, 30, 30, 28, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30 },
+		{ -1, 17, 28, 22, 16, 22, 28, 26, 26, 24, 28, 24, 28, 22, 24, 24, 30, 28, 28, 26, 28, 30, 24, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30 },
+	};
+	private static final int[][] ERROR_CORRECTION_BLOCKS = {
+		{ -1, 1, 1, 1, 1, 1, 2, 2, 2, 2, 4, 4, 4, 4, 4, 6, 6, 6, 6, 7, 8, 8, 9, 9, 10, 12, 12, 12, 13, 14, 15, 16, 17, 18, 19, 19, 20, 21, 22, 24, 25 },
+		{ -1, 1, 1, 1, 2, 2, 4, 4, 4, 5, 5, 5, 8, 9, 9, 10, 10, 11, 13, 14, 16, 17, 17, 18, 20, 21, 23, 25, 26, 28, 29, 31, 33, 35, 37, 38, 40, 43, 45, 47, 49 },
+		{ -1, 1, 1, 2, 2, 4, 4, 6, 6, 8, 8, 8, 10, 12, 16, 12, 17, 16, 18, 21, 20, 23, 23, 25, 27, 29, 34, 34, 35, 38, 40, 43, 45, 48, 51, 53, 56, 59, 62, 65, 68 },
+		{ -1, 1, 1, 2, 4, 4, 4, 5, 6, 8, 8, 11, 11, 16, 16, 18, 16, 19, 21, 25, 25, 25, 34, 30, 32, 35, 37, 40, 42, 45, 48, 51, 54, 57, 60, 63, 66, 70, 74, 77, 81 },
+	};
+
+	final int version;
+	final int size;
+	//[y][x], true is a dark module
+	private final boolean[][] modules;
+	private final boolean[][] function;
+
+	private QrCode(int version) {
+		this.version = version;
+		this.size = version * 4 + 17;
+		this.modules = new boolean[size][size];
+		this.function = new boolean[size][size];
+	}
+
+	boolean get(int x, int y) {
+		return modules[y][x];
+	}
+
+	/**
+	 * @param ecc one of the ECC_ levels
+	 * @param mask 0 to 7, or MASK_AUTO
+	 * @throws IllegalArgumentException if the data does not fit version 40
+	 */
+	@NonNull
+	static QrCode encode(@NonNull String text, int ecc, int mask) {
+		int mode = modeOf(text);
+		byte[] bytes = mode == MODE_BYTE ? toBytes(text) : null;
+		int length = bytes != null ? bytes.length : text.length();
+		int version;
+		int dataBits = 0;
+		for(version = 1; version <= 40; version++) {
+			dataBits = 4 + countBits(mode, version) + payloadBits(mode, length);
+			if(dataBits <= dataCodewords(version, ecc) * 8) break;
+		}
+		if(version > 40) throw new IllegalArgumentException("Data too long for a QR code");
+
+		BitBuffer buffer = new BitBuffer(dataCodewords(version, ecc));
+		buffer.append(mode, 4);
+		buffer.append(length, countBits(mode, version));
+		if(mode == MODE_NUMERIC) {
+			for(int i = 0; i < length; i += 3) {
+				int n = Math.min(3, length - i);
+				buffer.append(Integer.parseInt(text.substring(i, i + n)), n * 3 + 1);
+			}
+		} else if(mode == MODE_ALPHANUMERIC) {
+			for(int i = 0; i < length; i += 2) {
+				int value = ALPHANUMERIC.indexOf(text.charAt(i));
+				if(i + 1 < length) {
+					buffer.append(value * 45 + ALPHANUMERIC.indexOf(text.charAt(i + 1)), 11);
+				} else {
+					buffer.append(value, 6);
+				}
+			}
+		} else {
+			for(byte b : bytes) buffer.append(b & 0xFF, 8);
+		}
+		int capacity = dataCodewords(version, ecc) * 8;
+		buffer.append(0, Math.min(4, capacity - buffer.length));
+		buffer.append(0, (8 - buffer.length % 8) % 8);
+		for(int pad = 0xEC; buffer.length < capacity; pad ^= 0xEC ^ 0x11) {
+			buffer.append(pad, 8);
+		}
+
+		QrCode qr = new QrCode(version);
+		qr.drawFunctionPatterns();
+		qr.drawCodewords(qr.addEccAndInterleave(buffer.bytes, ecc));
+		if(mask == MASK_AUTO) {
+			int minPenalty = Integer.MAX_VALUE;
+			for(int i = 0; i < 8; i++) {
+				qr.applyMask(i);
+				qr.drawFormatBits(ecc, i);
+				int penalty = qr.penalty();
+				if(penalty < minPenalty) {
+					mask = i;
+					minPenalty = penalty;
+				}
+				//masks are undone by applying them again
+				qr.applyMask(i);
+			}
+		}
+		qr.applyMask(mask);
+		qr.drawFormatBits(ecc, mask);
+		return qr;
+	}
+
+	private static int modeOf(String text) {
+		boolean numeric = true;
+		boolean alphanumeric = true;
+		for(int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			numeric &= c >= '0' && c <= '9';
+			alphanumeric &= ALPHANUMERIC.indexOf(c) != -1;
+		}
+		return numeric ? MODE_NUMERIC : alphanumeric ? MODE_ALPHANUMERIC : MODE_BYTE;
+	}
+
+	/**
+	 * Latin-1 like the printer's default code page, UTF-8 if the text needs it.
+	 */
+	private static byte[] toBytes(String text) {
+		for(int i = 0; i < text.length(); i++) {
+			if(text.charAt(i) > 0xFF) return text.getBytes(StandardCharsets.UTF_8);
+		}
+		return text.getBytes(StandardCharsets.ISO_8859_1);
+	}
+
+	private static int countBits(int mode, int version) {
+		int range = version <= 9 ? 0 : version <= 26 ? 1 : 2;
+		switch(mode) {
+			case MODE_NUMERIC: return new int[] { 10, 12, 14 }[range];
+			case MODE_ALPHANUMERIC: return new int[] { 9, 11, 13 }[range];
+			default: return range == 0 ? 8 : 16;
+		}
+	}
+
+	private static int payloadBits(int mode, int length) {
+		switch(mode) {
+			case MODE_NUMERIC: return length / 3 * 10 + new int[] { 0, 4, 7 }[length % 3];
+			case MODE_ALPHANUMERIC: return length / 2 * 11 + length % 2 * 6;
+			default: return length * 8;
+		}
+	}
+
+	/**
+	 * @return modules available for data and error correction codewords, the rest are function patterns.
+	 */
+	private static int rawDataModules(int version) {
+		int result = (16 * version + 128) * version + 64;
+		if(version >= 2) {
+			int alignments = version / 7 + 2;
+			result -= (25 * alignments - 10) * alignments - 55;
+			if(version >= 7) result -= 36;
+		}
+		return result;
+	}
+
+	static int dataCodewords(int version, int ecc) {
+		return rawDataModules(version) / 8 - ECC_CODEWORDS_PER_BLOCK[ecc][version] * ERROR_CORRECTION_BLOCKS[ecc][version];
+	}
+
+	private static final class BitBuffer {
+		final byte[] bytes;
+		int length = 0;
+
+		BitBuffer(int capacity) {
+			bytes = new byte[capacity];
+		}
+
+		void append(int value, int bits) {
+			for(int i = bits - 1; i >= 0; i--, length++) {
+				if((value >>> i & 1) != 0) bytes[length >>> 3] |= 0x80 >>> (length & 7);
+			}
+		}
+	}
+
+	private void setFunction(int x, int y, boolean dark) {
+		modules[y][x] = dark;
+		function[y][x] = true;
+	}
+
+	private void drawFunctionPatterns() {
+		for(int i = 0; i < size; i++) {
+			setFunction(6, i, i % 2 == 0);
+			setFunction(i, 6, i % 2 == 0);
+		}
+		drawFinder(3, 3);
+		drawFinder(size - 4, 3);
+		drawFinder(3, size - 4);
+		int[] positions = alignmentPositions();
+		int last = positions.length - 1;
+		for(int i = 0; i <= last; i++) {
+			for(int j = 0; j <= last; j++) {
+				//the corners with finder patterns
+				if((i == 0 && j == 0) || (i == 0 && j == last) || (i == last && j == 0)) continue;
+				drawAlignment(positions[i], positions[j]);
+			}
+		}
+		//reserves the format areas, drawn for real once the mask is known
+		drawFormatBits(ECC_L, 0);
+		drawVersion();
+	}
+
+	private void drawFinder(int x, int y) {
+		for(int dy = -4; dy <= 4; dy++) {
+			for(int dx = -4; dx <= 4; dx++) {
+				int distance = Math.max(Math.abs(dx), Math.abs(dy));
+				int xx = x + dx;
+				int yy = y + dy;
+				if(xx >= 0 && xx < size && yy >= 0 && yy < size) {
+					setFunction(xx, yy, distance != 2 && distance != 4);
+				}
+			}
+		}
+	}
+
+	private void drawAlignment(int x, int y) {
+		for(int dy = -2; dy <= 2; dy++) {
+			for(int dx = -2; dx <= 2; dx++) {
+				setFunction(x + dx, y + dy, Math.max(Math.abs(dx), Math.abs(dy)) != 1);
+			}
+		}
+	}
+
+	private int[] alignmentPositions() {
+		if(version == 1) return new int[0];
+		int count = version / 7 + 2;
+		int step = (version * 8 + count * 3 + 5) / (count * 4 - 4) * 2;
+		int[] result = new int[count];
+		result[0] = 6;
+		for(int i = count - 1, position = size - 7; i >= 1; i--, position -= step) {
+			result[i] = position;
+		}
+		return result;
+	}
+
+	private void drawFormatBits(int ecc, int mask) {
+		int data = FORMAT_BITS[ecc] << 3 | mask;
+		int remainder = data;
+		for(int i = 0; i < 10; i++) {
+			remainder = (remainder << 1) ^ ((remainder >>> 9) * 0x537);
+		}
+		int bits = (data << 10 | remainder) ^ 0x5412;
+
+		for(int i = 0; i <= 5; i++) setFunction(8, i, bit(bits, i));
+		setFunction(8, 7, bit(bits, 6));
+		setFunction(8, 8, bit(bits, 7));
+		setFunction(7, 8, bit(bits, 8));
+		for(int i = 9; i < 15; i++) setFunction(14 - i, 8, bit(bits, i));
+
+		for(int i = 0; i < 8; i++) setFunction(size - 1 - i, 8, bit(bits, i));
+		for(int i = 8; i < 15; i++) setFunction(8, size - 15 + i, bit(bits, i));
+		//always dark
+		setFunction(8, size - 8, true);
+	}
+
+	private void drawVersion() {
+		if(version < 7) return;
+		int remainder = version;
+		for(int i = 0; i < 12; i++) {
+			remainder = (remainder << 1) ^ ((remainder >>> 11) * 0x1F25);
+		}
+		int bits = version << 12 | remainder;
+		for(int i = 0; i < 18; i++) {
+			boolean dark = bit(bits, i);
+			int a = size - 11 + i % 3;
+			int b = i / 3;
+			setFunction(a, b, dark);
+			setFunction(b, a, dark);
+		}
+	}
+
+	private byte[] addEccAndInterleave(byte[] data, int ecc) {
+		int blocks = ERROR_CORRECTION_BLOCKS[ecc][version];
+		int eccLength = ECC_CODEWORDS_PER_BLOCK[ecc][version];
+		int rawCodewords = rawDataModules(version) / 8;
+		int shortBlocks = blocks - rawCodewords % blocks;
+		int shortBlockLength = rawCodewords / blocks;
+
+		byte[][] blockData = new byte[blocks][];
+		byte[] divisor = reedSolomonDivisor(eccLength);
+		for(int i = 0, k = 0; i < blocks; i++) {
+			int dataLength = shortBlockLength - eccLength + (i < shortBlocks ? 0 : 1);
+			byte[] block = new byte[shortBlockLength + 1];
+			System.arraycopy(data, k, block, 0, dataLength);
+			byte[] remainder = reedSolomonRemainder(data, k, dataLength, divisor);
+			//short blocks leave a gap so all blocks share the same layout
+			System.arraycopy(remainder, 0, block, shortBlockLength + 1 - eccLength, eccLength);
+			blockData[i] = block;
+			k += dataLength;
+		}
+
+		byte[] result = new byte[rawCodewords];
+		int n = 0;
+		for(int i = 0; i < shortBlockLength + 1; i++) {
+			for(int j = 0; j < blocks; j++) {
+				if(i != shortBlockLength - eccLength || j >= shortBlocks) {
+					result[n++] = blockData[j][i];
+				}
+			}
+		}
+		return result;
+	}
+
+	private static byte[] reedSolomonDivisor(int degree) {
+		byte[] result = new byte[degree];
+		result[degree - 1] = 1;
+		int root = 1;
+		for(int i = 0; i < degree; i++) {
+			for(int j = 0; j < degree; j++) {
+				result[j] = (byte)multiply(result[j] & 0xFF, root);
+				if(j + 1 < degree) result[j] ^= result[j + 1];
+			}
+			root = multiply(root, 0x02);
+		}
+		return result;
+	}
+
+	private static byte[] reedSolomonRemainder(byte[] data, int offset, int length, byte[] divisor) {
+		byte[] result = new byte[divisor.length];
+		for(int i = offset; i < offset + length; i++) {
+			int factor = (data[i] ^ result[0]) & 0xFF;
+			System.arraycopy(result, 1, result, 0, result.length - 1);
+			result[result.length - 1] = 0;
+			for(int j = 0; j < result.length; j++) {
+				result[j] ^= multiply(divisor[j] & 0xFF, factor);
+			}
+		}
+		return result;
+	}
+
+	//GF(2^8) with the polynomial 0x11D
+	private static int multiply(int x, int y) {
+		int z = 0;
+		for(int i = 7; i >= 0; i--) {
+			z = (z << 1) ^ ((z >>> 7) * 0x11D);
+			z ^= ((y >>> i) & 1) * x;
+		}
+		return z;
+	}
+
+	private void drawCodewords(byte[] data) {
+		int i = 0;
+		for(int right = size - 1; right >= 1; right -= 2) {
+			if(right == 6) right = 5;
+			for(int vertical = 0; vertical < size; vertical++) {
+				for(int j = 0; j < 2; j++) {
+					int x = right - j;
+					boolean upward = ((right + 1) & 2) == 0;
+					int y = upward ? size - 1 - vertical : vertical;
+					if(!function[y][x] && i < data.length * 8) {
+						modules[y][x] = bit(data[i >>> 3], 7 - (i & 7));
+						i++;
+					}
+				}
+			}
+		}
+	}
+
+	private void applyMask(int mask) {
+		for(int y = 0; y < size; y++) {
+			for(int x = 0; x < size; x++) {
+				boolean invert;
+				switch(mask) {
+					case 0: invert = (x + y) % 2 == 0; break;
+					case 1: invert = y % 2 == 0; break;
+					case 2: invert = x % 3 == 0; break;
+					case 3: invert = (x + y) % 3 == 0; break;
+					case 4: invert = (x / 3 + y / 2) % 2 == 0; break;
+					case 5: invert = x * y % 2 + x * y % 3 == 0; break;
+					case 6: invert = (x * y % 2 + x * y % 3) % 2 == 0; break;
+					default: invert = ((x + y) % 2 + x * y % 3) % 2 == 0; break;
+				}
+				if(invert && !function[y][x]) modules[y][x] = !modules[y][x];
+			}
+		}
+	}
+
+	private int penalty() {
+		int result = 0;
+		int[] history = new int[7];
+		for(int pass = 0; pass < 2; pass++) {
+			for(int a = 0; a < size; a++) {
+				boolean runColor = false;
+				int run = 0;
+				Arrays.fill(history, 0);
+				for(int b = 0; b < size; b++) {
+					boolean dark = pass == 0 ? modules[a][b] : modules[b][a];
+					if(dark == runColor) {
+						run++;
+						if(run == 5) result += 3;
+						else if(run > 5) result++;
+					} else {
+						addHistory(run, history);
+						if(!runColor) result += finderPatterns(history) * 40;
+						runColor = dark;
+						run = 1;
+					}
+				}
+				if(runColor) {
+					addHistory(run, history);
+					run = 0;
+				}
+				addHistory(run + size, history);
+				result += finderPatterns(history) * 40;
+			}
+		}
+		int dark = 0;
+		for(int y = 0; y < size; y++) {
+			for(int x = 0; x < size; x++) {
+				if(modules[y][x]) dark++;
+				if(x < size - 1 && y < size - 1) {
+					boolean color = modules[y][x];
+					if(color == modules[y][x + 1] && color == modules[y + 1][x] && color == modules[y + 1][x + 1]) result += 3;
+				}
+			}
+		}
+		int total = size * size;
+		int k = (Math.abs(dark * 20 - total * 10) + total - 1) / total - 1;
+		result += k * 10;
+		return result;
+	}
+
+	private void addHistory(int run, int[] history) {
+		//the light border before the first run
+		if(history[0] == 0) run += size;
+		System.arraycopy(history, 0, history, 1, history.length - 1);
+		history[0] = run;
+	}
+
+	private static int finderPatterns(int[] history) {
+		int n = history[1];
+		boolean core = n > 0 && history[2] == n && history[3] == n * 3 && history[4] == n && history[5] == n;
+		return (core && history[0] >= n * 4 && history[6] >= n ? 1 : 0)
+			+ (core && history[6] >= n * 4 && history[0] >= n ? 1 : 0);
+	}
+
+	private static boolean bit(int value, int i) {
+		return (value >>> i & 1) != 0;
+	}
+}
@@ -0,0 +1,305 @@
+package com.rnzebralinkos;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.zebra.sdk.comm.Connection;
+import com.zebra.sdk.comm.ConnectionException;
+import com.zebra.sdk.comm.ConnectionReestablisher;
+import com.zebra.sdk.comm.ResponseValidator;
+import com.zebra.sdk.printer.PrinterLanguage;
+
+/**
+ * Plays a captured printer back. Writes consume the captured writes and take as long as they did,
+ * captured replies become readable as long after the preceding write as they did in the capture.
+ * All delays are multiplied by the time scale: 1 replays the original timing, 0 replays without delays.
+ * Written data is not required to match the capture, differing bytes are only counted.
+ */
+final class ReplayConnection implements Connection {
+
+	private final String name;
+	private final List<IoCapture.Event> events;
+	private final double timeScale;
+	@Nullable
+	private final PrinterLanguage language;
+	private int next = 0;
+	//bytes of the current write event already consumed
+	private int writeOffset = 0;
+	//replies which became readable but were not read yet
+	private final ByteArrayOutputStream unread = new ByteArrayOutputStream();
+	private final StreamWriter streamWriter = new StreamWriter(OperationConnection.CHUNK_SIZE);
+	//replay time (System.nanoTime) which corresponds to captureAnchor (us)
+	private long replayAnchor = 0;
+	private long captureAnchor = 0;
+	private boolean open = false;
+	private long mismatchedBytes = 0;
+	private long extraBytes = 0;
+	private int maxTimeoutForRead = 5000;
+	private int timeToWaitForMoreData = 500;
+
+	ReplayConnection(@NonNull File file, double timeScale) throws ConnectionException {
+		IoCapture.Capture capture;
+		try {
+			capture = IoCapture.read(file);
+		} catch(IOException e) {
+			throw new ConnectionException("Can't read capture " + file + ": " + e.getMessage());
+		}
+		this.name = "REPLAY:" + capture.handle;
+		this.events = capture.events;
+		this.timeScale = Math.max(0, timeScale);
+		this.language = findLanguage(capture.events);
+	}
+
+	/**
+	 * The language is only known up front when the capture skipped the language probing,
+	 * otherwise the probing is replayed as well.
+	 */
+	@Nullable
+	private static PrinterLanguage findLanguage(List<IoCapture.Event> events) {
+		for(IoCapture.Event event : events) {
+			if(event.type == IoCapture.TYPE_LANGUAGE) {
+				try {
+					return PrinterLanguage.valueOf(new String(event.data, StandardCharsets.US_ASCII));
+				} catch(IllegalArgumentException e) {
+					return null;
+				}
+			}
+			if(event.type == IoCapture.TYPE_WRITE || event.type == IoCapture.TYPE_READ) return null;
+		}
+		return null;
+	}
+
+	@Nullable
+	PrinterLanguage getLanguage() {
+		return language;
+	}
+
+	synchronized long getMismatchedBytes() {
+		return mismatchedBytes;
+	}
+
+	/**
+	 * @return bytes written after the capture ran out.
+	 */
+	synchronized long getExtraBytes() {
+		return extraBytes;
+	}
+
+	private void sleepMicros(double micros) throws ConnectionException {
+		sleepNanos((long)(micros * timeScale * 1000));
+	}
+
+	private static void sleepNanos(long nanos) throws ConnectionException {
+		if(nanos <= 0) return;
+		try {
+			Thread.sleep(nanos / 1_000_000, (int)(nanos % 1_000_000));
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ConnectionException(e);
+		}
+	}
+
+	/**
+	 * @return replay time at which the captured event happened, relative to the last write.
+	 */
+	private long replayTime(long captureMicros) {
+		return replayAnchor + (long)((captureMicros - captureAnchor) * timeScale * 1000);
+	}
+
+	private void anchor(long captureMicros) {
+		replayAnchor = System.nanoTime();
+		captureAnchor = captureMicros;
+	}
+
+	/**
+	 * Moves replies which are due by now into the unread buffer and skips events without data.
+	 * @param all take the replies before the next write regardless of their time
+	 */
+	private void advance(boolean all) {
+		while(next < events.size()) {
+			IoCapture.Event event = events.get(next);
+			if(event.type == IoCapture.TYPE_WRITE) return;
+			if(event.type == IoCapture.TYPE_READ) {
+				if(!all && System.nanoTime() < replayTime(event.end())) return;
+				unread.write(event.data, 0, event.data.length);
+			}
+			next++;
+		}
+	}
+
+	@Override
+	public synchronized void open() {
+		open = true;
+		writeOffset = 0;
+		anchor(0);
+	}
+
+	@Override
+	public synchronized void close() {
+		open = false;
+		if(ZebraLog.isEnabled(ZebraLog.Category.CONNECTION, ZebraLog.DEBUG)) {
+			ZebraLog.d(ZebraLog.Category.CONNECTION, "Replay closed, {} written bytes differed from the capture, {} were extra", mismatchedBytes, extraBytes);
+		}
+	}
+
+	@Override
+	public void write(byte[] data) throws ConnectionException {
+		write(data, 0, data.length);
+	}
+
+	@Override
+	public synchronized void write(byte[] data, int offset, int length) throws ConnectionException {
+		if(!open) throw new ConnectionException("The connection is not open");
+		while(length > 0) {
+			advance(true);
+			if(next >= events.size()) {
+				extraBytes += length;
+				return;
+			}
+			IoCapture.Event event = events.get(next);
+			int n = Math.min(length, event.data.length - writeOffset);
+			for(int i = 0; i < n; i++) {
+				if(data[offset + i] != event.data[writeOffset + i]) mismatchedBytes++;
+			}
+			//a share of the captured write time, the write may be split differently now
+			sleepMicros(event.data.length > 0 ? (double)event.duration * n / event.data.length : event.duration);
+			writeOffset += n;
+			offset += n;
+			length -= n;
+			if(writeOffset >= event.data.length) {
+				anchor(event.end());
+				writeOffset = 0;
+				next++;
+			}
+		}
+	}
+
+	@Override
+	public void write(InputStream stream) throws ConnectionException {
+		streamWriter.write(this, stream);
+	}
+
+	@Override
+	public synchronized byte[] read() {
+		advance(false);
+		byte[] data = unread.toByteArray();
+		unread.reset();
+		return data;
+	}
+
+	@Override
+	public int readChar() throws ConnectionException {
+		waitForData(maxTimeoutForRead);
+		synchronized (this) {
+			advance(false);
+			if(unread.size() == 0) return -1;
+			byte[] data = unread.toByteArray();
+			unread.reset();
+			unread.write(data, 1, data.length - 1);
+			return data[0] & 0xFF;
+		}
+	}
+
+	@Override
+	public void read(OutputStream stream) throws ConnectionException {
+		try {
+			stream.write(read());
+		} catch(IOException e) {
+			throw new ConnectionException(e);
+		}
+	}
+
+	@Override
+	public synchronized boolean isConnected() {
+		return open;
+	}
+
+	@Override
+	public synchronized int bytesAvailable() {
+		advance(false);
+		return unread.size();
+	}
+
+	@Override
+	public void waitForData(int maxTimeout) throws ConnectionException {
+		long due;
+		synchronized (this) {
+			advance(false);
+			if(unread.size() > 0) return;
+			IoCapture.Event reply = next < events.size() && events.get(next).type == IoCapture.TYPE_READ ? events.get(next) : null;
+			due = reply != null ? replayTime(reply.end()) : Long.MAX_VALUE;
+		}
+		//without timing a missing reply does not wait for the timeout either
+		if(due == Long.MAX_VALUE && timeScale == 0) return;
+		sleepNanos(Math.min(due - System.nanoTime(), (long)maxTimeout * 1_000_000));
+	}
+
+	@NonNull
+	@Override
+	public String toString() {
+		return name;
+	}
+
+	@Override
+	public String getSimpleConnectionName() {
+		return name;
+	}
+
+	@Override
+	public int getMaxTimeoutForRead() {
+		return maxTimeoutForRead;
+	}
+
+	@Override
+	public int getTimeToWaitForMoreData() {
+		return timeToWaitForMoreData;
+	}
+
+	@Override
+	public void setMaxTimeoutForRead(int maxTimeoutForRead) {
+		this.maxTimeoutForRead = maxTimeoutForRead;
+	}
+
+	@Override
+	public void setTimeToWaitForMoreData(int timeToWaitForMoreData) {
+		this.timeToWaitForMoreData = timeToWaitForMoreData;
+	}
+
+	@Override
+	public byte[] sendAndWaitForResponse(byte[] data, int initialResponseTimeout, int responseCompletionTimeout, String terminator) throws ConnectionException {
+		ByteArrayOutputStream response = new ByteArrayOutputStream();
+		IoCapture.exchange(this, response, new ByteArrayInputStream(data), initialResponseTimeout, responseCompletionTimeout, terminator, null);
+		return response.toByteArray();
+	}
+
+	@Override
+	public void sendAndWaitForResponse(OutputStream destination, InputStream source, int initialResponseTimeout, int responseCompletionTimeout, String terminator) throws ConnectionException {
+		IoCapture.exchange(this, destination, source, initialResponseTimeout, responseCompletionTimeout, terminator, null);
+	}
+
+	@Override
+	public byte[] sendAndWaitForValidResponse(byte[] data, int initialResponseTimeout, int responseCompletionTimeout, ResponseValidator validator) throws ConnectionException {
+		ByteArrayOutputStream response = new ByteArrayOutputStream();
+		IoCapture.exchange(this, response, new ByteArrayInputStream(data), initialResponseTimeout, responseCompletionTimeout, null, validator);
+		return response.toByteArray();
+	}
+
+	@Override
+	public void sendAndWaitForValidResponse(OutputStream destination, InputStream source, int initialResponseTimeout, int responseCompletionTimeout, ResponseValidator validator) throws ConnectionException {
+		IoCapture.exchange(this, destination, source, initialResponseTimeout, responseCompletionTimeout, null, validator);
+	}
+
+	@Override
+	public ConnectionReestablisher getConnectionReestablisher(long thresholdTime) throws ConnectionException {
+		throw new ConnectionException("Replayed connections can't be reestablished");
+	}
+}
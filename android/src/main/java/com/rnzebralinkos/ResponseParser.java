@@ -0,0 +1,264 @@
+package com.rnzebralinkos;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.zebra.sdk.comm.Connection;
+import com.zebra.sdk.comm.ConnectionException;
+
+/**
+ * Incremental parser for printer replies.
+ * Bytes are fed as they arrive, complete lines are turned into key/value records,
+ * and reading stops as soon as the expected terminator has been seen.
+ */
+abstract class ResponseParser {
+
+	static final String TYPE_SETTINGS = "settings";
+	static final String TYPE_HOST_CONFIG = "hostConfig";
+	static final String TYPE_DIRECTORY = "directory";
+	static final String TYPE_HOST_STATUS = "hostStatus";
+	static final String TYPE_LINES = "lines";
+
+	private static final byte STX = 0x02;
+	private static final byte ETX = 0x03;
+
+	interface RecordSink {
+		void record(@NonNull String key, @NonNull String value, @Nullable String extra);
+	}
+
+	private final Charset charset;
+	private final RecordSink sink;
+	private final LineBuffer line = new LineBuffer();
+	//number of ETX characters which end the reply, 0 if the reply is not framed
+	private final int expectedEtx;
+	@Nullable
+	private final byte[] terminator;
+	private int etxCount = 0;
+	private int terminatorMatched = 0;
+	private boolean complete = false;
+
+	private static final class LineBuffer extends ByteArrayOutputStream {
+		String take(Charset charset) {
+			String s = new String(buf, 0, count, charset);
+			reset();
+			return s;
+		}
+	}
+
+	ResponseParser(@NonNull Charset charset, @NonNull RecordSink sink, int expectedEtx, @Nullable String terminator) {
+		this.charset = charset;
+		this.sink = sink;
+		this.expectedEtx = expectedEtx;
+		this.terminator = terminator != null && !terminator.isEmpty() ? terminator.getBytes(charset) : null;
+	}
+
+	/**
+	 * @param type one of the TYPE_ constants
+	 * @param terminator custom terminator, overrides the default framing of the reply type
+	 * @return null for an unknown type
+	 */
+	@Nullable
+	static ResponseParser create(@NonNull String type, @NonNull Charset charset, @NonNull RecordSink sink, @Nullable String terminator) {
+		switch(type) {
+			case TYPE_SETTINGS: return new Settings(charset, sink, terminator);
+			case TYPE_HOST_CONFIG: return new HostConfig(charset, sink, terminator);
+			case TYPE_DIRECTORY: return new Directory(charset, sink, terminator);
+			case TYPE_HOST_STATUS: return new HostStatus(charset, sink, terminator);
+			case TYPE_LINES: return new Lines(charset, sink, terminator);
+			default: return null;
+		}
+	}
+
+	boolean isComplete() {
+		return complete;
+	}
+
+	void feed(@NonNull byte[] data, int length) {
+		for(int i = 0; i < length && !complete; i++) {
+			byte b = data[i];
+			if(terminator != null) {
+				terminatorMatched = b == terminator[terminatorMatched] ? terminatorMatched + 1 : (b == terminator[0] ? 1 : 0);
+				if(terminatorMatched == terminator.length) {
+					complete = true;
+				}
+			}
+			if(b == '\n' || b == '\r' || b == STX || b == ETX) {
+				endLine();
+				if(b == ETX) {
+					etxCount++;
+					if(terminator == null && expectedEtx > 0 && etxCount >= expectedEtx) {
+						complete = true;
+					}
+				}
+			} else {
+				line.write(b);
+			}
+		}
+	}
+
+	/**
+	 * Emits the last unterminated line, called when reading has finished.
+	 */
+	void finish() {
+		endLine();
+	}
+
+	private void endLine() {
+		if(line.size() == 0) return;
+		String text = line.take(charset);
+		if(!text.trim().isEmpty()) {
+			parseLine(text);
+		}
+	}
+
+	protected void emit(@NonNull String key, @NonNull String value, @Nullable String extra) {
+		sink.record(key, value, extra);
+	}
+
+	protected abstract void parseLine(@NonNull String line);
+
+	/**
+	 * Reads the reply to an already sent command into the parser.
+	 * Stops when the parser has seen the terminator, when no data arrives within initialTimeout,
+	 * or when the printer stops sending for completionTimeout.
+	 * @return number of bytes read
+	 */
+	long readFrom(@NonNull Connection conn, int initialTimeout, int completionTimeout, @NonNull Operation operation) throws ConnectionException {
+		long total = 0;
+		conn.waitForData(initialTimeout);
+		while(!complete && conn.bytesAvailable() > 0) {
+			byte[] chunk = conn.read();
+			if(chunk == null) break;
+			feed(chunk, chunk.length);
+			total += chunk.length;
+			if(complete) break;
+			operation.checkpoint();
+			conn.waitForData(completionTimeout);
+		}
+		finish();
+		return total;
+	}
+
+	/**
+	 * SGD listing, e.g. allcv: name : value , Choices: choices
+	 */
+	static final class Settings extends ResponseParser {
+		Settings(Charset charset, RecordSink sink, @Nullable String terminator) {
+			super(charset, sink, 0, terminator);
+		}
+
+		@Override
+		protected void parseLine(@NonNull String line) {
+			int separator = line.indexOf(" : ");
+			if(separator == -1) return;
+			String key = line.substring(0, separator).trim();
+			String value = line.substring(separator + 3);
+			String choices = null;
+			int choicesStart = value.indexOf(" , Choices:");
+			if(choicesStart != -1) {
+				choices = value.substring(choicesStart + 11).trim();
+				value = value.substring(0, choicesStart);
+			}
+			emit(key, unquote(value.trim()), choices);
+		}
+
+		private static String unquote(String value) {
+			if(value.length() >= 2 && value.charAt(0) == '"' && value.charAt(value.length() - 1) == '"') {
+				return value.substring(1, value.length() - 1);
+			}
+			return value;
+		}
+	}
+
+	/**
+	 * ^HH host configuration: value.......NAME
+	 */
+	static final class HostConfig extends ResponseParser {
+		HostConfig(Charset charset, RecordSink sink, @Nullable String terminator) {
+			super(charset, sink, 1, terminator);
+		}
+
+		@Override
+		protected void parseLine(@NonNull String line) {
+			int dots = line.indexOf("..");
+			if(dots == -1) return;
+			int keyStart = dots;
+			while(keyStart < line.length() && line.charAt(keyStart) == '.') keyStart++;
+			emit(line.substring(keyStart).trim(), line.substring(0, dots).trim(), null);
+		}
+	}
+
+	/**
+	 * ^HW directory listing: "* E:NAME.EXT size" entries and "-size bytes free E:DRIVE" footers.
+	 */
+	static final class Directory extends ResponseParser {
+		Directory(Charset charset, RecordSink sink, @Nullable String terminator) {
+			super(charset, sink, 1, terminator);
+		}
+
+		@Override
+		protected void parseLine(@NonNull String line) {
+			String trimmed = line.trim();
+			if(trimmed.startsWith("*")) {
+				String[] parts = trimmed.substring(1).trim().split("\\s+");
+				if(parts.length >= 2) {
+					emit(parts[0], parts[parts.length - 1], "file");
+				}
+			} else if(trimmed.startsWith("-")) {
+				int free = trimmed.indexOf(" bytes free ");
+				if(free != -1) {
+					emit(trimmed.substring(free + 12).trim(), trimmed.substring(1, free).trim(), "bytesFree");
+				}
+			}
+		}
+	}
+
+	/**
+	 * ~HS host status: three STX/ETX framed comma separated strings.
+	 */
+	static final class HostStatus extends ResponseParser {
+		private static final String[][] FIELDS = {
+			{ "communicationSettings", "paperOut", "paused", "labelLength", "formatsInReceiveBuffer", "receiveBufferFull",
+				"diagnosticMode", "partialFormat", null, "corruptRam", "underTemperature", "overTemperature" },
+			{ "functionSettings", null, "headUp", "ribbonOut", "thermalTransferMode", "printMode", "printWidthMode",
+				"labelWaiting", "labelsRemainingInBatch", "formatWhilePrinting", "graphicsStored" },
+			{ "password", "staticRamInstalled" },
+		};
+		private int stringIndex = 0;
+
+		HostStatus(Charset charset, RecordSink sink, @Nullable String terminator) {
+			super(charset, sink, 3, terminator);
+		}
+
+		@Override
+		protected void parseLine(@NonNull String line) {
+			if(stringIndex >= FIELDS.length) return;
+			String[] names = FIELDS[stringIndex++];
+			String[] values = line.trim().split(",");
+			for(int i = 0; i < values.length && i < names.length; i++) {
+				if(names[i] != null) {
+					emit(names[i], values[i].trim(), null);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Any other reply, one record per line.
+	 */
+	static final class Lines extends ResponseParser {
+		private int lineNumber = 0;
+
+		Lines(Charset charset, RecordSink sink, @Nullable String terminator) {
+			super(charset, sink, 0, terminator);
+		}
+
+		@Override
+		protected void parseLine(@NonNull String line) {
+			emit(Integer.toString(lineNumber++), line, null);
+		}
+	}
+}
@@ -0,0 +1,35 @@
+package com.rnzebralinkos;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import androidx.annotation.NonNull;
+
+import com.zebra.sdk.comm.Connection;
+import com.zebra.sdk.comm.ConnectionException;
+
+/**
+ * Implements Connection.write(InputStream) with the connection's own write(byte[], int, int),
+ * so wrapping connections see every byte. One buffer is kept per connection and reused by every call.
+ */
+final class StreamWriter {
+
+	private final int bufferSize;
+	private byte[] buffer;
+
+	StreamWriter(int bufferSize) {
+		this.bufferSize = bufferSize;
+	}
+
+	synchronized void write(@NonNull Connection conn, @NonNull InputStream stream) throws ConnectionException {
+		if(buffer == null) buffer = new byte[bufferSize];
+		try {
+			int read;
+			while((read = stream.read(buffer)) != -1) {
+				conn.write(buffer, 0, read);
+			}
+		} catch(IOException e) {
+			throw new ConnectionException(e);
+		}
+	}
+}
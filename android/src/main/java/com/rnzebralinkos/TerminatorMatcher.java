@@ -0,0 +1,29 @@
+package com.rnzebralinkos;
+
+import java.nio.charset.StandardCharsets;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Looks for the terminator of a reply read in chunks. Only the end of the data seen so far is kept,
+ * a terminator may be split between two chunks.
+ */
+final class TerminatorMatcher {
+
+	private final String terminator;
+	private String tail = "";
+
+	TerminatorMatcher(@NonNull String terminator) {
+		this.terminator = terminator;
+	}
+
+	/**
+	 * @return true once the chunks seen so far contain the terminator.
+	 */
+	boolean found(@NonNull byte[] chunk) {
+		String window = tail + new String(chunk, StandardCharsets.ISO_8859_1);
+		if(window.contains(terminator)) return true;
+		tail = window.substring(Math.max(0, window.length() - terminator.length() + 1));
+		return false;
+	}
+}
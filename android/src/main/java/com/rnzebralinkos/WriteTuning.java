@@ -0,0 +1,115 @@
+package com.rnzebralinkos;
+
+import androidx.annotation.NonNull;
+
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeMap;
+
+/**
+ * Chunk size and pacing of writes to one Bluetooth printer.
+ * Chunks are a whole number of link packets (BLE MTU payload or RFCOMM frame). The chunk grows by one packet
+ * while writes keep up with the observed throughput, and is halved with a short pause when a write stalls,
+ * which happens when the printer's receive buffer is full and the link stops accepting data.
+ */
+final class WriteTuning {
+
+	//ATT header of a BLE write
+	static final int BLE_HEADER = 3;
+	//default when the MTU is unknown, most printers negotiate 185 or more
+	static final int BLE_DEFAULT_PAYLOAD = 182;
+	static final int RFCOMM_FRAME = 990;
+	static final int MAX_CHUNK = 64 * 1024;
+	//a write this many times slower than expected is a stall
+	private static final double STALL_FACTOR = 4.0;
+	private static final double RATE_SMOOTHING = 0.2;
+	private static final long MAX_PAUSE_NANOS = 200_000_000;
+
+	private final String transport;
+	private final int unit;
+	private int chunkUnits;
+	//smoothed throughput in bytes per nanosecond, 0 until the first chunk
+	private double rate = 0;
+	private long pauseNanos = 0;
+	private long transferBytes = 0;
+	private long transferStart = 0;
+	private double lastBytesPerSecond = 0;
+	private long totalBytes = 0;
+	private long totalNanos = 0;
+
+	/**
+	 * @param unit link packet payload size
+	 * @param initialChunk chunk size to start with, e.g. remembered from the last session
+	 */
+	WriteTuning(@NonNull String transport, int unit, int initialChunk) {
+		this.transport = transport;
+		this.unit = Math.max(1, unit);
+		this.chunkUnits = Math.max(1, Math.min(initialChunk, MAX_CHUNK) / this.unit);
+	}
+
+	synchronized int getChunkSize() {
+		return chunkUnits * unit;
+	}
+
+	/**
+	 * @return time to wait before writing the next chunk.
+	 */
+	synchronized long getPauseNanos() {
+		return pauseNanos;
+	}
+
+	synchronized void startTransfer() {
+		transferBytes = 0;
+		transferStart = System.nanoTime();
+	}
+
+	/**
+	 * Adapts the chunk size to how long writing the last chunk took.
+	 * Only full chunks are sampled, the time of short writes (commands, the end of a job) is mostly per-write latency
+	 * and would look like a stall.
+	 */
+	synchronized void chunkWritten(int bytes, long nanos) {
+		transferBytes += bytes;
+		if(bytes < getChunkSize()) return;
+		nanos = Math.max(nanos, 1);
+		double chunkRate = (double)bytes / nanos;
+		if(rate == 0) {
+			rate = chunkRate;
+			return;
+		}
+		double expectedNanos = bytes / rate;
+		if(nanos > expectedNanos * STALL_FACTOR) {
+			//the printer stopped taking data, back off and let it drain its buffer
+			chunkUnits = Math.max(1, chunkUnits / 2);
+			pauseNanos = Math.min(MAX_PAUSE_NANOS, (long)(nanos - expectedNanos) / 2);
+		} else {
+			pauseNanos /= 2;
+			if(chunkRate >= rate * 0.9 && (chunkUnits + 1) * unit <= MAX_CHUNK) {
+				chunkUnits++;
+			}
+		}
+		rate += (chunkRate - rate) * RATE_SMOOTHING;
+	}
+
+	/**
+	 * Ends the transfer, its throughput includes the pauses.
+	 */
+	synchronized void endTransfer() {
+		long transferNanos = System.nanoTime() - transferStart;
+		if(transferBytes == 0 || transferNanos <= 0) return;
+		lastBytesPerSecond = transferBytes * 1e9 / transferNanos;
+		totalBytes += transferBytes;
+		totalNanos += transferNanos;
+	}
+
+	@NonNull
+	synchronized WritableMap stats() {
+		WritableMap stats = new WritableNativeMap();
+		stats.putString("transport", transport);
+		stats.putInt("packetSize", unit);
+		stats.putInt("chunkSize", getChunkSize());
+		stats.putDouble("lastBytesPerSecond", lastBytesPerSecond);
+		stats.putDouble("averageBytesPerSecond", totalNanos > 0 ? totalBytes * 1e9 / totalNanos : 0);
+		stats.putDouble("bytesSent", totalBytes);
+		return stats;
+	}
+}
@@ -0,0 +1,125 @@
+package com.rnzebralinkos;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Logging facade with runtime-configurable levels per category.
+ * Messages use "{}" placeholders and are only formatted when the level is enabled,
+ * so disabled log calls allocate nothing. Primitive arguments are boxed before the level is checked,
+ * calls passing them are wrapped in an isEnabled() check.
+ */
+final class ZebraLog {
+
+	static final String TAG = "ZebraModule";
+
+	enum Category {
+		DISCOVERY("discovery"),
+		CONNECTION("connection"),
+		IO("io"),
+		IMAGES("images");
+
+		final String jsName;
+
+		Category(String jsName) {
+			this.jsName = jsName;
+		}
+
+		@Nullable
+		static Category fromJsName(String name) {
+			for(Category category : values()) {
+				if(category.jsName.equals(name)) return category;
+			}
+			return null;
+		}
+	}
+
+	//android.util.Log priorities, NONE disables the category
+	static final int VERBOSE = Log.VERBOSE;
+	static final int DEBUG = Log.DEBUG;
+	static final int INFO = Log.INFO;
+	static final int WARN = Log.WARN;
+	static final int ERROR = Log.ERROR;
+	static final int NONE = Log.ERROR + 1;
+
+	//set from the JS thread, read by every thread that logs
+	private static final AtomicIntegerArray levels = new AtomicIntegerArray(Category.values().length);
+
+	static {
+		setLevel(WARN);
+	}
+
+	private ZebraLog() {}
+
+	static void setLevel(int level) {
+		for(Category category : Category.values()) {
+			levels.set(category.ordinal(), level);
+		}
+	}
+
+	static void setLevel(@NonNull Category category, int level) {
+		levels.set(category.ordinal(), level);
+	}
+
+	static int getLevel(@NonNull Category category) {
+		return levels.get(category.ordinal());
+	}
+
+	static boolean isEnabled(@NonNull Category category, int level) {
+		return level >= levels.get(category.ordinal());
+	}
+
+	static void d(@NonNull Category category, @NonNull String message) {
+		if(isEnabled(category, DEBUG)) Log.d(TAG, message);
+	}
+
+	static void d(@NonNull Category category, @NonNull String format, @Nullable Object arg) {
+		if(isEnabled(category, DEBUG)) Log.d(TAG, format(format, arg, null));
+	}
+
+	static void d(@NonNull Category category, @NonNull String format, @Nullable Object arg1, @Nullable Object arg2) {
+		if(isEnabled(category, DEBUG)) Log.d(TAG, format(format, arg1, arg2));
+	}
+
+	static void i(@NonNull Category category, @NonNull String format, @Nullable Object arg) {
+		if(isEnabled(category, INFO)) Log.i(TAG, format(format, arg, null));
+	}
+
+	static void w(@NonNull Category category, @NonNull String message) {
+		if(isEnabled(category, WARN)) Log.w(TAG, message);
+	}
+
+	static void w(@NonNull Category category, @NonNull String format, @Nullable Object arg) {
+		if(isEnabled(category, WARN)) Log.w(TAG, format(format, arg, null));
+	}
+
+	static void w(@NonNull Category category, @NonNull String format, @Nullable Object arg1, @Nullable Object arg2) {
+		if(isEnabled(category, WARN)) Log.w(TAG, format(format, arg1, arg2));
+	}
+
+	static void e(@NonNull Category category, @NonNull String message, @Nullable Throwable e) {
+		if(isEnabled(category, ERROR)) Log.e(TAG, message, e);
+	}
+
+	/**
+	 * Replaces the first two "{}" placeholders with the arguments.
+	 */
+	@NonNull
+	static String format(@NonNull String format, @Nullable Object arg1, @Nullable Object arg2) {
+		StringBuilder sb = new StringBuilder(format.length() + 32);
+		int start = 0;
+		int argIndex = 0;
+		int placeholder;
+		while(argIndex < 2 && (placeholder = format.indexOf("{}", start)) != -1) {
+			sb.append(format, start, placeholder).append(argIndex == 0 ? arg1 : arg2);
+			start = placeholder + 2;
+			argIndex++;
+		}
+		sb.append(format, start, format.length());
+		return sb.toString();
+	}
+}
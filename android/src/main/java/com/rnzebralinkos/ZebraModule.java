@@ -1,26 +1,44 @@
 package com.rnzebralinkos;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
 
 import android.Manifest;
 import android.app.PendingIntent;
+import android.bluetooth.BluetoothManager;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
+import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
 import android.hardware.usb.UsbDevice;
 import android.hardware.usb.UsbManager;
 import android.net.wifi.WifiManager;
 import android.net.wifi.WifiManager.MulticastLock;
 import android.os.Build;
-import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -32,10 +50,12 @@ import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableMapKeySetIterator;
 import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.bridge.WritableNativeArray;
 import com.facebook.react.bridge.WritableNativeMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
 import com.zebra.sdk.btleComm.BluetoothLeConnection;
 import com.zebra.sdk.btleComm.BluetoothLeDiscoverer;
 import com.zebra.sdk.btleComm.BluetoothLeStatusConnection;
@@ -47,6 +67,7 @@ import com.zebra.sdk.comm.BluetoothStatusConnectionInsecure;
 import com.zebra.sdk.comm.Connection;
 import com.zebra.sdk.comm.ConnectionException;
 import com.zebra.sdk.comm.MultichannelBluetoothConnection;
+import com.zebra.sdk.comm.MultichannelConnection;
 import com.zebra.sdk.comm.MultichannelTcpConnection;
 import com.zebra.sdk.comm.TcpConnection;
 import com.zebra.sdk.comm.TcpStatusConnection;
@@ -59,6 +80,7 @@ import com.zebra.sdk.printer.NotALinkOsPrinterException;
 import com.zebra.sdk.printer.PrinterLanguage;
 import com.zebra.sdk.printer.PrinterObjectProperties;
 import com.zebra.sdk.printer.PrinterStatus;
+import com.zebra.sdk.printer.SGD;
 import com.zebra.sdk.printer.StorageInfo;
 import com.zebra.sdk.printer.TcpPortStatus;
 import com.zebra.sdk.printer.ZebraPrinter;
@@ -71,6 +93,7 @@ import com.zebra.sdk.printer.discovery.DiscoveryException;
 import com.zebra.sdk.printer.discovery.DiscoveryHandler;
 import com.zebra.sdk.printer.discovery.NetworkDiscoverer;
 import com.zebra.sdk.printer.discovery.UsbDiscoverer;
+import com.zebra.sdk.settings.SettingsException;
 
 public class ZebraModule extends NativeRNZebraLinkOSSpec {
 
@@ -80,12 +103,104 @@ public class ZebraModule extends NativeRNZebraLinkOSSpec {
 	private static final String CONNECTION_BLUETOOTH_LE = "bluetooth-le";
 	private static final String CONNECTION_BLUETOOTH_INSECURE = "bluetooth-insecure";
 	private static final String CONNECTION_USB = "usb";
+	//number of most recently used printers connected at startup
+	private static final int WARM_UP_PRINTERS = 4;
+	//calls waiting for a busy printer park a thread each, the pools are bounded and queue the rest
+	private static final int MAX_OPERATION_THREADS = 16;
+	private static final int MAX_CONNECT_THREADS = 8;
+	//largest preview side, 8" at 1024 dpi
+	private static final int MAX_PREVIEW_DOTS = 8192;
+	private static final String GROUP_SEND = "send";
+	private static final String GROUP_STORE_FILE = "storeFile";
+	private static final String GROUP_SET_CLOCK = "setClock";
+	private static final String GROUP_SET_SETTINGS = "setSettings";
+	private static final String GROUP_PRINT_CONFIGURATION_LABEL = "printConfigurationLabel";
+	private static final String EVENT_RESPONSE_RECORDS = "RNZebraLinkOS_responseRecords";
+	private static final String EVENT_DISCOVERY_BATCH = "RNZebraLinkOS_discoveryBatch";
+	private static final String EVENT_DISCOVERY_SUMMARY = "RNZebraLinkOS_discoverySummary";
+	private static final String EVENT_PRINT_STREAM = "RNZebraLinkOS_printStream";
+
+	private final Map<String, ZebraPrinter> connectedPrinters = new ConcurrentHashMap<>();
+	private final Map<String, HandleDescriptor> handleDescriptors = new ConcurrentHashMap<>();
+	private final Map<String, PrinterEncoding> encodings = new ConcurrentHashMap<>();
+	private final OperationRegistry operations = new OperationRegistry();
+	private final IoTrace ioTrace = new IoTrace();
+	private final Map<String, PrinterPool> pools = new ConcurrentHashMap<>();
+	private final Map<String, Object> connectLocks = new ConcurrentHashMap<>();
+	private final Map<String, WriteTuning> writeTunings = new ConcurrentHashMap<>();
+	private final Map<String, FormatCache> formatCaches = new ConcurrentHashMap<>();
+	private final Map<String, FileIndex> fileIndexes = new ConcurrentHashMap<>();
+	private final Map<String, PrintSink> printStreams = new ConcurrentHashMap<>();
+	private final Map<String, CompletionTracker> completionTrackers = new ConcurrentHashMap<>();
+	private final Map<String, File> captureFiles = new ConcurrentHashMap<>();
+	private final Map<String, PrinterLane> lanes = new ConcurrentHashMap<>();
+	//status channels of multichannel printers, status work there does not wait for the printing channel
+	private final Map<String, PrinterLane> statusLanes = new ConcurrentHashMap<>();
+	private final GlyphCache previewGlyphs = new GlyphCache();
+	private volatile long fileIndexTtl = FileIndex.DEFAULT_TTL_MS;
+	private final KnownPrinterStore knownPrinters;
+	//long-running transfers run here so they can be cancelled while the module thread stays free
+	private final ExecutorService operationExecutor = boundedExecutor(MAX_OPERATION_THREADS);
+	//connects of group operations, separate because group workers on operationExecutor wait for them
+	private final ExecutorService connectExecutor = boundedExecutor(MAX_CONNECT_THREADS);
+
+	@FunctionalInterface
+	private interface OperationTask {
+		/**
+		 * @return value the promise is resolved with
+		 */
+		@Nullable
+		Object run(OperationConnection connection) throws ConnectionException, ZebraIllegalArgumentException, NotALinkOsPrinterException, SettingsException, IOException;
+	}
+
+	@FunctionalInterface
+	private interface PrinterCall {
+		/**
+		 * @return value the promise is resolved with
+		 */
+		@Nullable
+		Object run(ZebraPrinter printer) throws Exception;
+	}
 
-	private final Map<String, ZebraPrinter> connectedPrinters = new HashMap<>();
+	@FunctionalInterface
+	private interface LinkOsCall {
+		/**
+		 * @return value the promise is resolved with
+		 */
+		@Nullable
+		Object run(ZebraPrinterLinkOs printer) throws Exception;
+	}
+
+	/**
+	 * Discovery run on one transport. Hits are coalesced into batches which are emitted as a single
+	 * device event every batchInterval ms or batchSize printers, followed by a summary event when the run ends.
+	 */
+	private final class DiscoverySession implements DiscoveryHandler {
+		private final String sessionId;
+		private final String type;
+		private final Promise promise;
+		private final Operation operation;
+		private final int batchSize;
+		private final long batchInterval;
+		private final long startNanos = System.nanoTime();
+		private WritableArray batch = new WritableNativeArray();
+		private int batchCount = 0;
+		private int found = 0;
+		@Nullable
+		private ScheduledFuture<?> scheduledFlush;
+
+		DiscoverySession(String sessionId, String type, @Nullable ReadableMap options, Promise promise, Operation operation) {
+			this.sessionId = sessionId;
+			this.type = type;
+			this.promise = promise;
+			this.operation = operation;
+			this.batchSize = Math.max(1, getIntOption(options, "batchSize", 32));
+			this.batchInterval = Math.max(0, getIntOption(options, "batchInterval", 250));
+		}
 
-	private record DiscoveryHandlerImpl(String type, Callback onPrinterFound, Promise promise) implements DiscoveryHandler {
 		public void foundPrinter(DiscoveredPrinter printer) {
-			Log.d("ZebraModule", "Discovery found a printer [" + type + "]: " + printer.address);
+			if(operation.isAborted()) return;
+			ZebraLog.d(ZebraLog.Category.DISCOVERY, "Discovery found a printer [{}]: {}", type, printer.address);
 
 			Map<String, String> discoveryDataMap = printer.getDiscoveryDataMap();
 			WritableMap obj = new WritableNativeMap();
@@ -97,22 +212,139 @@ public class ZebraModule extends NativeRNZebraLinkOSSpec {
 			obj.putString("address", printer.address);
 			obj.putString("connectionType", type);
 			obj.putMap("discoveryData", discoveryData);
-			onPrinterFound.invoke(obj);
+			synchronized(this) {
+				batch.pushMap(obj);
+				batchCount++;
+				found++;
+				if(batchCount >= batchSize || batchInterval == 0) {
+					flush();
+				} else if(scheduledFlush == null) {
+					scheduledFlush = operations.getTimer().schedule(this::flush, batchInterval, TimeUnit.MILLISECONDS);
+				}
+			}
+		}
+
+		private synchronized void flush() {
+			if(scheduledFlush != null) {
+				scheduledFlush.cancel(false);
+				scheduledFlush = null;
+			}
+			if(batchCount == 0) return;
+			WritableMap event = new WritableNativeMap();
+			event.putString("sessionId", sessionId);
+			event.putArray("printers", batch);
+			emitEvent(EVENT_DISCOVERY_BATCH, event);
+			batch = new WritableNativeArray();
+			batchCount = 0;
+		}
+
+		private synchronized WritableMap summary(String result, @Nullable String message) {
+			WritableMap summary = new WritableNativeMap();
+			summary.putString("sessionId", sessionId);
+			summary.putString("connectionType", type);
+			summary.putString("result", result);
+			summary.putInt("found", found);
+			summary.putDouble("elapsedMs", (System.nanoTime() - startNanos) / 1_000_000.0);
+			if(message != null) summary.putString("message", message);
+			return summary;
+		}
+
+		/**
+		 * Emits the remaining batch and the summary event.
+		 * @return the summary for the promise (a WritableMap can only be sent once)
+		 */
+		private WritableMap end(String result, @Nullable String message) {
+			flush();
+			emitEvent(EVENT_DISCOVERY_SUMMARY, summary(result, message));
+			return summary(result, message);
 		}
 
 		public void discoveryFinished() {
-			Log.d("ZebraModule", "Printer discovery finished [" + type + "]");
-			promise.resolve(null);
+			ZebraLog.d(ZebraLog.Category.DISCOVERY, "Printer discovery finished [{}]", type);
+			if(operation.complete()) {
+				promise.resolve(end("finished", null));
+			}
+			operations.finish(operation);
 		}
 
 		public void discoveryError(String message) {
-			Log.d("ZebraModule", "Printer discovery error [" + type + "]");
-			promise.reject("DiscoveryException", message);
+			ZebraLog.w(ZebraLog.Category.DISCOVERY, "Printer discovery error [{}]", type);
+			if(operation.complete()) {
+				end("error", message);
+				promise.reject("DiscoveryException", message);
+			}
+			operations.finish(operation);
+		}
+
+		/**
+		 * Ends the session after it was cancelled or timed out.
+		 */
+		void aborted() {
+			end(operation.getAbortCode().equals(Operation.CODE_TIMEOUT) ? "timeout" : "cancelled", null);
+		}
+
+		/**
+		 * Ends the session when the discoverer could not be started.
+		 */
+		void failed(String message) {
+			if(operation.complete()) {
+				end("error", message);
+			}
+			operations.finish(operation);
 		}
-	};
+	}
 
 	ZebraModule(ReactApplicationContext context) {
 		super(context);
+		this.knownPrinters = new KnownPrinterStore(context.getApplicationContext());
+		//verbose logging only in debuggable apps, release builds log warnings and errors
+		if((context.getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0) {
+			ZebraLog.setLevel(ZebraLog.DEBUG);
+		}
+	}
+
+	@Override
+	public void initialize() {
+		super.initialize();
+		//the module is created eagerly, so the connections are open by the time the first label is printed
+		operationExecutor.execute(() -> {
+			if(knownPrinters.isWarmUpEnabled()) {
+				this.warmUp(WARM_UP_PRINTERS, null);
+			}
+		});
+	}
+
+	/**
+	 * Opens connections to the most recently used printers in parallel.
+	 * @param onDone called with the number of printers connected, on an executor thread
+	 */
+	private void warmUp(int maxPrinters, @Nullable IntConsumer onDone) {
+		List<KnownPrinterStore.KnownPrinter> known = knownPrinters.list();
+		int count = Math.min(maxPrinters, known.size());
+		if(count == 0) {
+			if(onDone != null) onDone.accept(0);
+			return;
+		}
+		AtomicInteger remaining = new AtomicInteger(count);
+		AtomicInteger connected = new AtomicInteger(0);
+		for(int i = 0; i < count; i++) {
+			String handle = known.get(i).handle();
+			operationExecutor.execute(() -> {
+				long start = System.nanoTime();
+				try {
+					this.retrieveOrConnectPrinter(handle);
+					connected.incrementAndGet();
+					if(ZebraLog.isEnabled(ZebraLog.Category.CONNECTION, ZebraLog.DEBUG)) {
+						ZebraLog.d(ZebraLog.Category.CONNECTION, "Warmed up {} in {} ms", handle, (System.nanoTime() - start) / 1_000_000);
+					}
+				} catch(ConnectionException e) {
+					ZebraLog.d(ZebraLog.Category.CONNECTION, "Warm-up of {} failed: {}", handle, e.getMessage());
+				}
+				if(remaining.decrementAndGet() == 0 && onDone != null) {
+					onDone.accept(connected.get());
+				}
+			});
+		}
 	}
 
 	@Override
@@ -121,17 +353,371 @@ public class ZebraModule extends NativeRNZebraLinkOSSpec {
 		return NAME;
 	}
 
+	/**
+	 * Pool of at most maxThreads threads which end after a minute without work.
+	 */
+	@NonNull
+	private static ExecutorService boundedExecutor(int maxThreads) {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	@Override
+	public void invalidate() {
+		operations.cancelAll();
+		operationExecutor.shutdown();
+		connectExecutor.shutdown();
+		super.invalidate();
+	}
+
+	/**
+	 * Starts a cancellable operation. Rejects the promise and returns null if the operation ID is already in use.
+	 */
+	@Nullable
+	private Operation startOperation(@Nullable ReadableMap options, Promise promise) {
+		try {
+			return operations.start(options);
+		} catch(IllegalArgumentException e) {
+			promise.reject("ZebraIllegalArgumentException", e.getMessage(), e);
+			return null;
+		}
+	}
+
+	/**
+	 * Runs a long transfer on the operation executor. The task receives a connection
+	 * which checks for cancellation and deadline between written chunks.
+	 */
+	private void runOperation(String handle, @Nullable ReadableMap options, Promise promise, OperationTask task) {
+		this.runOperation(handle, options, promise, PrinterLane.Priority.BULK, task);
+	}
+
+	private void runOperation(String handle, @Nullable ReadableMap options, Promise promise, PrinterLane.Priority priority, OperationTask task) {
+		Operation operation = this.startOperation(options, promise);
+		if(operation == null) return;
+		operationExecutor.execute(() -> {
+			try {
+				promise.resolve(this.executeOperation(handle, operation, priority, task));
+			} catch(Exception e) {
+				String code = errorCode(e, operation);
+				if(code == null) {
+					promise.reject(e);
+				} else {
+					promise.reject(code, operation.isAborted() ? operation.getAbortMessage() : e.getMessage(), e);
+				}
+			} finally {
+				operations.finish(operation);
+			}
+		});
+	}
+
+	@Nullable
+	private Object executeOperation(String handle, Operation operation, OperationTask task) throws Exception {
+		return this.executeOperation(handle, operation, PrinterLane.Priority.BULK, task);
+	}
+
+	/**
+	 * Runs the task on the calling thread, through an OperationConnection of the printer.
+	 * The task holds the printer's lane at the given priority.
+	 */
+	@Nullable
+	private Object executeOperation(String handle, Operation operation, PrinterLane.Priority priority, OperationTask task) throws Exception {
+		OperationConnection conn = null;
+		WriteTuning tuning = null;
+		long start = System.nanoTime();
+		try {
+			ZebraPrinter printer = this.retrieveOrConnectPrinter(handle);
+			operation.checkpoint();
+			PrinterLane lane = this.getLane(handle, printer, priority);
+			WriteTuning writeTuning = this.getWriteTuning(handle, printer.getConnection());
+			lane.acquire(priority, operation);
+			conn = new OperationConnection(printer.getConnection(), operation, writeTuning, lane, priority);
+			tuning = writeTuning;
+			if(tuning != null) tuning.startTransfer();
+			return task.run(conn);
+		} catch(Exception e) {
+			if(operation.isAborted()) {
+				ZebraLog.d(ZebraLog.Category.IO, "Operation {} aborted on {}", operation.getId(), handle);
+				//a partially sent download would swallow the following commands, start over with a fresh connection
+				if(conn != null && conn.getBytesWritten() > 0) {
+					this.dropPrinter(handle);
+				}
+			}
+			throw e;
+		} finally {
+			if(conn != null) {
+				conn.releaseLane();
+				ioTrace.record(handle, IoTrace.KIND_TRANSFER, conn.getBytesWritten(), 0, start);
+			}
+			if(tuning != null) {
+				tuning.endTransfer();
+				knownPrinters.rememberChunkSize(handle, tuning.getChunkSize());
+			}
+		}
+	}
+
+	/**
+	 * Returns the lane which serializes the printer's I/O. Status work on a multichannel printer
+	 * gets the status channel's lane, so it does not wait for transfers on the printing channel.
+	 */
+	@NonNull
+	private PrinterLane getLane(String handle, ZebraPrinter printer, PrinterLane.Priority priority) {
+		if(priority == PrinterLane.Priority.STATUS && printer.getConnection() instanceof MultichannelConnection) {
+			return statusLanes.computeIfAbsent(handle, h -> new PrinterLane());
+		}
+		return lanes.computeIfAbsent(handle, h -> new PrinterLane());
+	}
+
+	@NonNull
+	private PrinterLane.Hold holdLane(String handle, ZebraPrinter printer, PrinterLane.Priority priority) throws ConnectionException {
+		return this.getLane(handle, printer, priority).acquire(priority, null);
+	}
+
+	/**
+	 * Runs a short printer call on the executor, holding the printer's lane at the given priority.
+	 * The module thread is not blocked while the call waits for the lane.
+	 */
+	private void dispatch(String handle, PrinterLane.Priority priority, Promise promise, PrinterCall call) {
+		operationExecutor.execute(() -> {
+			try {
+				ZebraPrinter printer = this.retrieveOrConnectPrinter(handle);
+				try(PrinterLane.Hold hold = this.holdLane(handle, printer, priority)) {
+					promise.resolve(call.run(printer));
+				}
+			} catch(Throwable e) {
+				//the promise has to settle whatever the call throws
+				String code = e instanceof Exception ? errorCode((Exception)e) : null;
+				if(code == null) {
+					promise.reject(e);
+				} else {
+					promise.reject(code, e.getMessage(), e);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Like dispatch(), for calls which need the printer's Link-OS instance. Reading the Link-OS information
+	 * on first use is done under the lane too.
+	 */
+	private void dispatchLinkOs(String handle, PrinterLane.Priority priority, Promise promise, LinkOsCall call) {
+		this.dispatch(handle, priority, promise, printer -> call.run(this.getLinkOsPrinter(handle)));
+	}
+
+	@Override
+	public void getDispatchStats(String handle, Promise promise) {
+		PrinterLane lane = lanes.get(handle);
+		PrinterLane statusLane = statusLanes.get(handle);
+		if(lane == null && statusLane == null) {
+			promise.resolve(null);
+			return;
+		}
+		WritableMap stats = new WritableNativeMap();
+		if(lane != null) stats.putMap("printingChannel", lane.stats());
+		if(statusLane != null) stats.putMap("statusChannel", statusLane.stats());
+		promise.resolve(stats);
+	}
+
+	/**
+	 * Returns the write tuning of a Bluetooth printer, created on first use with the chunk size remembered
+	 * from the last session. Chunks are multiples of the negotiated BLE MTU payload or the RFCOMM frame.
+	 * @return null for TCP and USB, which take large writes without stalling.
+	 */
+	@Nullable
+	private WriteTuning getWriteTuning(String handle, Connection conn) throws ConnectionException {
+		WriteTuning tuning = writeTunings.get(handle);
+		if(tuning != null) return tuning;
+		HandleDescriptor descriptor = this.describeHandle(handle);
+		int unit;
+		int initialPackets;
+		switch(descriptor.transport()) {
+			case BLUETOOTH_LE:
+				unit = WriteTuning.BLE_DEFAULT_PAYLOAD;
+				if(conn instanceof BluetoothLeConnection) {
+					int mtu = ((BluetoothLeConnection)conn).getCurrentMTU();
+					if(mtu > WriteTuning.BLE_HEADER) unit = mtu - WriteTuning.BLE_HEADER;
+				}
+				initialPackets = 8;
+				break;
+			case BLUETOOTH:
+				unit = WriteTuning.RFCOMM_FRAME;
+				initialPackets = 4;
+				break;
+			default:
+				return null;
+		}
+		KnownPrinterStore.KnownPrinter known = knownPrinters.get(handle);
+		int initialChunk = known != null && known.chunkSize() > 0 ? known.chunkSize() : unit * initialPackets;
+		tuning = new WriteTuning(descriptor.transport().name(), unit, initialChunk);
+		WriteTuning existing = writeTunings.putIfAbsent(handle, tuning);
+		return existing != null ? existing : tuning;
+	}
+
+	@Override
+	public void getTransferStats(String handle, Promise promise) {
+		WriteTuning tuning = writeTunings.get(handle);
+		promise.resolve(tuning != null ? tuning.stats() : null);
+	}
+
+	/**
+	 * @return the JS error code for an exception thrown by an operation, null for unexpected exceptions.
+	 */
+	@Nullable
+	private static String errorCode(Exception e, Operation operation) {
+		if(operation.isAborted()) return operation.getAbortCode();
+		return errorCode(e);
+	}
+
+	@Nullable
+	private static String errorCode(Exception e) {
+		if(e instanceof ConnectionException) return "ConnectionException";
+		if(e instanceof ZebraIllegalArgumentException) return "ZebraIllegalArgumentException";
+		if(e instanceof NotALinkOsPrinterException) return "NotALinkOsPrinterException";
+		if(e instanceof SettingsException) return "SettingsException";
+		if(e instanceof IOException) return "IOException";
+		return null;
+	}
+
+	@Override
+	public void setLogLevel(String category, double level, Promise promise) {
+		if(category.equals("all")) {
+			ZebraLog.setLevel((int)level);
+		} else {
+			ZebraLog.Category logCategory = ZebraLog.Category.fromJsName(category);
+			if(logCategory == null) {
+				promise.reject("ZebraIllegalArgumentException", "Unknown log category: " + category);
+				return;
+			}
+			ZebraLog.setLevel(logCategory, (int)level);
+		}
+		promise.resolve(null);
+	}
+
+	@Override
+	public void setIoTraceCapacity(double capacity, Promise promise) {
+		ioTrace.setCapacity((int)capacity);
+		promise.resolve(null);
+	}
+
+	@Override
+	public void dumpIoTrace(Promise promise) {
+		promise.resolve(ioTrace.dump());
+	}
+
+	@Override
+	public void startCapture(String handle, String path, Promise promise) {
+		File file = new File(path);
+		if(!file.isAbsolute()) {
+			file = new File(getReactApplicationContext().getFilesDir(), path);
+		}
+		ZebraLog.d(ZebraLog.Category.IO, "Capturing traffic of {} to {}", handle, file);
+		captureFiles.put(handle, file);
+		String capturePath = file.getAbsolutePath();
+		operationExecutor.execute(() -> {
+			//the capture starts with a fresh connection, so a replay sees the whole session
+			this.dropPrinter(handle);
+			promise.resolve(capturePath);
+		});
+	}
+
+	@Override
+	public void stopCapture(String handle, Promise promise) {
+		File file = captureFiles.remove(handle);
+		if(file == null) {
+			promise.resolve(null);
+			return;
+		}
+		ZebraPrinter printer = connectedPrinters.get(handle);
+		WritableMap summary = new WritableNativeMap();
+		summary.putString("path", file.getAbsolutePath());
+		if(printer != null && printer.getConnection() instanceof CaptureConnection) {
+			IoCapture.Writer capture = ((CaptureConnection)printer.getConnection()).getCapture();
+			summary.putDouble("events", capture.getEvents());
+			summary.putDouble("bytes", capture.getBytes());
+			operationExecutor.execute(() -> {
+				//closing the connection completes the file
+				this.dropPrinter(handle);
+				promise.resolve(summary);
+			});
+			return;
+		}
+		promise.resolve(summary);
+	}
+
+	@Override
+	public void renderPreview(String zpl, double dpi, double widthDots, double heightDots, Promise promise) {
+		int width = (int)widthDots;
+		int height = (int)heightDots;
+		if(dpi <= 0 || width <= 0 || height <= 0 || width > MAX_PREVIEW_DOTS || height > MAX_PREVIEW_DOTS) {
+			promise.reject("ZebraIllegalArgumentException", "Invalid preview size " + width + "x" + height + " at " + dpi + " dpi");
+			return;
+		}
+		operationExecutor.execute(() -> {
+			try {
+				ZplRenderer renderer = new ZplRenderer(previewGlyphs, (int)dpi);
+				MonoBitmap label = renderer.render(zpl, width, height);
+				if(renderer.getSkippedCommands() > 0) {
+					if(ZebraLog.isEnabled(ZebraLog.Category.IMAGES, ZebraLog.DEBUG)) {
+						ZebraLog.d(ZebraLog.Category.IMAGES, "Preview skipped {} unsupported commands", renderer.getSkippedCommands());
+					}
+				}
+				promise.resolve(byteArrayToReactArray(label.toPng((int)dpi)));
+			} catch(IllegalArgumentException e) {
+				promise.reject("ZebraIllegalArgumentException", e.getMessage(), e);
+			} catch(Throwable e) {
+				//any ZPL the renderer trips over must still settle the promise
+				promise.reject(e);
+			}
+		});
+	}
+
+	@Override
+	public void cancelOperation(String operationId, Promise promise) {
+		ZebraLog.d(ZebraLog.Category.IO, "Cancelling operation {}", operationId);
+		promise.resolve(operations.cancel(operationId));
+	}
+
 	private ZebraPrinter retrieveOrConnectPrinter(String handle) throws ConnectionException {
-		Log.d("ZebraModule", "Connecting to printer " + handle);
 		ZebraPrinter printer = connectedPrinters.get(handle);
-		if(printer == null){
+		if(printer != null) return printer;
+		//one connection attempt per handle, a warm-up and a JS call must not open two connections
+		synchronized (connectLocks.computeIfAbsent(handle, h -> new Object())) {
+			printer = connectedPrinters.get(handle);
+			if(printer != null) return printer;
 			try {
-				Log.d("ZebraModule", "Printer " + handle + " not connected, connecting now...");
+				ZebraLog.d(ZebraLog.Category.CONNECTION, "Printer {} not connected, connecting now...", handle);
 				Connection conn = createConnection(handle);
+				File captureFile = captureFiles.get(handle);
+				if(captureFile != null) {
+					conn = new CaptureConnection(conn, new IoCapture.Writer(captureFile, handle));
+				}
 				conn.open();
-				printer = ZebraPrinterFactory.getInstance(conn);
+				PrinterLanguage language;
+				if(conn instanceof ReplayConnection) {
+					//a replay has to probe exactly when the captured connection did
+					language = ((ReplayConnection)conn).getLanguage();
+				} else {
+					KnownPrinterStore.KnownPrinter known = knownPrinters.get(handle);
+					language = known != null ? known.language() : null;
+				}
+				//the cached language skips the probing done by getInstance(conn)
+				printer = language != null
+					? ZebraPrinterFactory.getInstance(language, conn)
+					: ZebraPrinterFactory.getInstance(conn);
+				if(conn instanceof CaptureConnection) {
+					((CaptureConnection)conn).recordLanguage(printer.getPrinterControlLanguage());
+				}
 				//TODO: send status to JS
 				connectedPrinters.put(handle, printer);
+				if(!(conn instanceof ReplayConnection)) {
+					knownPrinters.rememberConnection(handle, printer.getPrinterControlLanguage());
+				}
+				//a capture has to record exactly the traffic of the calls
+				if(language != null && !(conn instanceof ReplayConnection) && !(conn instanceof CaptureConnection)) {
+					this.revalidatePrinter(handle, printer);
+				}
+			} catch(IOException e) {
+				throw new ConnectionException("Can't create capture file: " + e.getMessage());
 			} catch(ZebraPrinterLanguageUnknownException e) {
 				throw new ConnectionException(e);
 			}
@@ -139,309 +725,906 @@ public class ZebraModule extends NativeRNZebraLinkOSSpec {
 		return printer;
 	}
 
+	/**
+	 * Probes a printer connected with the remembered language in the background, at the lowest priority.
+	 * A printer which was replaced or switched its language gets a new printer instance for the following calls,
+	 * and a remembered Link-OS version which no longer matches is updated.
+	 */
+	private void revalidatePrinter(String handle, ZebraPrinter printer) {
+		operationExecutor.execute(() -> {
+			try(PrinterLane.Hold hold = this.holdLane(handle, printer, PrinterLane.Priority.BULK)) {
+				if(connectedPrinters.get(handle) != printer) return;
+				ZebraPrinter probed = ZebraPrinterFactory.getInstance(printer.getConnection());
+				PrinterLanguage language = probed.getPrinterControlLanguage();
+				if(language != printer.getPrinterControlLanguage()) {
+					ZebraLog.w(ZebraLog.Category.CONNECTION, "Printer {} uses a different language than remembered", handle);
+					connectedPrinters.replace(handle, printer, probed);
+					//also drops the Link-OS version
+					knownPrinters.rememberConnection(handle, language);
+					return;
+				}
+				KnownPrinterStore.KnownPrinter known = knownPrinters.get(handle);
+				if(known != null && known.linkOsInformation() != null) {
+					ZebraPrinterLinkOs linkOsPrinter = ZebraPrinterFactory.createLinkOsPrinter(probed);
+					LinkOsInformation linkOs = linkOsPrinter != null ? linkOsPrinter.getLinkOsInformation() : null;
+					LinkOsInformation remembered = known.linkOsInformation();
+					if(linkOs == null || linkOs.getMajor() != remembered.getMajor() || linkOs.getMinor() != remembered.getMinor() || linkOs.getMicro() != remembered.getMicro()) {
+						knownPrinters.rememberLinkOsInformation(handle, linkOs);
+					}
+				}
+			} catch(ConnectionException | ZebraPrinterLanguageUnknownException e) {
+				ZebraLog.d(ZebraLog.Category.CONNECTION, "Revalidating {} failed: {}", handle, e.getMessage());
+			}
+		});
+	}
+
 	private ZebraPrinterLinkOs getLinkOsPrinter(String handle) throws ConnectionException, NotALinkOsPrinterException {
 		ZebraPrinter basicPrinter = this.retrieveOrConnectPrinter(handle);
-		ZebraPrinterLinkOs linkOsPrinter = ZebraPrinterFactory.createLinkOsPrinter(basicPrinter);
+		KnownPrinterStore.KnownPrinter known = knownPrinters.get(handle);
+		ZebraPrinterLinkOs linkOsPrinter;
+		if(known != null && known.linkOsInformation() != null) {
+			linkOsPrinter = ZebraPrinterFactory.createLinkOsPrinter(basicPrinter, known.linkOsInformation(), basicPrinter.getPrinterControlLanguage());
+		} else {
+			linkOsPrinter = ZebraPrinterFactory.createLinkOsPrinter(basicPrinter);
+			if(linkOsPrinter != null) {
+				knownPrinters.rememberLinkOsInformation(handle, linkOsPrinter.getLinkOsInformation());
+			}
+		}
 		if(linkOsPrinter == null) {
 			throw new NotALinkOsPrinterException();
 		}
 		return linkOsPrinter;
 	}
 
+	/**
+	 * Creates a Link-OS printer instance talking through the given connection (e.g. an OperationConnection).
+	 * The shared printer instance in connectedPrinters is left untouched.
+	 */
+	private ZebraPrinterLinkOs getLinkOsPrinter(String handle, Connection conn) throws ConnectionException, NotALinkOsPrinterException {
+		ZebraPrinterLinkOs printer = this.getLinkOsPrinter(handle);
+		return ZebraPrinterFactory.getLinkOsPrinter(conn, printer.getLinkOsInformation(), printer.getPrinterControlLanguage());
+	}
+
+	/**
+	 * Returns the text encoding state of the printer. It is kept after disconnecting,
+	 * because the printer keeps its ^CI setting until it is power cycled.
+	 */
+	@NonNull
+	private PrinterEncoding getEncoding(String handle) {
+		return encodings.computeIfAbsent(handle, h -> new PrinterEncoding());
+	}
+
+	/**
+	 * Closes the connection and forgets the printer, the next call will reconnect.
+	 * The close waits for the lanes, so it does not cut off a command of another call; call it on the executor.
+	 */
+	private void dropPrinter(String handle) {
+		ZebraPrinter printer = connectedPrinters.remove(handle);
+		if(printer == null) return;
+		try(PrinterLane.Hold hold = this.holdLane(handle, printer, PrinterLane.Priority.CONTROL);
+			PrinterLane.Hold statusHold = this.holdLane(handle, printer, PrinterLane.Priority.STATUS)) {
+			printer.getConnection().close();
+		} catch(ConnectionException ignored) {}
+	}
+
 	@Override
 	public void connectPrinter(String handle, Promise promise) {
-		Log.d("ZebraModule", "Connecting to printer " + handle);
-		try {
-			ZebraPrinter printer = this.retrieveOrConnectPrinter(handle);
-			PrinterLanguage printerLanguage = printer.getPrinterControlLanguage();
-			PrinterStatus printerStatus = printer.getCurrentStatus();
+		ZebraLog.d(ZebraLog.Category.CONNECTION, "Connecting to printer {}", handle);
+		this.dispatch(handle, PrinterLane.Priority.STATUS, promise, printer -> {
 			WritableMap connData = new WritableNativeMap();
 			connData.putString("handle", handle);
-			connData.putString("controlLanguage", printerLanguage.toString());
-			connData.putMap("status", convertPrinterStatus(printerStatus));
-			promise.resolve(connData);
-			Log.d("ZebraModule", "Connected to printer" + handle);
-		} catch(ConnectionException e) {
-			promise.reject("ConnectionException", e.getMessage(), e);
-		}
+			connData.putString("controlLanguage", printer.getPrinterControlLanguage().toString());
+			connData.putArray("status", PrinterStatusEncoder.encode(printer.getCurrentStatus()));
+			ZebraLog.d(ZebraLog.Category.CONNECTION, "Connected to printer {}", handle);
+			return connData;
+		});
 	}
 
 	@Override
 	public void isPrinterConnected(String handle, Promise promise) {
-		try {
-			ZebraPrinter printer = this.retrieveOrConnectPrinter(handle);
-			boolean connected = printer.getConnection().isConnected();
-			promise.resolve(connected);
-		} catch (ConnectionException e) {
-			promise.resolve(false);
-		}
+		operationExecutor.execute(() -> {
+			try {
+				ZebraPrinter printer = this.retrieveOrConnectPrinter(handle);
+				//read after the I/O queued before it, e.g. a reset closing the connection
+				try(PrinterLane.Hold hold = this.holdLane(handle, printer, PrinterLane.Priority.STATUS)) {
+					promise.resolve(printer.getConnection().isConnected());
+				}
+			} catch (ConnectionException e) {
+				promise.resolve(false);
+			} catch (RuntimeException e) {
+				promise.reject(e);
+			}
+		});
 	}
 
 	@Override
 	public void disconnectPrinter(String handle, Promise promise) {
-		Log.d("ZebraModule", "Disconnecting printer " + handle);
-		ZebraPrinter printer = connectedPrinters.get(handle);
-		if(printer != null){
-			try {
-				Connection conn = printer.getConnection();
-				conn.close();
-			} catch(ConnectionException ignored) {}
-		}
-		connectedPrinters.remove(handle);
-		promise.resolve(null);
+		ZebraLog.d(ZebraLog.Category.CONNECTION, "Disconnecting printer {}", handle);
+		operationExecutor.execute(() -> {
+			this.dropPrinter(handle);
+			promise.resolve(null);
+		});
 	}
 
 	@Override
 	public void getPrinterStatus(String handle, Promise promise) {
-		try {
-			ZebraPrinter printer = this.retrieveOrConnectPrinter(handle);
-			PrinterStatus status = printer.getCurrentStatus();
-			ReadableMap statusMap = convertPrinterStatus(status);
-			promise.resolve(statusMap);
-		} catch (ConnectionException e) {
-			promise.reject("ConnectionException", e.getMessage(), e);
-		}
+		this.dispatch(handle, PrinterLane.Priority.STATUS, promise, printer -> PrinterStatusEncoder.encode(printer.getCurrentStatus()));
 	}
 
 	@RequiresApi(api = Build.VERSION_CODES.KITKAT)
 	@Override
 	public void sendPrinterCommand(String handle, String data, Promise promise) {
-		Log.d("ZebraPrinter", "Sending command to printer: " + handle);
-		try {
+		ZebraLog.d(ZebraLog.Category.IO, "Sending command to printer: {}", handle);
+		PrinterEncoding encoding = this.getEncoding(handle);
+		//through an OperationConnection, so the command is written with the printer's write tuning
+		this.runOperation(handle, null, promise, PrinterLane.Priority.INTERACTIVE, conn -> {
+			//the encoded command and the reply live in per-printer buffers which are reused for every call
+			synchronized (encoding) {
+				int length = encoding.encode(data);
+				PrinterEncoding.ResponseBuffer response = encoding.responseBuffer();
+				long start = System.nanoTime();
+				conn.write(encoding.array(), 0, length);
+				conn.readResponse(response, 500, 100, null);
+				ioTrace.record(handle, IoTrace.KIND_COMMAND, length, response.size(), start);
+				return response.size() > 0 ? response.decode(encoding.getCharset()) : null;
+			}
+		});
+	}
+
+	@Override
+	public void sendPrinterBytes(String handle, ReadableArray data, Promise promise) {
+		ZebraLog.d(ZebraLog.Category.IO, "Sending raw bytes to printer: {}", handle);
+		byte[] dataBytes = reactArrayToByteArray(data);
+		this.runOperation(handle, null, promise, PrinterLane.Priority.INTERACTIVE, conn -> {
+			long start = System.nanoTime();
+			byte[] responseBytes = conn.sendAndWaitForResponse(dataBytes, 500, 100, null);
+			ioTrace.record(handle, IoTrace.KIND_COMMAND, dataBytes.length, responseBytes != null ? responseBytes.length : 0, start);
+			return responseBytes != null && responseBytes.length > 0 ? byteArrayToReactArray(responseBytes) : null;
+		});
+	}
+
+	@Override
+	public void sendPrintJob(String handle, String data, @Nullable ReadableMap options, Promise promise) {
+		String waitFor = getStringOption(options, "waitFor");
+		if(waitFor == null) waitFor = CompletionTracker.STAGE_SENT;
+		if(!waitFor.equals(CompletionTracker.STAGE_SENT) && !waitFor.equals(CompletionTracker.STAGE_BUFFERED) && !waitFor.equals(CompletionTracker.STAGE_PRINTED)) {
+			promise.reject("ZebraIllegalArgumentException", "Unknown completion stage: " + waitFor);
+			return;
+		}
+		String stage = waitFor;
+		int labels = getIntOption(options, "labels", CompletionTracker.countLabels(data));
+		int maxInFlight = getIntOption(options, "maxInFlight", 0);
+		int pollInterval = Math.max(50, getIntOption(options, "pollInterval", 200));
+		CompletionTracker.Job job = new CompletionTracker.Job(CompletionTracker.countFormats(data), labels);
+		CompletionTracker tracker = completionTrackers.computeIfAbsent(handle, h -> new CompletionTracker());
+		PrinterEncoding encoding = this.getEncoding(handle);
+
+		this.runOperation(handle, options, promise, PrinterLane.Priority.INTERACTIVE, conn -> {
 			ZebraPrinter printer = this.retrieveOrConnectPrinter(handle);
-			//printer.sendCommand(data);
-			byte[] responseBytes = printer.getConnection().sendAndWaitForResponse(data.getBytes(StandardCharsets.UTF_8), 500, 100, null);
-			promise.resolve(responseBytes != null ? new String(responseBytes) : null);
-		} catch (ConnectionException e) {
-			promise.reject("ConnectionException", e.getMessage(), e);
+			Connection statusChannel = printer.getConnection() instanceof MultichannelConnection
+				? ((MultichannelConnection)printer.getConnection()).getStatusChannel() : null;
+			Operation operation = conn.getOperation();
+			try {
+				//the lane is only held while the job is written, other work runs while this one waits
+				conn.releaseLane();
+				//keeps at most maxInFlight labels between the app and the printed output
+				while(!tracker.hasCapacity(job.labels, maxInFlight)) {
+					this.pollCompletion(handle, tracker, printer, statusChannel, pollInterval);
+					operation.checkpoint();
+					tracker.await(pollInterval);
+				}
+				long odometer = -1;
+				long sentBefore = tracker.getJobsSent();
+				if(statusChannel != null && tracker.isIdle()) {
+					//read on the status lane, the printing channel is not held for it
+					try(PrinterLane.Hold hold = this.holdLane(handle, printer, PrinterLane.Priority.STATUS)) {
+						odometer = readOdometer(statusChannel);
+					}
+				}
+				conn.acquireLane();
+				synchronized (encoding) {
+					int length = encoding.encode(data);
+					conn.write(encoding.array(), 0, length);
+					//a job sent since the read may have moved the count
+					tracker.sent(job, tracker.getJobsSent() == sentBefore ? odometer : -1);
+				}
+				conn.releaseLane();
+				while(!tracker.reached(job, stage)) {
+					this.pollCompletion(handle, tracker, printer, statusChannel, pollInterval);
+					operation.checkpoint();
+					tracker.await(pollInterval);
+				}
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new ConnectionException(e);
+			}
+			if(job.failure != null) {
+				throw new ConnectionException(job.failure);
+			}
+			return tracker.result(job);
+		});
+	}
+
+	/**
+	 * Queries the printer's counters for the tracker, unless another job's thread has just done so.
+	 * Without a status channel the query shares the printing channel and waits for the command being written.
+	 */
+	private void pollCompletion(String handle, CompletionTracker tracker, ZebraPrinter printer, @Nullable Connection statusChannel, int intervalMs) {
+		if(!tracker.startPoll(intervalMs)) return;
+		try(PrinterLane.Hold hold = this.holdLane(handle, printer, PrinterLane.Priority.STATUS)) {
+			if(statusChannel != null) {
+				PrinterStatus status = printer.getCurrentStatus();
+				tracker.update(status, readOdometer(statusChannel));
+			} else {
+				PrinterStatus status;
+				synchronized (this.getEncoding(handle)) {
+					status = printer.getCurrentStatus();
+				}
+				tracker.update(status, -1);
+			}
+		} catch(ConnectionException e) {
+			ZebraLog.w(ZebraLog.Category.IO, "Completion tracking failed: {}", e.getMessage());
+			tracker.failAll(e.getMessage() != null ? e.getMessage() : "Printer status not available");
+		} finally {
+			tracker.endPoll();
+		}
+	}
+
+	/**
+	 * @return the printer's total label count, -1 if the printer does not report it.
+	 */
+	private static long readOdometer(Connection statusChannel) throws ConnectionException {
+		String value = SGD.GET(CompletionTracker.ODOMETER_SETTING, statusChannel);
+		if(value == null) return -1;
+		try {
+			return Long.parseLong(value.replace("\"", "").trim());
+		} catch(NumberFormatException e) {
+			return -1;
 		}
 	}
 
 	@Override
-	public void calibratePrinter(String handle, Promise promise) {
-		Log.d("ZebraPrinter", "Calibrating printer: " + handle);
+	public void streamPrinterResponse(String handle, String command, String parserType, String requestId, @Nullable ReadableMap options, Promise promise) {
+		ZebraLog.d(ZebraLog.Category.IO, "Streaming response from printer: {}", handle);
+		int initialTimeout = getIntOption(options, "initialTimeout", 5000);
+		int completionTimeout = getIntOption(options, "completionTimeout", 500);
+		int batchSize = Math.max(1, getIntOption(options, "batchSize", 64));
+		String terminator = options != null && options.hasKey("terminator") && !options.isNull("terminator") ? options.getString("terminator") : null;
+		PrinterEncoding encoding = this.getEncoding(handle);
+
+		this.runOperation(handle, options, promise, conn -> {
+			WritableArray[] batch = { new WritableNativeArray() };
+			int[] counts = { 0, 0 };
+			ResponseParser.RecordSink records = (key, value, extra) -> {
+				WritableMap record = new WritableNativeMap();
+				record.putString("key", key);
+				record.putString("value", value);
+				if(extra != null) record.putString("extra", extra);
+				batch[0].pushMap(record);
+				counts[0]++;
+				if(++counts[1] >= batchSize) {
+					this.emitResponseRecords(requestId, batch[0]);
+					batch[0] = new WritableNativeArray();
+					counts[1] = 0;
+				}
+			};
+			long start = System.nanoTime();
+			ResponseParser parser;
+			long bytesRead;
+			synchronized (encoding) {
+				int length = encoding.encode(command);
+				//a ^CI in the command switches the code page the reply is in
+				parser = ResponseParser.create(parserType, encoding.getCharset(), records, terminator);
+				if(parser == null) {
+					throw new ZebraIllegalArgumentException("Unknown response parser: " + parserType);
+				}
+				conn.write(encoding.array(), 0, length);
+				bytesRead = parser.readFrom(conn, initialTimeout, completionTimeout, conn.getOperation());
+				ioTrace.record(handle, IoTrace.KIND_COMMAND, length, bytesRead, start);
+			}
+			if(counts[1] > 0) {
+				this.emitResponseRecords(requestId, batch[0]);
+			}
+			WritableMap summary = new WritableNativeMap();
+			summary.putInt("records", counts[0]);
+			summary.putDouble("bytes", bytesRead);
+			summary.putBoolean("complete", parser.isComplete());
+			return summary;
+		});
+	}
+
+	@Override
+	public void openPrintStream(String handle, String streamId, @Nullable ReadableMap options, Promise promise) {
+		Operation operation;
 		try {
-			ZebraPrinter printer = this.retrieveOrConnectPrinter(handle);
-			printer.calibrate();
-			promise.resolve(null);
-		} catch (ConnectionException e) {
-			promise.reject("ConnectionException", e.getMessage(), e);
+			//the stream ID is the operation ID, so cancelOperation() aborts the stream
+			operation = operations.start(streamId, 0);
+		} catch(IllegalArgumentException e) {
+			promise.reject("ZebraIllegalArgumentException", "Print stream " + streamId + " is already open", e);
+			return;
+		}
+		PrinterEncoding printerEncoding = this.getEncoding(handle);
+		PrintSink sink = new PrintSink(streamId,
+			getIntOption(options, "bufferSize", PrintSink.DEFAULT_BUFFER_SIZE),
+			getIntOption(options, "progressInterval", PrintSink.DEFAULT_PROGRESS_INTERVAL_MS),
+			printerEncoding.getCodePage(), getStringOption(options, "template"),
+			event -> this.emitEvent(EVENT_PRINT_STREAM, event));
+		printStreams.put(streamId, sink);
+		operation.setAbortListener(sink::wake);
+		ZebraLog.d(ZebraLog.Category.IO, "Opening print stream {} on {}", streamId, handle);
+
+		operationExecutor.execute(() -> {
+			String code = null;
+			String message = null;
+			Exception error = null;
+			try {
+				this.executeOperation(handle, operation, PrinterLane.Priority.BULK, conn -> {
+					sink.drain(conn);
+					return null;
+				});
+			} catch(Exception e) {
+				code = errorCode(e, operation);
+				if(code == null) code = e.getClass().getSimpleName();
+				message = operation.isAborted() ? operation.getAbortMessage() : e.getMessage();
+				error = e;
+				ZebraLog.w(ZebraLog.Category.IO, "Print stream {} ended: {}", streamId, message);
+			} finally {
+				operations.finish(operation);
+				printStreams.remove(streamId, sink);
+				//^CI commands in the stream changed the printer's code page
+				if(sink.isCodePageChanged()) printerEncoding.setCodePage(sink.getCodePage());
+			}
+			sink.finish(code, message, error);
+		});
+		promise.resolve(null);
+	}
+
+	@Override
+	public void writePrintStream(String streamId, String data, Promise promise) {
+		PrintSink sink = printStreams.get(streamId);
+		if(sink == null) {
+			promise.reject("ZebraIllegalArgumentException", "Unknown print stream: " + streamId);
+			return;
+		}
+		sink.write(data, promise);
+	}
+
+	@Override
+	public void writePrintStreamRecords(String streamId, ReadableArray records, Promise promise) {
+		PrintSink sink = printStreams.get(streamId);
+		if(sink == null) {
+			promise.reject("ZebraIllegalArgumentException", "Unknown print stream: " + streamId);
+			return;
+		}
+		List<Map<Integer, String>> fields = new ArrayList<>(records.size());
+		for(int i = 0; i < records.size(); i++) {
+			fields.add(toFieldMap(records.getMap(i)));
+		}
+		sink.writeRecords(fields, promise);
+	}
+
+	@Override
+	public void closePrintStream(String streamId, boolean abort, Promise promise) {
+		PrintSink sink = printStreams.get(streamId);
+		if(sink == null) {
+			promise.reject("ZebraIllegalArgumentException", "Unknown print stream: " + streamId);
+			return;
+		}
+		sink.close(abort, promise);
+		if(abort) operations.cancel(streamId);
+	}
+
+	private void emitResponseRecords(String requestId, WritableArray records) {
+		WritableMap event = new WritableNativeMap();
+		event.putString("requestId", requestId);
+		event.putArray("records", records);
+		this.emitEvent(EVENT_RESPONSE_RECORDS, event);
+	}
+
+	private void emitEvent(String name, Object data) {
+		ReactApplicationContext context = getReactApplicationContext();
+		if(context.hasActiveReactInstance()) {
+			context.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class).emit(name, data);
+		}
+	}
+
+	private static int getIntOption(@Nullable ReadableMap options, String key, int fallback) {
+		if(options == null || !options.hasKey(key) || options.isNull(key)) return fallback;
+		return (int)options.getDouble(key);
+	}
+
+	@Override
+	public void setPrinterCodePage(String handle, double codePage, Promise promise) {
+		if(!this.getEncoding(handle).setCodePage((int)codePage)) {
+			promise.reject("ZebraIllegalArgumentException", "Unsupported code page: ^CI" + (int)codePage);
+			return;
 		}
+		promise.resolve(null);
+	}
+
+	@Override
+	public void getPrinterCodePage(String handle, Promise promise) {
+		promise.resolve(this.getEncoding(handle).getCodePage());
+	}
+
+	@Override
+	public void calibratePrinter(String handle, Promise promise) {
+		ZebraLog.d(ZebraLog.Category.IO, "Calibrating printer: {}", handle);
+		this.dispatch(handle, PrinterLane.Priority.CONTROL, promise, printer -> {
+			printer.calibrate();
+			return null;
+		});
 	}
 
 	@Override
 	public void printConfigurationLabel(String handle, Promise promise) {
-		try {
-			ZebraPrinter printer = this.retrieveOrConnectPrinter(handle);
+		this.dispatch(handle, PrinterLane.Priority.INTERACTIVE, promise, printer -> {
 			printer.printConfigurationLabel();
-			promise.resolve(null);
-		} catch (ConnectionException e) {
-			promise.reject("ConnectionException", e.getMessage(), e);
-		}
+			return null;
+		});
 	}
 
 	@Override
 	public void resetPrinter(String handle, Promise promise) {
-		try {
-			ZebraPrinter printer = this.retrieveOrConnectPrinter(handle);
+		this.dispatch(handle, PrinterLane.Priority.CONTROL, promise, printer -> {
 			printer.reset();
-			promise.resolve(null);
-		} catch (ConnectionException e) {
-			promise.reject("ConnectionException", e.getMessage(), e);
-		}
+			return null;
+		});
 	}
 
 	@Override
 	public void restorePrinterDefaults(String handle, Promise promise) {
-		try {
-			ZebraPrinter printer = this.retrieveOrConnectPrinter(handle);
+		this.dispatch(handle, PrinterLane.Priority.CONTROL, promise, printer -> {
 			printer.restoreDefaults();
-			promise.resolve(null);
-		} catch (ConnectionException e) {
-			promise.reject("ConnectionException", e.getMessage(), e);
-		}
+			return null;
+		});
 	}
 
 	@Override
 	public void retrieveFileNames(String handle, @Nullable ReadableArray extensions, Promise promise) {
-		try {
-			ZebraPrinter printer = this.retrieveOrConnectPrinter(handle);
-			if(extensions != null) {
-				String[] ext = extensions.toArrayList().toArray(new String[0]);
-				//String[] ext = (String[])extensions.toArrayList().toArray();
-				printer.retrieveFileNames(ext);
-			}
-			else {
-				printer.retrieveFileNames();
+		Set<String> extensionSet = toFilterSet(extensions);
+		this.lookupFiles(handle, false, promise, index -> FileIndex.toNames(index.find(null, extensionSet)));
+	}
+
+	@Override
+	public void retrieveObjectsProperties(String handle, @Nullable ReadableMap filter, Promise promise) {
+		Set<String> drives = filter != null && filter.hasKey("drives") && !filter.isNull("drives") ? toFilterSet(filter.getArray("drives")) : null;
+		Set<String> extensions = filter != null && filter.hasKey("extensions") && !filter.isNull("extensions") ? toFilterSet(filter.getArray("extensions")) : null;
+		this.lookupFiles(handle, true, promise, index -> FileIndex.toProperties(index.find(drives, extensions)));
+	}
+
+	@Override
+	public void refreshFileIndex(String handle, Promise promise) {
+		FileIndex index = fileIndexes.computeIfAbsent(handle, h -> new FileIndex());
+		operationExecutor.execute(() -> {
+			try {
+				this.listFiles(handle, index);
+				promise.resolve(null);
+			} catch(ConnectionException e) {
+				promise.reject("ConnectionException", e.getMessage(), e);
+			} catch(ZebraIllegalArgumentException e) {
+				promise.reject("ZebraPrinterParseException", e.getMessage(), e);
+			} catch(Throwable e) {
+				//e.g. a listing the index can't parse, the promise has to settle
+				promise.reject(e);
 			}
-			promise.resolve(null);
-		} catch (ConnectionException e) {
-			promise.reject("ConnectionException", e.getMessage(), e);
-		} catch (ZebraIllegalArgumentException e) {
-			promise.reject("ZebraPrinterParseException", e.getMessage(), e);
-		}
+		});
 	}
 
 	@Override
-	public void retrieveObjectsProperties(String handle, Promise promise) {
-		try {
-			ZebraPrinter printer = this.retrieveOrConnectPrinter(handle);
-			List<PrinterObjectProperties> objects = printer.retrieveObjectsProperties();
+	public void setFileIndexTtl(double ttlMs, Promise promise) {
+		fileIndexTtl = Math.max(0, (long)ttlMs);
+		promise.resolve(null);
+	}
 
-			WritableArray jsArray = new WritableNativeArray();
-			for (PrinterObjectProperties obj : objects) {
-				WritableMap jsObject = new WritableNativeMap();
-				jsObject.putString("drivePrefix", obj.getDrivePrefix());
-				jsObject.putString("fileName", obj.getFileName());
-				jsObject.putString("extension", obj.getExtension());
-				jsObject.putString("fullName", obj.getFullName());
-				jsObject.putLong("CRC32", obj.getCRC32());
-				jsObject.putLong("fileSize", obj.getFileSize());
-				jsArray.pushMap(jsObject);
+	@FunctionalInterface
+	private interface FileLookup {
+		/**
+		 * @return value the promise is resolved with
+		 */
+		@Nullable
+		Object find(FileIndex index);
+	}
+
+	/**
+	 * Serves a lookup from the printer's file index. If the index is not current, the printer's files are listed first,
+	 * on the executor.
+	 * @param complete the lookup needs the CRC32 and size of the files
+	 */
+	private void lookupFiles(String handle, boolean complete, Promise promise, FileLookup lookup) {
+		FileIndex index = fileIndexes.computeIfAbsent(handle, h -> new FileIndex());
+		if(index.isCurrent(fileIndexTtl, complete)) {
+			promise.resolve(lookup.find(index));
+			return;
+		}
+		operationExecutor.execute(() -> {
+			try {
+				this.listFiles(handle, index);
+				promise.resolve(lookup.find(index));
+			} catch(ConnectionException e) {
+				promise.reject("ConnectionException", e.getMessage(), e);
+			} catch(ZebraIllegalArgumentException e) {
+				promise.reject("ZebraPrinterParseException", e.getMessage(), e);
+			} catch(Throwable e) {
+				//e.g. a listing the index can't parse, the promise has to settle
+				promise.reject(e);
 			}
-			promise.resolve(jsArray);
-		} catch (ConnectionException e) {
-			promise.reject("ConnectionException", e.getMessage(), e);
-		} catch (ZebraIllegalArgumentException e) {
-			promise.reject("ZebraPrinterParseException", e.getMessage(), e);
+		});
+	}
+
+	private void listFiles(String handle, FileIndex index) throws ConnectionException, ZebraIllegalArgumentException {
+		ZebraPrinter printer = this.retrieveOrConnectPrinter(handle);
+		ZebraLog.d(ZebraLog.Category.IO, "Listing files of {}", handle);
+		try(PrinterLane.Hold hold = this.holdLane(handle, printer, PrinterLane.Priority.INTERACTIVE)) {
+			index.populate(printer.retrieveObjectsProperties());
 		}
 	}
 
+	/**
+	 * Adds a file written by the module to the printer's file index.
+	 * @param extension extension the printer stores the file with, null to take it from the path
+	 */
+	private void indexStored(String handle, String path, @Nullable String extension) {
+		FileIndex index = fileIndexes.get(handle);
+		if(index != null) index.stored(path, extension);
+	}
+
+	private void indexDeleted(String handle, String path) {
+		FileIndex index = fileIndexes.get(handle);
+		if(index != null) index.deleted(path);
+	}
+
+	@Nullable
+	private static Set<String> toFilterSet(@Nullable ReadableArray values) {
+		if(values == null) return null;
+		Set<String> set = new HashSet<>();
+		for(int i = 0; i < values.size(); i++) {
+			set.add(FileIndex.filterKey(values.getString(i)));
+		}
+		return set;
+	}
+
 	@Override
-	public void sendFileContents(String handle, String filePath, @Nullable Callback progressCallback, Promise promise) {
-		try {
-			ZebraPrinter printer = this.retrieveOrConnectPrinter(handle);
+	public void sendFileContents(String handle, String filePath, @Nullable Callback progressCallback, @Nullable ReadableMap options, Promise promise) {
+		this.runOperation(handle, options, promise, conn -> {
+			ZebraPrinter printer = ZebraPrinterFactory.getInstance(this.retrieveOrConnectPrinter(handle).getPrinterControlLanguage(), conn);
 			if(progressCallback != null)
 				printer.sendFileContents(filePath, progressCallback::invoke);
 			else
 				printer.sendFileContents(filePath);
-
-			promise.resolve(null);
-		} catch (ConnectionException e) {
-			promise.reject("ConnectionException", e.getMessage(), e);
-		}
+			return null;
+		});
 	}
 
 	@Override
 	public void printImageFromFile(String handle, String imagePath, double x, double y, double width, double height, boolean insideFormat, Promise promise) {
-		try {
+		ZebraLog.d(ZebraLog.Category.IMAGES, "Printing image file on {}", handle);
+		this.printImage(handle, () -> ZebraImageFactory.getImage(imagePath), (int)x, (int)y, (int)width, (int)height, insideFormat, promise);
+	}
+
+	@Override
+	public void printImageFromBuffer(String handle, ReadableArray imageData, double x, double y, double width, double height, boolean insideFormat, Promise promise) {
+		ZebraLog.d(ZebraLog.Category.IMAGES, "Printing image buffer on {}", handle);
+		byte[] imageBytes = reactArrayToByteArray(imageData);
+		this.printImage(handle, () -> ZebraImageFactory.getImage(new ByteArrayInputStream(imageBytes)), (int)x, (int)y, (int)width, (int)height, insideFormat, promise);
+	}
+
+	/**
+	 * Prints the image through an OperationConnection, so the graphic is written with the printer's write tuning.
+	 */
+	private void printImage(String handle, ImageSource source, int x, int y, int width, int height, boolean insideFormat, Promise promise) {
+		this.runOperation(handle, null, promise, PrinterLane.Priority.INTERACTIVE, conn -> {
 			ZebraPrinter printer = this.retrieveOrConnectPrinter(handle);
-			ZebraImageI image = ZebraImageFactory.getImage(imagePath);
-			printer.printImage(image, (int)x, (int)y, (int)width, (int)height, insideFormat);
-			promise.resolve(null);
-		} catch (ConnectionException e) {
-			promise.reject("ConnectionException", e.getMessage(), e);
-		} catch (IOException e) {
-			promise.reject("IOException", e.getMessage(), e);
+			ZebraPrinterFactory.getInstance(printer.getPrinterControlLanguage(), conn).printImage(source.load(), x, y, width, height, insideFormat);
+			return null;
+		});
+	}
+
+	@Override
+	public void storeImageFromFile(String handle, String targetPath, String imagePath, double width, double height, @Nullable ReadableMap options, Promise promise) {
+		ZebraLog.d(ZebraLog.Category.IMAGES, "Storing image file on {}", handle);
+		this.storeImage(handle, targetPath, () -> ZebraImageFactory.getImage(imagePath), (int)width, (int)height, options, promise);
+	}
+
+	@Override
+	public void storeImageFromBuffer(String handle, String targetPath, ReadableArray imageData, double width, double height, @Nullable ReadableMap options, Promise promise) {
+		ZebraLog.d(ZebraLog.Category.IMAGES, "Storing image buffer on {}", handle);
+		byte[] imageBytes = reactArrayToByteArray(imageData);
+		this.storeImage(handle, targetPath, () -> ZebraImageFactory.getImage(new ByteArrayInputStream(imageBytes)), (int)width, (int)height, options, promise);
+	}
+
+	@FunctionalInterface
+	private interface ImageSource {
+		ZebraImageI load() throws IOException;
+	}
+
+	/**
+	 * Stores the image as GRF. Without compression it is sent by ZSDK as ASCII hex (~DG),
+	 * with compression the dithered bitmap is uploaded with ~DY as Z64 or B64.
+	 */
+	private void storeImage(String handle, String targetPath, ImageSource source, int width, int height, @Nullable ReadableMap options, Promise promise) {
+		String requestedMode = getStringOption(options, "compression");
+		try {
+			ObjectUpload.checkMode(requestedMode);
+		} catch(IllegalArgumentException e) {
+			promise.reject("ZebraIllegalArgumentException", e.getMessage(), e);
+			return;
+		}
+		if(requestedMode == null || requestedMode.equals(ObjectUpload.MODE_NONE)) {
+			this.runOperation(handle, options, promise, conn -> {
+				ZebraPrinter printer = this.retrieveOrConnectPrinter(handle);
+				ZebraPrinterFactory.getInstance(printer.getPrinterControlLanguage(), conn).storeImage(targetPath, source.load(), width, height);
+				this.indexStored(handle, targetPath, "GRF");
+				return null;
+			});
+			return;
 		}
+		this.runOperation(handle, options, promise, conn -> {
+			ZebraPrinter printer = this.retrieveOrConnectPrinter(handle);
+			if(printer.getPrinterControlLanguage() != PrinterLanguage.ZPL) {
+				throw new ZebraIllegalArgumentException("Compressed image upload requires a ZPL printer");
+			}
+			//the same dithering as ZSDK's storeImage()
+			GrfImage image = GrfImage.dither(source.load(), width, height);
+			String mode = ObjectUpload.resolveMode(requestedMode, image.data);
+			ZebraLog.d(ZebraLog.Category.IMAGES, "Storing {} with compression {}", targetPath, mode);
+			if(mode.equals(ObjectUpload.MODE_NONE)) {
+				ZebraPrinterFactory.getInstance(PrinterLanguage.ZPL, conn).storeImage(targetPath, image.image, image.width, image.height);
+			} else {
+				ObjectUpload.write(conn, targetPath, "G", image.data, image.bytesPerRow(), mode);
+			}
+			this.indexStored(handle, targetPath, "GRF");
+			return null;
+		});
+	}
+
+	@Nullable
+	private static String getStringOption(@Nullable ReadableMap options, String key) {
+		if(options == null || !options.hasKey(key) || options.isNull(key)) return null;
+		return options.getString(key);
+	}
+
+	@Override
+	public void retrieveFormatFromPrinter(String handle, String formatPathOnPrinter, Promise promise) {
+		PrinterEncoding encoding = this.getEncoding(handle);
+		this.dispatch(handle, PrinterLane.Priority.INTERACTIVE, promise, printer -> {
+			synchronized (encoding) {
+				PrinterEncoding.ResponseBuffer formatRaw = encoding.responseBuffer();
+				printer.retrieveFormatFromPrinter(formatRaw, formatPathOnPrinter);
+				return formatRaw.decode(encoding.getCharset());
+			}
+		});
 	}
 
 	@Override
-	public void printImageFromBuffer(String handle, ReadableArray imageData, double x, double y, double width, double height, boolean insideFormat, Promise promise) {
-		try {
-			ZebraPrinter printer = this.retrieveOrConnectPrinter(handle);
-			ZebraImageI image = ZebraImageFactory.getImage(reactArrayToInputStream(imageData));
-			printer.printImage(image, (int)x, (int)y, (int)width, (int)height, insideFormat);
-			promise.resolve(null);
-		} catch (ConnectionException e) {
-			promise.reject("ConnectionException", e.getMessage(), e);
-		} catch (IOException e) {
-			promise.reject("IOException", e.getMessage(), e);
+	public void printStoredFormat(String handle, String formatPathOnPrinter, ReadableMap vars, Promise promise) {
+		Map<Integer, String> fields = toFieldMap(vars);
+		String charset = this.getEncoding(handle).getCharset().name();
+		this.dispatch(handle, PrinterLane.Priority.INTERACTIVE, promise, printer -> {
+			printer.printStoredFormat(formatPathOnPrinter, fields, charset);
+			return null;
+		});
+	}
+
+	private static Map<Integer, String> toFieldMap(ReadableMap vars) {
+		Map<Integer, String> map = new HashMap<>();
+		for(Map.Entry<String, Object> entry : vars.toHashMap().entrySet()){
+			try {
+				map.put(Integer.parseInt(entry.getKey()), entry.getValue().toString());
+			} catch (NumberFormatException ignored) {
+				ZebraLog.w(ZebraLog.Category.IO, "Invalid number passed to format map.");
+			}
 		}
+		return map;
 	}
 
 	@Override
-	public void storeImageFromFile(String handle, String targetPath, String imagePath, double width, double height, Promise promise) {
-		try {
-			ZebraPrinter printer = this.retrieveOrConnectPrinter(handle);
-			ZebraImageI image = ZebraImageFactory.getImage(imagePath);
-			printer.storeImage(targetPath, image, (int)width, (int)height);
-			promise.resolve(null);
-		} catch (ConnectionException e) {
-			promise.reject("ConnectionException", e.getMessage(), e);
-		} catch (ZebraIllegalArgumentException e) {
-			promise.reject("ZebraIllegalArgumentException", e.getMessage(), e);
-		} catch (IOException e) {
-			promise.reject("IOException", e.getMessage(), e);
+	public void printTemplate(String handle, String template, ReadableMap fields, @Nullable ReadableMap options, Promise promise) {
+		String body = FormatCache.body(template);
+		long fingerprint = FormatCache.fingerprint(body);
+		Map<Integer, String> fieldMap = toFieldMap(fields);
+		int promoteAfter = Math.max(1, getIntOption(options, "promoteAfter", FormatCache.DEFAULT_PROMOTE_AFTER));
+		int validateInterval = getIntOption(options, "validateInterval", FormatCache.DEFAULT_VALIDATE_INTERVAL_MS);
+		String drive = getStringOption(options, "drive");
+		if(drive == null) drive = "E";
+		if(drive.length() != 1 || !Character.isLetter(drive.charAt(0))) {
+			promise.reject("ZebraIllegalArgumentException", "Invalid drive: " + drive);
+			return;
 		}
+		String preferredDrive = drive.toUpperCase(Locale.ROOT);
+		FormatCache cache = formatCaches.computeIfAbsent(handle, h -> new FormatCache());
+		PrinterEncoding encoding = this.getEncoding(handle);
+
+		this.runOperation(handle, options, promise, PrinterLane.Priority.INTERACTIVE, conn -> {
+			ZebraPrinter printer = this.retrieveOrConnectPrinter(handle);
+			boolean promoted = false;
+			FormatCache.StoredFormat format;
+			//one printer's formats are checked and stored by one job at a time
+			synchronized (cache) {
+				if(cache.needsValidation(printer, validateInterval)) {
+					List<PrinterObjectProperties> objects = ZebraPrinterFactory.getInstance(printer.getPrinterControlLanguage(), conn).retrieveObjectsProperties();
+					cache.validate(printer, objects);
+					fileIndexes.computeIfAbsent(handle, h -> new FileIndex()).populate(objects);
+				}
+				format = cache.get(fingerprint);
+				if(format == null && printer.getPrinterControlLanguage() == PrinterLanguage.ZPL && cache.submitted(fingerprint, promoteAfter)) {
+					format = this.storeFormat(handle, conn, cache, fingerprint, body, preferredDrive);
+					promoted = format != null;
+				}
+			}
+
+			String label;
+			if(format != null) {
+				label = FormatCache.recallCommand(format.path, fieldMap);
+				cache.recalled(format, FormatCache.inline(body, fieldMap).length() - label.length());
+			} else {
+				label = FormatCache.inline(body, fieldMap);
+				cache.sentInline();
+			}
+			int length;
+			synchronized (encoding) {
+				length = encoding.encode(label);
+				conn.write(encoding.array(), 0, length);
+			}
+			WritableMap result = new WritableNativeMap();
+			result.putBoolean("recalled", format != null);
+			result.putBoolean("stored", promoted);
+			if(format != null) result.putString("path", format.path);
+			result.putInt("bytes", length);
+			return result;
+		});
 	}
 
-	@Override
-	public void storeImageFromBuffer(String handle, String targetPath, ReadableArray imageData, double width, double height, Promise promise) {
+	/**
+	 * Stores the template as a format on the preferred drive, or on R: when the preferred drive is full.
+	 * A format already on the printer under the template's name is adopted instead.
+	 * @return null if the printer is not a Link-OS printer, has no room, or did not store the format.
+	 */
+	@Nullable
+	private FormatCache.StoredFormat storeFormat(String handle, OperationConnection conn, FormatCache cache, long fingerprint, String body, String preferredDrive) throws ConnectionException, ZebraIllegalArgumentException {
+		ZebraPrinterLinkOs printer;
 		try {
-			ZebraPrinter printer = this.retrieveOrConnectPrinter(handle);
-			ZebraImageI image = ZebraImageFactory.getImage(reactArrayToInputStream(imageData));
-			printer.storeImage(targetPath, image, (int)width, (int)height);
-			promise.resolve(null);
-		} catch (ConnectionException e) {
-			promise.reject("ConnectionException", e.getMessage(), e);
-		} catch (ZebraIllegalArgumentException e) {
-			promise.reject("ZebraIllegalArgumentException", e.getMessage(), e);
-		} catch (IOException e) {
-			promise.reject("IOException", e.getMessage(), e);
+			printer = this.getLinkOsPrinter(handle, conn);
+		} catch(NotALinkOsPrinterException e) {
+			return null;
+		}
+		List<PrinterObjectProperties> objects = printer.retrieveObjectsProperties();
+		FileIndex index = fileIndexes.computeIfAbsent(handle, h -> new FileIndex());
+		index.populate(objects);
+		for(String drive : new String[] { preferredDrive, "R" }) {
+			PrinterObjectProperties existing = FormatCache.find(objects, FormatCache.path(drive, fingerprint));
+			if(existing != null) {
+				FormatCache.StoredFormat format = new FormatCache.StoredFormat(fingerprint, existing.getFullName(), existing.getCRC32(), existing.getFileSize());
+				cache.put(format);
+				return format;
+			}
+		}
+
+		PrinterEncoding encoding = this.getEncoding(handle);
+		String path;
+		int length;
+		synchronized (encoding) {
+			//paths only differ in the drive letter, so the command has the same length on every drive
+			length = encoding.encode(FormatCache.storeCommand(FormatCache.path(preferredDrive, fingerprint), body));
+			long needed = length + FormatCache.SPACE_MARGIN;
+			Map<String, Long> free = new HashMap<>();
+			for(StorageInfo storage : printer.getStorageInfo()) {
+				free.put(String.valueOf(storage.driveLetter).toUpperCase(Locale.ROOT), storage.bytesFree);
+			}
+			//formats to delete, least recently used first and only as many as needed
+			List<FormatCache.StoredFormat> evicted = new ArrayList<>();
+			Iterator<FormatCache.StoredFormat> candidates = cache.leastRecentlyUsed().iterator();
+			if(cache.isFull() && candidates.hasNext()) {
+				evicted.add(freeFormat(free, candidates.next()));
+			}
+			String drive;
+			while((drive = formatDrive(free, needed, preferredDrive)) == null && candidates.hasNext()) {
+				evicted.add(freeFormat(free, candidates.next()));
+			}
+			if(drive == null) {
+				if(ZebraLog.isEnabled(ZebraLog.Category.IO, ZebraLog.DEBUG)) {
+					ZebraLog.d(ZebraLog.Category.IO, "No room for format of {} bytes on {}", length, handle);
+				}
+				return null;
+			}
+			for(FormatCache.StoredFormat format : evicted) {
+				ZebraLog.d(ZebraLog.Category.IO, "Deleting least recently used format {}", format.path);
+				printer.deleteFile(format.path);
+				cache.remove(format.fingerprint);
+				index.deleted(format.path);
+			}
+			path = FormatCache.path(drive, fingerprint);
+			if(!drive.equals(preferredDrive)) {
+				length = encoding.encode(FormatCache.storeCommand(path, body));
+			}
+			conn.write(encoding.array(), 0, length);
+		}
+		//the printer writes the format after it has parsed ^DF, list its objects until it shows up.
+		//The lane stays held, other jobs of this printer would wait for the cache while holding it.
+		PrinterObjectProperties stored = null;
+		Operation operation = conn.getOperation();
+		for(int check = 1; stored == null && check <= FormatCache.STORE_CHECKS; check++) {
+			try {
+				Thread.sleep((long)FormatCache.STORE_CHECK_DELAY_MS * check);
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new ConnectionException(e);
+			}
+			operation.checkpoint();
+			objects = printer.retrieveObjectsProperties();
+			index.populate(objects);
+			stored = FormatCache.find(objects, path);
 		}
+		if(stored == null) {
+			ZebraLog.w(ZebraLog.Category.IO, "Printer did not store format {}", path);
+			return null;
+		}
+		ZebraLog.d(ZebraLog.Category.IO, "Stored format {} on {}", path, handle);
+		FormatCache.StoredFormat format = new FormatCache.StoredFormat(fingerprint, path, stored.getCRC32(), stored.getFileSize());
+		cache.put(format);
+		return format;
+	}
+
+	/**
+	 * Counts the space of a format to be deleted as free on its drive.
+	 */
+	private static FormatCache.StoredFormat freeFormat(Map<String, Long> free, FormatCache.StoredFormat format) {
+		free.computeIfPresent(format.path.substring(0, 1), (drive, bytes) -> bytes + Math.max(0, format.size));
+		return format;
+	}
+
+	/**
+	 * @return the preferred drive if it has the space, else R:, null if neither has it.
+	 */
+	@Nullable
+	private static String formatDrive(Map<String, Long> free, long needed, String preferredDrive) {
+		Long preferred = free.get(preferredDrive);
+		if(preferred != null && preferred >= needed) return preferredDrive;
+		Long ram = free.get("R");
+		if(ram != null && ram >= needed) return "R";
+		return null;
 	}
 
 	@Override
-	public void retrieveFormatFromPrinter(String handle, String formatPathOnPrinter, Promise promise) {
-		try {
-			ZebraPrinter printer = this.retrieveOrConnectPrinter(handle);
-			byte[] formatRaw = printer.retrieveFormatFromPrinter(formatPathOnPrinter);
-			promise.resolve(new String(formatRaw));
-		} catch (ConnectionException e) {
-			promise.reject("ConnectionException", e.getMessage(), e);
-		}
+	public void getTemplateCacheStats(String handle, Promise promise) {
+		FormatCache cache = formatCaches.get(handle);
+		promise.resolve(cache != null ? cache.stats() : null);
 	}
 
 	@Override
-	public void printStoredFormat(String handle, String formatPathOnPrinter, ReadableMap vars, Promise promise) {
-		try {
-			ZebraPrinter printer = this.retrieveOrConnectPrinter(handle);
-			Map<Integer, String> map = new HashMap<>();
-			for(Map.Entry<String, Object> entry : vars.toHashMap().entrySet()){
-				try {
-					map.put(Integer.parseInt(entry.getKey()), entry.getValue().toString());
-				} catch (NumberFormatException ignored) {
-					Log.w("ZebraModule", "Invalid number passed to format map.");
-				}
-			}
-			printer.printStoredFormat(formatPathOnPrinter, map);
+	public void clearTemplateCache(String handle, boolean deleteFromPrinter, Promise promise) {
+		FormatCache cache = formatCaches.remove(handle);
+		if(cache == null || !deleteFromPrinter) {
 			promise.resolve(null);
-		} catch (ConnectionException e) {
-			promise.reject("ConnectionException", e.getMessage(), e);
+			return;
 		}
+		this.runOperation(handle, null, promise, conn -> {
+			ZebraPrinterLinkOs printer = this.getLinkOsPrinter(handle, conn);
+			for(FormatCache.StoredFormat format : cache.clear()) {
+				conn.commandBoundary();
+				printer.deleteFile(format.path);
+				this.indexDeleted(handle, format.path);
+			}
+			return null;
+		});
 	}
 
 	@Override
 	public void getCommunityName(String handle, Promise promise) {
-		try {
-			ZebraPrinterLinkOs printer = this.getLinkOsPrinter(handle);
-			promise.resolve(printer.getGetCommunityName());
-		} catch (ConnectionException e) {
-			promise.reject("ConnectionException", e.getMessage(), e);
-		} catch (NotALinkOsPrinterException e) {
-			promise.reject("NotALinkOsPrinterException", e.getMessage(), e);
-		}
+		this.dispatchLinkOs(handle, PrinterLane.Priority.INTERACTIVE, promise, ZebraPrinterLinkOs::getGetCommunityName);
 	}
 
 	@Override
 	public void getLinkOsVersion(String handle, Promise promise) {
-		try {
-			ZebraPrinterLinkOs printer = this.getLinkOsPrinter(handle);
+		this.dispatchLinkOs(handle, PrinterLane.Priority.INTERACTIVE, promise, printer -> {
 			LinkOsInformation info = printer.getLinkOsInformation();
-			promise.resolve(info.getMajor() + "." + info.getMinor() + "." + info.getMicro());
-		} catch (ConnectionException e) {
-			promise.reject("ConnectionException", e.getMessage(), e);
-		} catch (NotALinkOsPrinterException e) {
-			promise.reject("NotALinkOsPrinterException", e.getMessage(), e);
-		}
+			return info.getMajor() + "." + info.getMinor() + "." + info.getMicro();
+		});
 	}
 
 	@Override
 	public void getPortStatus(String handle, Promise promise) {
-		try {
-			ZebraPrinterLinkOs printer = this.getLinkOsPrinter(handle);
-
+		this.dispatchLinkOs(handle, PrinterLane.Priority.INTERACTIVE, promise, printer -> {
 			WritableArray jsArray = new WritableNativeArray();
 			for (TcpPortStatus obj : printer.getPortStatus()) {
 				WritableMap jsObject = new WritableNativeMap();
@@ -452,19 +1635,13 @@ public class ZebraModule extends NativeRNZebraLinkOSSpec {
 				jsObject.putString("status", obj.getStatus());
 				jsArray.pushMap(jsObject);
 			}
-			promise.resolve(jsArray);
-		} catch (ConnectionException e) {
-			promise.reject("ConnectionException", e.getMessage(), e);
-		} catch (NotALinkOsPrinterException e) {
-			promise.reject("NotALinkOsPrinterException", e.getMessage(), e);
-		}
+			return jsArray;
+		});
 	}
 
 	@Override
 	public void getStorageInfo(String handle, Promise promise) {
-		try {
-			ZebraPrinterLinkOs printer = this.getLinkOsPrinter(handle);
-
+		this.dispatchLinkOs(handle, PrinterLane.Priority.INTERACTIVE, promise, printer -> {
 			WritableArray jsArray = new WritableNativeArray();
 			for (StorageInfo obj : printer.getStorageInfo()) {
 				WritableMap jsObject = new WritableNativeMap();
@@ -474,160 +1651,504 @@ public class ZebraModule extends NativeRNZebraLinkOSSpec {
 				jsObject.putBoolean("isPersistent", obj.isPersistent);
 				jsArray.pushMap(jsObject);
 			}
-			promise.resolve(jsArray);
-		} catch (ConnectionException e) {
-			promise.reject("ConnectionException", e.getMessage(), e);
-		} catch (NotALinkOsPrinterException e) {
-			promise.reject("NotALinkOsPrinterException", e.getMessage(), e);
-		}
+			return jsArray;
+		});
 	}
 
 	@Override
-	public void storeFileOnPrinter(String handle, String targetPath, ReadableArray fileContents, Promise promise) {
+	public void storeFileOnPrinter(String handle, String targetPath, ReadableArray fileContents, @Nullable ReadableMap options, Promise promise) {
+		byte[] data = reactArrayToByteArray(fileContents);
+		this.uploadObject(handle, targetPath, ObjectUpload.extensionCode(targetPath), data, options, promise, conn -> {
+			ZebraPrinterLinkOs printer = this.getLinkOsPrinter(handle, conn);
+			printer.storeFileOnPrinter(data, targetPath);
+			return null;
+		});
+	}
+
+	/**
+	 * Uploads an object with the compression requested in options ("compression": auto, z64, b64 or none).
+	 * The object is added to the printer's file index once it is uploaded.
+	 * @param extension ~DY extension code, null if the object can't be sent with ~DY
+	 * @param uncompressed the ZSDK upload, used when the data is sent as is
+	 */
+	private void uploadObject(String handle, String targetPath, @Nullable String extension, byte[] data, @Nullable ReadableMap options, Promise promise, OperationTask uncompressed) {
+		String mode;
 		try {
-			ZebraPrinterLinkOs printer = this.getLinkOsPrinter(handle);
-			printer.storeFileOnPrinter(reactArrayToByteArray(fileContents), targetPath);
-			promise.resolve(null);
-		} catch (ConnectionException e) {
-			promise.reject("ConnectionException", e.getMessage(), e);
-		} catch (ZebraIllegalArgumentException e) {
+			String requestedMode = getStringOption(options, "compression");
+			ObjectUpload.checkMode(requestedMode);
+			//objects ~DY can't store are sent as is
+			mode = extension != null ? ObjectUpload.resolveMode(requestedMode, data) : ObjectUpload.MODE_NONE;
+		} catch(IllegalArgumentException e) {
 			promise.reject("ZebraIllegalArgumentException", e.getMessage(), e);
-		} catch (NotALinkOsPrinterException e) {
-			promise.reject("NotALinkOsPrinterException", e.getMessage(), e);
+			return;
 		}
+		ZebraLog.d(ZebraLog.Category.IO, "Uploading {} with compression {}", targetPath, mode);
+		OperationTask upload = mode.equals(ObjectUpload.MODE_NONE) ? uncompressed : conn -> {
+			ObjectUpload.write(conn, targetPath, extension, data, 0, mode);
+			return null;
+		};
+		this.runOperation(handle, options, promise, conn -> {
+			Object result = upload.run(conn);
+			this.indexStored(handle, targetPath, null);
+			return result;
+		});
 	}
 
 	@Override
 	public void getObjectFromPrinter(String handle, String filePath, Promise promise) {
-		try {
-			ZebraPrinterLinkOs printer = this.getLinkOsPrinter(handle);
-			byte[] buffer = printer.getObjectFromPrinter(filePath);
-			promise.resolve(byteArrayToReactArray(buffer));
-		} catch (ConnectionException e) {
-			promise.reject("ConnectionException", e.getMessage(), e);
-		} catch (ZebraIllegalArgumentException e) {
-			promise.reject("ZebraIllegalArgumentException", e.getMessage(), e);
-		} catch (NotALinkOsPrinterException e) {
-			promise.reject("NotALinkOsPrinterException", e.getMessage(), e);
-		}
+		this.runOperation(handle, null, promise, conn -> {
+			ZebraPrinterLinkOs printer = this.getLinkOsPrinter(handle, conn);
+			return byteArrayToReactArray(printer.getObjectFromPrinter(filePath));
+		});
 	}
 
 	@Override
 	public void deleteFile(String handle, String filePath, Promise promise) {
-		try {
-			ZebraPrinterLinkOs printer = this.getLinkOsPrinter(handle);
+		this.dispatchLinkOs(handle, PrinterLane.Priority.INTERACTIVE, promise, printer -> {
 			printer.deleteFile(filePath);
-			promise.resolve(null);
-		} catch (ConnectionException e) {
-			promise.reject("ConnectionException", e.getMessage(), e);
-		} catch (NotALinkOsPrinterException e) {
-			promise.reject("NotALinkOsPrinterException", e.getMessage(), e);
-		}
+			this.indexDeleted(handle, filePath);
+			return null;
+		});
 	}
 
 	@Override
-	public void uploadTTFFont(String handle, String targetPath, ReadableArray fontData, Promise promise) {
-		try {
-			ZebraPrinterLinkOs printer = this.getLinkOsPrinter(handle);
-			InputStream stream = reactArrayToInputStream(fontData);
+	public void uploadTTFFont(String handle, String targetPath, ReadableArray fontData, @Nullable ReadableMap options, Promise promise) {
+		byte[] data = reactArrayToByteArray(fontData);
+		this.uploadObject(handle, targetPath, "T", data, options, promise, conn -> {
+			ZebraPrinterLinkOs printer = this.getLinkOsPrinter(handle, conn);
 			//for some reason they call this method "download", even if it sends the file to the printer
-			printer.downloadTtfFont(stream, targetPath);
-			promise.resolve(null);
-		} catch (ConnectionException e) {
-			promise.reject("ConnectionException", e.getMessage(), e);
-		} catch (NotALinkOsPrinterException e) {
-			promise.reject("NotALinkOsPrinterException", e.getMessage(), e);
-		}
+			printer.downloadTtfFont(new ByteArrayInputStream(data), targetPath);
+			return null;
+		});
 	}
 
 	@Override
-	public void uploadTTEFont(String handle, String targetPath, ReadableArray fontData, Promise promise) {
-		try {
-			ZebraPrinterLinkOs printer = this.getLinkOsPrinter(handle);
-			InputStream stream = reactArrayToInputStream(fontData);
+	public void uploadTTEFont(String handle, String targetPath, ReadableArray fontData, @Nullable ReadableMap options, Promise promise) {
+		byte[] data = reactArrayToByteArray(fontData);
+		this.uploadObject(handle, targetPath, "E", data, options, promise, conn -> {
+			ZebraPrinterLinkOs printer = this.getLinkOsPrinter(handle, conn);
 			//for some reason they call this method "download", even if it sends the file to the printer
-			printer.downloadTteFont(stream, targetPath);
-			promise.resolve(null);
-		} catch (ConnectionException e) {
-			promise.reject("ConnectionException", e.getMessage(), e);
-		} catch (NotALinkOsPrinterException e) {
-			promise.reject("NotALinkOsPrinterException", e.getMessage(), e);
-		}
+			printer.downloadTteFont(new ByteArrayInputStream(data), targetPath);
+			return null;
+		});
 	}
 
 	@Override
 	public void printDirectoryLabel(String handle, Promise promise) {
-		try {
-			ZebraPrinterLinkOs printer = this.getLinkOsPrinter(handle);
+		this.dispatchLinkOs(handle, PrinterLane.Priority.INTERACTIVE, promise, printer -> {
 			printer.printDirectoryLabel();
-			promise.resolve(null);
-		} catch (ConnectionException e) {
-			promise.reject("ConnectionException", e.getMessage(), e);
-		} catch (NotALinkOsPrinterException e) {
-			promise.reject("NotALinkOsPrinterException", e.getMessage(), e);
-		}
+			return null;
+		});
 	}
 
 	@Override
 	public void printNetworkConfigurationLabel(String handle, Promise promise) {
-		try {
-			ZebraPrinterLinkOs printer = this.getLinkOsPrinter(handle);
+		this.dispatchLinkOs(handle, PrinterLane.Priority.INTERACTIVE, promise, printer -> {
 			printer.printNetworkConfigurationLabel();
-			promise.resolve(null);
-		} catch (ConnectionException e) {
-			promise.reject("ConnectionException", e.getMessage(), e);
-		} catch (NotALinkOsPrinterException e) {
-			promise.reject("NotALinkOsPrinterException", e.getMessage(), e);
-		}
+			return null;
+		});
 	}
 
 	@Override
 	public void resetNetwork(String handle, Promise promise) {
-		try {
-			ZebraPrinterLinkOs printer = this.getLinkOsPrinter(handle);
+		this.dispatchLinkOs(handle, PrinterLane.Priority.CONTROL, promise, printer -> {
 			printer.resetNetwork();
-			promise.resolve(null);
-		} catch (ConnectionException e) {
-			promise.reject("ConnectionException", e.getMessage(), e);
-		} catch (NotALinkOsPrinterException e) {
-			promise.reject("NotALinkOsPrinterException", e.getMessage(), e);
-		}
+			return null;
+		});
 	}
 
 	@Override
 	public void restoreNetworkDefaults(String handle, Promise promise) {
-		try {
-			ZebraPrinterLinkOs printer = this.getLinkOsPrinter(handle);
+		this.dispatchLinkOs(handle, PrinterLane.Priority.CONTROL, promise, printer -> {
 			printer.restoreNetworkDefaults();
-			promise.resolve(null);
-		} catch (ConnectionException e) {
-			promise.reject("ConnectionException", e.getMessage(), e);
-		} catch (NotALinkOsPrinterException e) {
-			promise.reject("NotALinkOsPrinterException", e.getMessage(), e);
-		}
+			return null;
+		});
 	}
 
 	@Override
 	public void setClock(String handle, String dateTime, Promise promise) {
-		try {
-			ZebraPrinterLinkOs printer = this.getLinkOsPrinter(handle);
+		this.dispatchLinkOs(handle, PrinterLane.Priority.CONTROL, promise, printer -> {
 			printer.setClock(dateTime);
-			promise.resolve(null);
-		} catch (ConnectionException e) {
-			promise.reject("ConnectionException", e.getMessage(), e);
+			return null;
+		});
+	}
+
+	/**
+	 * Creates the per-printer task of a group operation.
+	 * @param operation JS object with the operation type and its arguments
+	 */
+	@NonNull
+	private Function<String, OperationTask> createGroupTask(ReadableMap operation) throws ZebraIllegalArgumentException {
+		String type = operation.hasKey("type") ? operation.getString("type") : null;
+		if(type == null) {
+			throw new ZebraIllegalArgumentException("Group operation type is missing");
+		}
+		switch(type) {
+			case GROUP_SEND: {
+				String data = requireString(operation, "data");
+				return handle -> conn -> {
+					PrinterEncoding encoding = this.getEncoding(handle);
+					synchronized (encoding) {
+						int length = encoding.encode(data);
+						conn.write(encoding.array(), 0, length);
+					}
+					return null;
+				};
+			}
+			case GROUP_STORE_FILE: {
+				String targetPath = requireString(operation, "targetPath");
+				if(!operation.hasKey("fileContents") || operation.isNull("fileContents")) {
+					throw new ZebraIllegalArgumentException("Group operation is missing fileContents");
+				}
+				byte[] data = reactArrayToByteArray(operation.getArray("fileContents"));
+				return handle -> conn -> {
+					this.getLinkOsPrinter(handle, conn).storeFileOnPrinter(data, targetPath);
+					return null;
+				};
+			}
+			case GROUP_SET_CLOCK: {
+				String dateTime = requireString(operation, "dateTime");
+				return handle -> conn -> {
+					this.getLinkOsPrinter(handle, conn).setClock(dateTime);
+					return null;
+				};
+			}
+			case GROUP_SET_SETTINGS: {
+				if(!operation.hasKey("settings") || operation.isNull("settings")) {
+					throw new ZebraIllegalArgumentException("Group operation is missing settings");
+				}
+				Map<String, String> settings = new HashMap<>();
+				ReadableMap settingsMap = operation.getMap("settings");
+				ReadableMapKeySetIterator iterator = settingsMap.keySetIterator();
+				while(iterator.hasNextKey()) {
+					String key = iterator.nextKey();
+					settings.put(key, settingsMap.getString(key));
+				}
+				return handle -> conn -> {
+					this.getLinkOsPrinter(handle, conn).setSettings(settings);
+					return null;
+				};
+			}
+			case GROUP_PRINT_CONFIGURATION_LABEL:
+				return handle -> conn -> {
+					PrinterLanguage language = this.retrieveOrConnectPrinter(handle).getPrinterControlLanguage();
+					ZebraPrinterFactory.getInstance(language, conn).printConfigurationLabel();
+					return null;
+				};
+			default:
+				throw new ZebraIllegalArgumentException("Unknown group operation: " + type);
+		}
+	}
+
+	@NonNull
+	private static String requireString(ReadableMap map, String key) throws ZebraIllegalArgumentException {
+		String value = map.hasKey(key) ? map.getString(key) : null;
+		if(value == null) {
+			throw new ZebraIllegalArgumentException("Group operation is missing " + key);
+		}
+		return value;
+	}
+
+	@Override
+	public void groupExecute(ReadableArray handles, ReadableMap operation, double concurrencyLimit, @Nullable ReadableMap options, Promise promise) {
+		Function<String, OperationTask> taskFactory;
+		try {
+			taskFactory = this.createGroupTask(operation);
 		} catch (ZebraIllegalArgumentException e) {
 			promise.reject("ZebraIllegalArgumentException", e.getMessage(), e);
-		} catch (NotALinkOsPrinterException e) {
-			promise.reject("NotALinkOsPrinterException", e.getMessage(), e);
+			return;
+		}
+		//the timeout option applies to each printer, the group itself has no deadline
+		String groupId = options != null && options.hasKey("operationId") && !options.isNull("operationId") ? options.getString("operationId") : null;
+		long printerTimeout = getIntOption(options, "timeout", 0);
+		Operation group;
+		try {
+			group = operations.start(groupId, 0);
+		} catch(IllegalArgumentException e) {
+			promise.reject("ZebraIllegalArgumentException", e.getMessage(), e);
+			return;
+		}
+
+		//a printer listed twice is run once, two workers would only queue on its lane
+		Set<String> uniqueHandles = new LinkedHashSet<>();
+		for(int i = 0; i < handles.size(); i++) {
+			uniqueHandles.add(handles.getString(i));
+		}
+		String[] handleList = uniqueHandles.toArray(new String[0]);
+		int count = handleList.length;
+		String[] codes = new String[count];
+		String[] messages = new String[count];
+		long[] durations = new long[count];
+		Set<Operation> running = ConcurrentHashMap.newKeySet();
+		group.setAbortListener(() -> {
+			for(Operation op : running) op.cancel();
+		});
+
+		int workerCount = concurrencyLimit >= 1 ? Math.min((int)concurrencyLimit, count) : count;
+		AtomicInteger next = new AtomicInteger(0);
+		AtomicInteger activeWorkers = new AtomicInteger(workerCount);
+		long groupStart = System.nanoTime();
+		if(ZebraLog.isEnabled(ZebraLog.Category.IO, ZebraLog.DEBUG)) {
+			ZebraLog.d(ZebraLog.Category.IO, "Group operation on {} printers, {} in parallel", count, workerCount);
+		}
+
+		Runnable finish = () -> {
+			WritableArray results = new WritableNativeArray();
+			int failed = 0;
+			for(int i = 0; i < count; i++) {
+				WritableMap result = new WritableNativeMap();
+				result.putString("handle", handleList[i]);
+				result.putBoolean("success", codes[i] == null);
+				if(codes[i] != null) {
+					failed++;
+					result.putString("code", codes[i]);
+					result.putString("message", messages[i]);
+				}
+				result.putDouble("durationMs", durations[i] / 1_000_000.0);
+				results.pushMap(result);
+			}
+			WritableMap report = new WritableNativeMap();
+			report.putArray("results", results);
+			report.putInt("succeeded", count - failed);
+			report.putInt("failed", failed);
+			report.putDouble("elapsedMs", (System.nanoTime() - groupStart) / 1_000_000.0);
+			operations.finish(group);
+			promise.resolve(report);
+		};
+		if(workerCount == 0) {
+			finish.run();
+			return;
+		}
+
+		Runnable worker = () -> {
+			int i;
+			while((i = next.getAndIncrement()) < count) {
+				String handle = handleList[i];
+				long start = System.nanoTime();
+				if(group.isAborted()) {
+					codes[i] = group.getAbortCode();
+					messages[i] = group.getAbortMessage();
+					continue;
+				}
+				Operation op = operations.start(null, printerTimeout);
+				running.add(op);
+				if(group.isAborted()) op.cancel();
+				try {
+					//the timeout covers connecting, a printer which does not answer gives up its worker on time
+					Future<ZebraPrinter> connecting = connectExecutor.submit(() -> this.retrieveOrConnectPrinter(handle));
+					op.setAbortListener(() -> connecting.cancel(true));
+					try {
+						connecting.get();
+					} catch(CancellationException e) {
+						op.checkpoint();
+					} catch(ExecutionException e) {
+						throw e.getCause() instanceof Exception ? (Exception)e.getCause() : e;
+					}
+					op.setAbortListener(null);
+					this.executeOperation(handle, op, taskFactory.apply(handle));
+				} catch(Exception e) {
+					ZebraLog.d(ZebraLog.Category.IO, "Group operation failed on {}: {}", handle, e.getMessage());
+					String code = errorCode(e, op);
+					codes[i] = code != null ? code : "Error";
+					messages[i] = op.isAborted() ? op.getAbortMessage() : e.getMessage();
+				} finally {
+					running.remove(op);
+					operations.finish(op);
+					durations[i] = System.nanoTime() - start;
+				}
+			}
+			if(activeWorkers.decrementAndGet() == 0) {
+				finish.run();
+			}
+		};
+		for(int w = 0; w < workerCount; w++) {
+			operationExecutor.execute(worker);
+		}
+	}
+
+	@Override
+	public void setWarmUpEnabled(boolean enabled, Promise promise) {
+		operationExecutor.execute(() -> {
+			knownPrinters.setWarmUpEnabled(enabled);
+			promise.resolve(null);
+		});
+	}
+
+	@Override
+	public void warmUpPrinters(double maxPrinters, Promise promise) {
+		operationExecutor.execute(() -> this.warmUp((int)maxPrinters, promise::resolve));
+	}
+
+	@Override
+	public void getKnownPrinters(Promise promise) {
+		operationExecutor.execute(() -> {
+			WritableArray result = new WritableNativeArray();
+			for(KnownPrinterStore.KnownPrinter known : knownPrinters.list()) {
+				WritableMap printer = new WritableNativeMap();
+				printer.putString("handle", known.handle());
+				printer.putDouble("lastUsed", known.lastUsed());
+				if(known.language() != null) printer.putString("controlLanguage", known.language().toString());
+				LinkOsInformation linkOs = known.linkOsInformation();
+				if(linkOs != null) printer.putString("linkOsVersion", linkOs.getMajor() + "." + linkOs.getMinor() + "." + linkOs.getMicro());
+				printer.putBoolean("connected", connectedPrinters.containsKey(known.handle()));
+				result.pushMap(printer);
+			}
+			promise.resolve(result);
+		});
+	}
+
+	@Override
+	public void forgetKnownPrinter(String handle, Promise promise) {
+		operationExecutor.execute(() -> promise.resolve(knownPrinters.forget(handle)));
+	}
+
+	@Override
+	public void clearKnownPrinters(Promise promise) {
+		operationExecutor.execute(() -> {
+			knownPrinters.clear();
+			promise.resolve(null);
+		});
+	}
+
+	@Override
+	public void createPrinterPool(String poolId, ReadableArray handles, Promise promise) {
+		List<String> handleList = new ArrayList<>();
+		for(int i = 0; i < handles.size(); i++) {
+			handleList.add(handles.getString(i));
+		}
+		if(handleList.isEmpty()) {
+			promise.reject("ZebraIllegalArgumentException", "Printer pool must contain at least one printer");
+			return;
+		}
+		if(pools.putIfAbsent(poolId, new PrinterPool(poolId, handleList)) != null) {
+			promise.reject("ZebraIllegalArgumentException", "Printer pool " + poolId + " already exists");
+			return;
+		}
+		promise.resolve(null);
+	}
+
+	@Override
+	public void destroyPrinterPool(String poolId, Promise promise) {
+		promise.resolve(pools.remove(poolId) != null);
+	}
+
+	@Override
+	public void getPrinterPoolStats(String poolId, Promise promise) {
+		PrinterPool pool = pools.get(poolId);
+		if(pool == null) {
+			promise.reject("ZebraIllegalArgumentException", "Unknown printer pool: " + poolId);
+			return;
+		}
+		promise.resolve(pool.stats());
+	}
+
+	/**
+	 * Queries the status of pool members whose last status is too old. Members which failed
+	 * the current job are skipped. The query takes the printer's status lane, so it does not
+	 * interleave with a job being sent to the same printer and does not wait behind queued jobs.
+	 */
+	private void refreshPoolStatus(PrinterPool pool, Set<String> exclude, long maxAgeMs) {
+		for(String handle : pool.getHandles()) {
+			if(exclude.contains(handle) || !pool.isStatusStale(handle, maxAgeMs)) continue;
+			PrinterStatus status;
+			try {
+				ZebraPrinter printer = this.retrieveOrConnectPrinter(handle);
+				try(PrinterLane.Hold hold = this.holdLane(handle, printer, PrinterLane.Priority.STATUS)) {
+					if(printer.getConnection() instanceof MultichannelConnection) {
+						status = printer.getCurrentStatus();
+					} else {
+						//shares the printing channel with the commands, whose reply buffer is the encoding's
+						synchronized (this.getEncoding(handle)) {
+							status = printer.getCurrentStatus();
+						}
+					}
+				}
+			} catch(ConnectionException e) {
+				ZebraLog.w(ZebraLog.Category.CONNECTION, "Pool printer {} is unreachable", handle);
+				this.dropPrinter(handle);
+				status = null;
+			}
+			pool.updateStatus(handle, status);
+		}
+	}
+
+	@Override
+	public void submitPoolJob(String poolId, String data, @Nullable ReadableMap options, Promise promise) {
+		PrinterPool pool = pools.get(poolId);
+		if(pool == null) {
+			promise.reject("ZebraIllegalArgumentException", "Unknown printer pool: " + poolId);
+			return;
 		}
+		long statusMaxAge = getIntOption(options, "statusMaxAge", 1000);
+		int maxAttempts = Math.max(1, getIntOption(options, "maxAttempts", pool.getHandles().size()));
+		Operation operation = this.startOperation(options, promise);
+		if(operation == null) return;
+
+		operationExecutor.execute(() -> {
+			Set<String> failed = new HashSet<>();
+			Exception lastError = null;
+			try {
+				for(int attempt = 1; attempt <= maxAttempts; attempt++) {
+					operation.checkpoint();
+					this.refreshPoolStatus(pool, failed, statusMaxAge);
+					String handle = pool.acquire(failed);
+					if(handle == null) break;
+					if(attempt > 1) pool.failover();
+					long start = System.nanoTime();
+					int[] length = { 0 };
+					try {
+						this.executeOperation(handle, operation, PrinterLane.Priority.INTERACTIVE, conn -> {
+							PrinterEncoding encoding = this.getEncoding(handle);
+							synchronized (encoding) {
+								length[0] = encoding.encode(data);
+								conn.write(encoding.array(), 0, length[0]);
+							}
+							return null;
+						});
+					} catch(Exception e) {
+						pool.finish(handle, false, 0, System.nanoTime() - start);
+						if(operation.isAborted()) throw e;
+						ZebraLog.w(ZebraLog.Category.IO, "Pool job failed on {}, trying next printer", handle);
+						this.dropPrinter(handle);
+						failed.add(handle);
+						lastError = e;
+						continue;
+					}
+					pool.finish(handle, true, length[0], System.nanoTime() - start);
+					pool.jobCompleted();
+					WritableMap result = new WritableNativeMap();
+					result.putString("handle", handle);
+					result.putInt("attempts", attempt);
+					promise.resolve(result);
+					return;
+				}
+				pool.jobFailed();
+				if(lastError != null) {
+					promise.reject("ConnectionException", "Job failed on every pool printer tried: " + lastError.getMessage(), lastError);
+				} else {
+					promise.reject("ConnectionException", "No printer in pool " + poolId + " is ready");
+				}
+			} catch(Exception e) {
+				pool.jobFailed();
+				String code = errorCode(e, operation);
+				if(code == null) {
+					promise.reject(e);
+				} else {
+					promise.reject(code, operation.isAborted() ? operation.getAbortMessage() : e.getMessage(), e);
+				}
+			} finally {
+				operations.finish(operation);
+			}
+		});
 	}
 
 	@RequiresApi(api = Build.VERSION_CODES.DONUT)
 	@Override
-	public void findNetworkPrinters(Callback onPrinterFound, Promise promise){
+	public void findNetworkPrinters(String sessionId, @Nullable ReadableMap options, Promise promise){
+		DiscoverySession session = this.startDiscovery(sessionId, CONNECTION_NETWORK, options, promise, null);
+		if(session == null) return;
 		try {
-			Log.d("ZebraModule", "Starting network printer discovery.");
-			DiscoveryHandler discoveryHandler = new DiscoveryHandlerImpl(CONNECTION_NETWORK, onPrinterFound, promise);
+			ZebraLog.d(ZebraLog.Category.DISCOVERY, "Starting network printer discovery.");
 
 			Context context = getReactApplicationContext().getApplicationContext();
 			MulticastLock lock = null;
@@ -638,19 +2159,21 @@ public class ZebraModule extends NativeRNZebraLinkOSSpec {
 				lock.setReferenceCounted(true);
 				lock.acquire();
 			}
-			NetworkDiscoverer.findPrinters(discoveryHandler);
+			NetworkDiscoverer.findPrinters(session);
 			if(lock != null){
 				lock.release();
 			}
 		} catch (DiscoveryException e) {
+			session.failed(e.getMessage());
 			promise.reject("DiscoveryException", e.getMessage(), e);
 		}
 	}
 
 	@Override
-	public void findBluetoothPrinters(Callback onPrinterFound, boolean useBle, Promise promise) {
+	public void findBluetoothPrinters(String sessionId, boolean useBle, @Nullable ReadableMap options, Promise promise) {
+		DiscoverySession session = null;
 		try {
-			Log.d("ZebraModule", "Starting bluetooth printer discovery.");
+			ZebraLog.d(ZebraLog.Category.DISCOVERY, "Starting bluetooth printer discovery.");
 			Context context = getReactApplicationContext().getApplicationContext();
 
 			if(Build.VERSION.SDK_INT < Build.VERSION_CODES.ECLAIR ||
@@ -666,23 +2189,32 @@ public class ZebraModule extends NativeRNZebraLinkOSSpec {
 				promise.reject("ConnectionException", "Bluetooth permissions were not granted");
 				return;
 			}
-			DiscoveryHandler discoveryHandler = new DiscoveryHandlerImpl(useBle ? CONNECTION_BLUETOOTH_LE : CONNECTION_BLUETOOTH, onPrinterFound, promise);
-			if(useBle) BluetoothLeDiscoverer.findPrinters(context, discoveryHandler);
-			else BluetoothDiscoverer.findPrinters(context, discoveryHandler);
+			session = this.startDiscovery(sessionId, useBle ? CONNECTION_BLUETOOTH_LE : CONNECTION_BLUETOOTH, options, promise, useBle ? null : () -> {
+				//classic discovery keeps the radio busy for ~12 s, stop it right away
+				BluetoothManager manager = (BluetoothManager)context.getSystemService(Context.BLUETOOTH_SERVICE);
+				if(manager != null && manager.getAdapter() != null) {
+					manager.getAdapter().cancelDiscovery();
+				}
+			});
+			if(session == null) return;
+			if(useBle) BluetoothLeDiscoverer.findPrinters(context, session);
+			else BluetoothDiscoverer.findPrinters(context, session);
 		} catch (ConnectionException e) {
+			if(session != null) session.failed(e.getMessage());
 			promise.reject("ConnectionException", e.getMessage(), e);
 		}
 	}
 
 	@Override
-	public void findUsbPrinters(Callback onPrinterFound, Promise promise) {
-		Log.d("ZebraModule", "Starting USB printer discovery.");
-		DiscoveryHandler discoveryHandler = new DiscoveryHandlerImpl(CONNECTION_USB, onPrinterFound, promise);
+	public void findUsbPrinters(String sessionId, @Nullable ReadableMap options, Promise promise) {
+		DiscoverySession session = this.startDiscovery(sessionId, CONNECTION_USB, options, promise, null);
+		if(session == null) return;
+		ZebraLog.d(ZebraLog.Category.DISCOVERY, "Starting USB printer discovery.");
 
 		Context context = getReactApplicationContext().getApplicationContext();
 		//TODO: check permissions ACCESS_COARSE_LOCATION, ACCESS_FINE_LOCATION
 		//if(context.checkCallingOrSelfPermission(Manifest.permission.CHANGE_WIFI_MULTICAST_STATE) == PackageManager.PERMISSION_GRANTED) {}
-		UsbDiscoverer.findPrinters(context, discoveryHandler);
+		UsbDiscoverer.findPrinters(context, session);
 
 //		UsbManager manager = (UsbManager)context.getSystemService(Context.USB_SERVICE);
 //
@@ -708,23 +2240,24 @@ public class ZebraModule extends NativeRNZebraLinkOSSpec {
 		//UsbDevice device = manager.getDeviceList().values()[0];
 	}
 
-	@NonNull
-	private static ReadableMap convertPrinterStatus(@NonNull PrinterStatus status) {
-		WritableMap map = new WritableNativeMap();
-		map.putString("printMode", status.printMode.toString());
-		map.putInt("labelLengthInDots", status.labelLengthInDots);
-		map.putInt("numberOfFormatsInReceiveBuffer", status.numberOfFormatsInReceiveBuffer);
-		map.putInt("labelsRemainingInBatch", status.labelsRemainingInBatch);
-		map.putBoolean("isPartialFormatInProgress", status.isPartialFormatInProgress);
-		map.putBoolean("isHeadCold", status.isHeadCold);
-		map.putBoolean("isHeadOpen", status.isHeadOpen);
-		map.putBoolean("isHeadTooHot", status.isHeadTooHot);
-		map.putBoolean("isPaperOut", status.isPaperOut);
-		map.putBoolean("isRibbonOut", status.isRibbonOut);
-		map.putBoolean("isReceiveBufferFull", status.isReceiveBufferFull);
-		map.putBoolean("isPaused", status.isPaused);
-		map.putBoolean("isReadyToPrint", status.isReadyToPrint);
-		return map;
+	/**
+	 * Starts a discovery session. ZSDK discoverers can't be stopped, so on cancel or timeout
+	 * the promise is settled right away and any later hits are ignored by the session.
+	 * @param onAbort optional transport-specific cleanup
+	 */
+	@Nullable
+	private DiscoverySession startDiscovery(String sessionId, String type, @Nullable ReadableMap options, Promise promise, @Nullable Runnable onAbort) {
+		Operation operation = this.startOperation(options, promise);
+		if(operation == null) return null;
+		DiscoverySession session = new DiscoverySession(sessionId, type, options, promise, operation);
+		operation.setAbortListener(() -> {
+			ZebraLog.d(ZebraLog.Category.DISCOVERY, "Discovery operation {} aborted", operation.getId());
+			if(onAbort != null) onAbort.run();
+			operations.finish(operation);
+			session.aborted();
+			promise.reject(operation.getAbortCode(), operation.getAbortMessage());
+		});
+		return session;
 	}
 
 	@NonNull
@@ -735,10 +2268,6 @@ public class ZebraModule extends NativeRNZebraLinkOSSpec {
 		}
 		return buffer;
 	}
-	@NonNull
-	private static InputStream reactArrayToInputStream(@NonNull ReadableArray array) {
-		return new ByteArrayInputStream(reactArrayToByteArray(array));
-	}
 
 	@NonNull
 	private static WritableArray byteArrayToReactArray(@NonNull byte[] array) {
@@ -789,91 +2318,60 @@ public class ZebraModule extends NativeRNZebraLinkOSSpec {
 		return conn.toString();
 	}
 
-	private Connection createConnection(@NonNull String handle, int mtr, int ttw) throws ConnectionException {
+	private Connection createConnection(@NonNull HandleDescriptor descriptor, int mtr, int ttw) throws ConnectionException {
 		Context context = getReactApplicationContext().getApplicationContext();
-		if(handle.startsWith("TCP_MULTI")){
-			//MultichannelTcpConnection - TCP_MULTI:ip:printing_port:status_port
-			String[] parts = handle.split(":");
-			if(parts.length != 4){
-				throw new ConnectionException("Invalid connection handle");
-			}
-			try{
-				String ip = parts[1];
-				int port = Integer.parseInt(parts[2]);
-				int statusPort = Integer.parseInt(parts[3]);
-				return new MultichannelTcpConnection(ip, port, statusPort, mtr, ttw);
-			} catch(NumberFormatException e) {
-				throw new ConnectionException("Invalid connection handle");
-			}
-		}
-		else if(handle.startsWith("TCP")){
-			//TcpConnection - TCP:ip:port
-			//TcpStatusConnection - TCP_STATUS:ip:port
-			String[] parts = handle.split(":");
-			if(parts.length != 3){
-				throw new ConnectionException("Invalid connection handle");
-			}
-			try{
-				String ip = parts[1];
-				int port = Integer.parseInt(parts[2]);
-				if(handle.startsWith("TCP_STATUS")) return new TcpStatusConnection(ip, port, mtr, ttw);
-				else return new TcpConnection(ip, port, mtr, ttw);
-			} catch(NumberFormatException e) {
-				throw new ConnectionException("Invalid connection handle");
-			}
-		}
-		else if(handle.startsWith("BT")){
-			//BluetoothConnection - BT:mac
-			//BluetoothStatusConnection - BT_STATUS:mac
-			//BluetoothConnectionInsecure - BT_INSECURE:mac
-			//BluetoothStatusConnectionInsecure - BT_STATUS_INSECURE:mac
-			//MultichannelBluetoothConnection - BT_MULTI:mac
-
-			//BluetoothLeConnection - BTLE:mac
-			//BluetoothLeStatusConnection - BTLE_STATUS:mac
-			//MultichannelBluetoothLeConnection - BTLE_MULTI:mac
-			String mac = handle.substring(handle.indexOf(':') + 1);
-			if(mac.split(":").length != 6){
-				throw new ConnectionException("Invalid connection handle");
-			}
-			if(Build.VERSION.SDK_INT < Build.VERSION_CODES.ECLAIR ||
-					(!handle.startsWith("BTLE") && !context.getPackageManager().hasSystemFeature(PackageManager.FEATURE_BLUETOOTH)) ||
-					(handle.startsWith("BTLE") && !context.getPackageManager().hasSystemFeature(PackageManager.FEATURE_BLUETOOTH_LE))
-			){
-				throw new ConnectionException("Bluetooth is not supported on this device");
+		String address = descriptor.address();
+		switch(descriptor.transport()) {
+			case TCP:
+				switch(descriptor.channel()) {
+					case MULTI: return new MultichannelTcpConnection(address, descriptor.port(), descriptor.statusPort(), mtr, ttw);
+					case STATUS: return new TcpStatusConnection(address, descriptor.port(), mtr, ttw);
+					default: return new TcpConnection(address, descriptor.port(), mtr, ttw);
+				}
+			case BLUETOOTH:
+			case BLUETOOTH_LE: {
+				boolean ble = descriptor.transport() == HandleDescriptor.Transport.BLUETOOTH_LE;
+				if(Build.VERSION.SDK_INT < Build.VERSION_CODES.ECLAIR ||
+						(!ble && !context.getPackageManager().hasSystemFeature(PackageManager.FEATURE_BLUETOOTH)) ||
+						(ble && !context.getPackageManager().hasSystemFeature(PackageManager.FEATURE_BLUETOOTH_LE))
+				){
+					throw new ConnectionException("Bluetooth is not supported on this device");
+				}
+				if(ContextCompat.checkSelfPermission(context, Manifest.permission.BLUETOOTH_CONNECT) != PackageManager.PERMISSION_GRANTED ||
+					ContextCompat.checkSelfPermission(context, Manifest.permission.BLUETOOTH_SCAN) != PackageManager.PERMISSION_GRANTED
+				) {
+					throw new ConnectionException("Bluetooth permissions were not granted");
+				}
+				if(ble) {
+					switch(descriptor.channel()) {
+						case STATUS: return new BluetoothLeStatusConnection(address, mtr, ttw, context);
+						case MULTI: return new MultichannelBluetoothLeConnection(address, mtr, ttw, context);
+						default: return new BluetoothLeConnection(address, mtr, ttw, context);
+					}
+				}
+				switch(descriptor.channel()) {
+					case STATUS: return descriptor.insecure()
+						? new BluetoothStatusConnectionInsecure(address, mtr, ttw)
+						: new BluetoothStatusConnection(address, mtr, ttw);
+					case MULTI: return new MultichannelBluetoothConnection(address, mtr, ttw);
+					default: return descriptor.insecure()
+						? new BluetoothConnectionInsecure(address, mtr, ttw)
+						: new BluetoothConnection(address, mtr, ttw);
+				}
 			}
-			if(ContextCompat.checkSelfPermission(context, Manifest.permission.BLUETOOTH_CONNECT) != PackageManager.PERMISSION_GRANTED ||
-				ContextCompat.checkSelfPermission(context, Manifest.permission.BLUETOOTH_SCAN) != PackageManager.PERMISSION_GRANTED
-			) {
-				throw new ConnectionException("Bluetooth permissions were not granted");
-			}
-			if(handle.startsWith("BTLE_STATUS")) return new BluetoothLeStatusConnection(mac, mtr, ttw, context);
-			else if(handle.startsWith("BTLE_MULTI")) return new MultichannelBluetoothLeConnection(mac, mtr, ttw, context);
-			else if(handle.startsWith("BTLE")) return new BluetoothLeConnection(mac, mtr, ttw, context);
-			else if(handle.startsWith("BT_STATUS")) return new BluetoothStatusConnection(mac, mtr, ttw);
-			else if(handle.startsWith("BT_INSECURE")) return new BluetoothConnectionInsecure(mac, mtr, ttw);
-			else if(handle.startsWith("BT_STATUS_INSECURE")) return new BluetoothStatusConnectionInsecure(mac, mtr, ttw);
-			else if(handle.startsWith("BT_MULTI")) return new MultichannelBluetoothConnection(mac, mtr, ttw);
-			else return new BluetoothConnection(mac, mtr, ttw);
-		}
-		else if(handle.startsWith("USB")){
-			//UsbConnection - USB:vid:pid
-			String[] parts = handle.split(":");
-			if(parts.length != 3){
-				throw new ConnectionException("Invalid connection handle");
-			}
-			if (Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB_MR1) {
-				throw new ConnectionException("Unsupported Android SDK version");
+			case REPLAY: {
+				File file = new File(address);
+				return new ReplayConnection(file.isAbsolute() ? file : new File(context.getFilesDir(), address), descriptor.timeScale());
 			}
-			try {
-				int vid = Integer.parseInt(parts[1], 16);
-				int pid = Integer.parseInt(parts[2], 16);
-
+			case USB: {
+				if (Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB_MR1) {
+					throw new ConnectionException("Unsupported Android SDK version");
+				}
 				UsbManager manager = (UsbManager) context.getSystemService(Context.USB_SERVICE);
 				if (manager != null) {
 					Map<String, UsbDevice> usbDevices = manager.getDeviceList();
 					for (UsbDevice device : usbDevices.values()) {
-						if (device.getVendorId() == vid && device.getProductId() == pid) {
+						if (device.getVendorId() == descriptor.vendorId() && device.getProductId() == descriptor.productId()) {
 							if(!this.requestUsbPermissions(context, manager, device)){
 								throw new ConnectionException("Permission to USB device was denied");
 							}
@@ -882,15 +2380,26 @@ public class ZebraModule extends NativeRNZebraLinkOSSpec {
 					}
 				}
 				throw new ConnectionException("USB device is not connected");
-			} catch(NumberFormatException e) {
-				//bottom ConnectionException will be thrown
 			}
 		}
 		throw new ConnectionException("Invalid connection handle");
 	}
 
+	/**
+	 * Returns the parsed form of the handle. Handles are parsed once and then served from the cache.
+	 */
+	@NonNull
+	private HandleDescriptor describeHandle(@NonNull String handle) throws ConnectionException {
+		HandleDescriptor descriptor = handleDescriptors.get(handle);
+		if(descriptor == null) {
+			descriptor = HandleDescriptor.parse(handle);
+			handleDescriptors.put(handle, descriptor);
+		}
+		return descriptor;
+	}
+
 	private Connection createConnection(@NonNull String handle) throws ConnectionException {
-		return createConnection(handle, 5000, 500);
+		return createConnection(this.describeHandle(handle), 5000, 500);
 	}
 
 
@@ -899,7 +2408,7 @@ public class ZebraModule extends NativeRNZebraLinkOSSpec {
 		if (manager.hasPermission(device)) {
 			return true;
 		}
-		Log.d("ZebraModule", "USB permission was not granted, requesting it now...");
+		ZebraLog.d(ZebraLog.Category.CONNECTION, "USB permission was not granted, requesting it now...");
 
 		final String ACTION_USB_PERMISSION = "com.android.rnzebralinkos.USB_PERMISSION";
 		PendingIntent intent = PendingIntent.getBroadcast(context, 0, new Intent(ACTION_USB_PERMISSION), PendingIntent.FLAG_MUTABLE);
@@ -917,17 +2426,17 @@ public class ZebraModule extends NativeRNZebraLinkOSSpec {
 						UsbDevice dev = intent.getParcelableExtra(UsbManager.EXTRA_DEVICE);
 						if (dev != null && dev.getDeviceId() == device.getDeviceId()) {
 							permissionGranted[0] = intent.getBooleanExtra(UsbManager.EXTRA_PERMISSION_GRANTED, false);
-							Log.d("ZebraModule", "USB permission is " + (permissionGranted[0] ? "granted" : "denied"));
+							ZebraLog.d(ZebraLog.Category.CONNECTION, "USB permission is {}", permissionGranted[0] ? "granted" : "denied");
 							permissionLock.notify();
 						}
 					}
-					Log.d("ZebraModule", "Unregistering USB permission broadcast receiver");
+					ZebraLog.d(ZebraLog.Category.CONNECTION, "Unregistering USB permission broadcast receiver");
 					context.unregisterReceiver(this);
 				}
 			}
 		};
 
-		Log.d("ZebraModule", "Registering USB permission broadcast receiver");
+		ZebraLog.d(ZebraLog.Category.CONNECTION, "Registering USB permission broadcast receiver");
 		ContextCompat.registerReceiver(context, receiver, filter, ContextCompat.RECEIVER_NOT_EXPORTED);
 
 		manager.requestPermission(device, intent);
@@ -940,7 +2449,7 @@ public class ZebraModule extends NativeRNZebraLinkOSSpec {
 				Thread.currentThread().interrupt();
 			}
 		}
-		Log.d("ZebraModule", "Finished requesting USB permission, status: " + (permissionGranted[0] ? "granted" : "denied"));
+		ZebraLog.d(ZebraLog.Category.CONNECTION, "Finished requesting USB permission, status: {}", permissionGranted[0] ? "granted" : "denied");
 		return permissionGranted[0];
 	}
 
@@ -34,7 +34,7 @@ public class ZebraPackage extends BaseReactPackage {
 					ZebraModule.NAME,
 					ZebraModule.NAME,
 					false, // canOverrideExistingModule
-					false, // needsEagerInit
+					true, // needsEagerInit, for printer warm-up
 					false, // isCxxModule
 					true // isTurboModule
 			));
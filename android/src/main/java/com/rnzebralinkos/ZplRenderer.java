@@ -0,0 +1,686 @@
+package com.rnzebralinkos;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Renders a ZPL label to a 1-bit image without a printer, for previews and layout checks.
+ * Covers the commonly used subset: ^LH, ^FO, ^FT, ^FW, ^FD/^FV, ^FH, ^FR, ^LR, ^A/^CF, ^FB, ^GB,
+ * ^GF (ASCII hex with ZPL compression, :Z64: and :B64:), ^BY, ^BC and ^BQ.
+ * Other commands are skipped and counted. Only the first format (^XA to ^XZ) is rendered.
+ * All fonts are drawn with the scalable font of the glyph source, at the size the printer would use;
+ * box corners are drawn square.
+ * A renderer draws one label, the glyph source can be shared.
+ */
+final class ZplRenderer {
+
+	/**
+	 * Rasterizes characters. Implementations cache the glyphs and are thread safe.
+	 */
+	interface GlyphSource {
+		/**
+		 * @param height character cell height in dots
+		 * @param width character width in dots, equal to height for the font's own proportions
+		 */
+		@NonNull
+		Glyph glyph(char c, int height, int width);
+	}
+
+	static final class Glyph {
+		//as high as the cell
+		@NonNull
+		final MonoBitmap mask;
+		final int advance;
+		//row of the baseline in the mask
+		final int baseline;
+
+		Glyph(@NonNull MonoBitmap mask, int advance, int baseline) {
+			this.mask = mask;
+			this.advance = advance;
+			this.baseline = baseline;
+		}
+	}
+
+	//cell height and width of the bitmap fonts, in dots
+	private static final String BITMAP_FONTS = "ABCDEFGH";
+	private static final int[][] BITMAP_FONT_SIZES = { { 9, 5 }, { 11, 7 }, { 18, 10 }, { 18, 10 }, { 28, 15 }, { 26, 13 }, { 60, 40 }, { 21, 13 } };
+	private static final int SCALABLE_DEFAULT_HEIGHT = 15;
+	private static final String ORIENTATIONS = "NRIB";
+	//printer settings which do not change the image
+	private static final String[] IGNORED = { "PW", "LL", "PQ", "PR", "MD", "MN", "MT", "MM", "CI", "JU", "LS", "PM", "FX" };
+
+	private static final byte[] BASE64_VALUES = new byte[128];
+
+	static {
+		Arrays.fill(BASE64_VALUES, (byte)-1);
+		String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+		for(int i = 0; i < alphabet.length(); i++) {
+			BASE64_VALUES[alphabet.charAt(i)] = (byte)i;
+		}
+	}
+
+	private final GlyphSource glyphs;
+	private final int dpi;
+	private int skippedCommands = 0;
+
+	//label state
+	private int homeX = 0;
+	private int homeY = 0;
+	private boolean labelReverse = false;
+	private char defaultFont = 'A';
+	private int defaultFontHeight = 0;
+	private int defaultFontWidth = 0;
+	private int defaultOrientation = MonoBitmap.ROTATE_NONE;
+	private int moduleWidth = 2;
+	private int barcodeHeight = 10;
+
+	//field state, reset by ^FS
+	private int fieldX;
+	private int fieldY;
+	//^FT: the position is the baseline (text) or bottom (graphics) instead of the top
+	private boolean fieldBaseline;
+	private char font;
+	private int fontHeight;
+	private int fontWidth;
+	private int orientation;
+	private char barcode;
+	private String[] barcodeParams;
+	private int blockWidth;
+	private int blockLines;
+	private int blockSpacing;
+	private char blockJustification;
+	private char hexIndicator;
+	private boolean fieldReverse;
+	@Nullable
+	private String fieldData;
+
+	ZplRenderer(@NonNull GlyphSource glyphs, int dpi) {
+		this.glyphs = glyphs;
+		this.dpi = dpi;
+		this.resetField();
+	}
+
+	/**
+	 * @return commands of the last render which are not supported.
+	 */
+	int getSkippedCommands() {
+		return skippedCommands;
+	}
+
+	/**
+	 * @throws IllegalArgumentException if a field can't be drawn, e.g. barcode data which can't be encoded
+	 */
+	@NonNull
+	MonoBitmap render(@NonNull String zpl, int width, int height) {
+		MonoBitmap label = new MonoBitmap(width, height);
+		boolean inFormat = false;
+		int i = 0;
+		int length = zpl.length();
+		while(i < length) {
+			char prefix = zpl.charAt(i);
+			if(prefix != '^' && prefix != '~') {
+				i++;
+				continue;
+			}
+			int start = i + 1;
+			String command = zpl.substring(start, Math.min(start + 2, length)).toUpperCase(Locale.ROOT);
+			//the font name of ^A is the first character of its parameters
+			if(command.startsWith("A") && prefix == '^') command = "A";
+			int paramStart = Math.min(start + command.length(), length);
+			boolean data = command.equals("FD") || command.equals("FV") || command.equals("FX");
+			int end = data ? zpl.indexOf('^', paramStart) : nextCommand(zpl, paramStart);
+			if(end == -1) end = length;
+			String params = stripLineBreaks(zpl.substring(paramStart, end));
+			i = end;
+
+			if(prefix == '~') {
+				skippedCommands++;
+				continue;
+			}
+			if(command.equals("XA")) {
+				inFormat = true;
+				continue;
+			}
+			if(!inFormat) continue;
+			if(command.equals("XZ")) {
+				this.finishField(label);
+				break;
+			}
+			this.execute(label, command, params);
+		}
+		return label;
+	}
+
+	private static int nextCommand(String zpl, int from) {
+		for(int i = from; i < zpl.length(); i++) {
+			char c = zpl.charAt(i);
+			if(c == '^' || c == '~') return i;
+		}
+		return -1;
+	}
+
+	private static String stripLineBreaks(String s) {
+		if(s.indexOf('\n') == -1 && s.indexOf('\r') == -1) return s;
+		return s.replace("\r", "").replace("\n", "");
+	}
+
+	private void execute(MonoBitmap label, String command, String params) {
+		String[] p = params.split(",", -1);
+		switch(command) {
+			case "LH":
+				homeX = intParam(p, 0, homeX);
+				homeY = intParam(p, 1, homeY);
+				break;
+			case "LR":
+				labelReverse = params.trim().equalsIgnoreCase("Y");
+				break;
+			case "FO":
+			case "FT":
+				fieldX = homeX + intParam(p, 0, 0);
+				fieldY = homeY + intParam(p, 1, 0);
+				fieldBaseline = command.equals("FT");
+				break;
+			case "FW":
+				defaultOrientation = orientationParam(p, 0, defaultOrientation);
+				break;
+			case "A": {
+				font = params.isEmpty() ? defaultFont : Character.toUpperCase(params.charAt(0));
+				String[] fontParams = params.length() > 1 ? params.substring(1).split(",", -1) : new String[0];
+				orientation = orientationParam(fontParams, 0, orientation);
+				fontHeight = intParam(fontParams, 1, 0);
+				fontWidth = intParam(fontParams, 2, 0);
+				break;
+			}
+			case "CF":
+				if(!params.isEmpty() && !p[0].isEmpty()) defaultFont = Character.toUpperCase(p[0].charAt(0));
+				defaultFontHeight = intParam(p, 1, 0);
+				defaultFontWidth = intParam(p, 2, 0);
+				break;
+			case "FB":
+				blockWidth = Math.max(0, intParam(p, 0, 0));
+				blockLines = Math.max(1, intParam(p, 1, 1));
+				blockSpacing = intParam(p, 2, 0);
+				blockJustification = p.length > 3 && !p[3].isEmpty() ? Character.toUpperCase(p[3].charAt(0)) : 'L';
+				break;
+			case "FH":
+				hexIndicator = params.isEmpty() ? '_' : params.charAt(0);
+				break;
+			case "FR":
+				fieldReverse = true;
+				break;
+			case "FD":
+			case "FV":
+				fieldData = params;
+				break;
+			case "FS":
+				this.finishField(label);
+				break;
+			case "BY":
+				moduleWidth = Math.max(1, intParam(p, 0, moduleWidth));
+				barcodeHeight = Math.max(1, intParam(p, 2, barcodeHeight));
+				break;
+			case "BC":
+			case "BQ":
+				barcode = command.charAt(1);
+				barcodeParams = p;
+				break;
+			case "GB":
+				this.drawBox(label, p);
+				break;
+			case "GF":
+				this.drawGraphic(label, p, params);
+				break;
+			default:
+				if(!isIgnored(command)) skippedCommands++;
+				break;
+		}
+	}
+
+	private static boolean isIgnored(String command) {
+		for(String ignored : IGNORED) {
+			if(ignored.equals(command)) return true;
+		}
+		return false;
+	}
+
+	private void resetField() {
+		fieldX = homeX;
+		fieldY = homeY;
+		fieldBaseline = false;
+		font = 0;
+		fontHeight = 0;
+		fontWidth = 0;
+		orientation = -1;
+		barcode = 0;
+		barcodeParams = new String[0];
+		blockWidth = 0;
+		blockLines = 1;
+		blockSpacing = 0;
+		blockJustification = 'L';
+		hexIndicator = 0;
+		fieldReverse = false;
+		fieldData = null;
+	}
+
+	private int paint() {
+		return fieldReverse || labelReverse ? MonoBitmap.PAINT_INVERT : MonoBitmap.PAINT_BLACK;
+	}
+
+	private int rotation() {
+		return orientation >= 0 ? orientation : defaultOrientation;
+	}
+
+	private void finishField(MonoBitmap label) {
+		if(fieldData != null) {
+			String data = hexIndicator != 0 ? decodeHex(fieldData, hexIndicator) : fieldData;
+			if(barcode == 'C') {
+				this.drawCode128(label, data);
+			} else if(barcode == 'Q') {
+				this.drawQrCode(label, data);
+			} else {
+				this.drawText(label, data);
+			}
+		}
+		this.resetField();
+	}
+
+	/**
+	 * Places a field image. baseline is the row the ^FT position refers to.
+	 */
+	private void place(MonoBitmap label, MonoBitmap field, int baseline) {
+		int x = fieldX;
+		int y = fieldY;
+		int rotation = this.rotation();
+		if(fieldBaseline) {
+			int w = field.width;
+			int h = field.height;
+			switch(rotation) {
+				case MonoBitmap.ROTATE_NONE: y -= baseline; break;
+				case MonoBitmap.ROTATE_90: x -= h - 1 - baseline; break;
+				case MonoBitmap.ROTATE_180: x -= w - 1; y -= h - 1 - baseline; break;
+				default: x -= baseline; y -= w - 1; break;
+			}
+		}
+		label.draw(field, x, y, rotation, this.paint());
+	}
+
+	// === text ===
+
+	/**
+	 * @return cell height and width of the field's font, the width scaled so that it equals the height for the font's own proportions.
+	 */
+	private int[] fontSize() {
+		char name = font != 0 ? font : defaultFont;
+		int height = fontHeight;
+		int width = fontWidth;
+		if(font == 0 || (height <= 0 && width <= 0)) {
+			height = defaultFontHeight;
+			width = defaultFontWidth;
+		}
+		int index = BITMAP_FONTS.indexOf(name);
+		int nominalHeight = index >= 0 ? BITMAP_FONT_SIZES[index][0] : SCALABLE_DEFAULT_HEIGHT;
+		int nominalWidth = index >= 0 ? BITMAP_FONT_SIZES[index][1] : SCALABLE_DEFAULT_HEIGHT;
+		if(height <= 0 && width <= 0) {
+			height = nominalHeight;
+			width = nominalWidth;
+		} else if(height <= 0) {
+			height = width * nominalHeight / nominalWidth;
+		} else if(width <= 0) {
+			width = height * nominalWidth / nominalHeight;
+		}
+		return new int[] { Math.max(1, height), Math.max(1, width * nominalHeight / nominalWidth) };
+	}
+
+	private void drawText(MonoBitmap label, String text) {
+		int[] size = this.fontSize();
+		int height = size[0];
+		int width = size[1];
+		List<String> lines = blockWidth > 0 ? this.wrap(text, height, width) : singleLine(text);
+		int lineCount = Math.min(lines.size(), blockLines);
+		int lineHeight = height + blockSpacing;
+		int baseline = this.glyphs.glyph(' ', height, width).baseline;
+
+		MonoBitmap[] rendered = new MonoBitmap[lines.size()];
+		int blockImageWidth = blockWidth;
+		for(int i = 0; i < lines.size(); i++) {
+			rendered[i] = this.renderLine(lines.get(i), height, width);
+			if(blockWidth == 0) blockImageWidth = Math.max(blockImageWidth, rendered[i].width);
+		}
+		MonoBitmap block = new MonoBitmap(blockImageWidth, (lineCount - 1) * lineHeight + height);
+		for(int i = 0; i < rendered.length; i++) {
+			//lines which don't fit are printed over the last one, like the printer does
+			int row = Math.min(i, lineCount - 1);
+			int x = 0;
+			if(blockJustification == 'C') x = (blockImageWidth - rendered[i].width) / 2;
+			else if(blockJustification == 'R') x = blockImageWidth - rendered[i].width;
+			block.draw(rendered[i], x, row * lineHeight, MonoBitmap.ROTATE_NONE, MonoBitmap.PAINT_BLACK);
+		}
+		this.place(label, block, (lineCount - 1) * lineHeight + baseline);
+	}
+
+	private static List<String> singleLine(String text) {
+		List<String> lines = new ArrayList<>(1);
+		lines.add(text);
+		return lines;
+	}
+
+	private MonoBitmap renderLine(String text, int height, int width) {
+		int lineWidth = 0;
+		for(int i = 0; i < text.length(); i++) {
+			lineWidth += this.glyphs.glyph(text.charAt(i), height, width).advance;
+		}
+		MonoBitmap line = new MonoBitmap(lineWidth, height);
+		int x = 0;
+		for(int i = 0; i < text.length(); i++) {
+			Glyph glyph = this.glyphs.glyph(text.charAt(i), height, width);
+			line.draw(glyph.mask, x, 0, MonoBitmap.ROTATE_NONE, MonoBitmap.PAINT_BLACK);
+			x += glyph.advance;
+		}
+		return line;
+	}
+
+	private int textWidth(String text, int height, int width) {
+		int total = 0;
+		for(int i = 0; i < text.length(); i++) {
+			total += this.glyphs.glyph(text.charAt(i), height, width).advance;
+		}
+		return total;
+	}
+
+	/**
+	 * Breaks ^FB text into lines at spaces and at "\&".
+	 */
+	private List<String> wrap(String text, int height, int width) {
+		List<String> lines = new ArrayList<>();
+		for(String paragraph : text.split("\\\\&", -1)) {
+			StringBuilder line = new StringBuilder();
+			for(String word : paragraph.split(" ", -1)) {
+				String candidate = line.length() == 0 ? word : line + " " + word;
+				if(line.length() > 0 && this.textWidth(candidate, height, width) > blockWidth) {
+					lines.add(line.toString());
+					line.setLength(0);
+					line.append(word);
+				} else {
+					line.setLength(0);
+					line.append(candidate);
+				}
+			}
+			lines.add(line.toString());
+		}
+		return lines;
+	}
+
+	private static String decodeHex(String data, char indicator) {
+		StringBuilder result = new StringBuilder(data.length());
+		for(int i = 0; i < data.length(); i++) {
+			char c = data.charAt(i);
+			if(c == indicator && i + 2 < data.length() && isHex(data.charAt(i + 1)) && isHex(data.charAt(i + 2))) {
+				result.append((char)Integer.parseInt(data.substring(i + 1, i + 3), 16));
+				i += 2;
+			} else {
+				result.append(c);
+			}
+		}
+		return result.toString();
+	}
+
+	private static boolean isHex(char c) {
+		return Character.digit(c, 16) != -1;
+	}
+
+	// === graphics ===
+
+	private void drawBox(MonoBitmap label, String[] p) {
+		int thickness = Math.max(1, intParam(p, 2, 1));
+		int width = Math.max(thickness, intParam(p, 0, thickness));
+		int height = Math.max(thickness, intParam(p, 1, thickness));
+		boolean white = p.length > 3 && p[3].trim().equalsIgnoreCase("W");
+		int paint = fieldReverse || labelReverse ? MonoBitmap.PAINT_INVERT : white ? MonoBitmap.PAINT_WHITE : MonoBitmap.PAINT_BLACK;
+		int x = fieldX;
+		int y = fieldBaseline ? fieldY - height : fieldY;
+		if(thickness * 2 >= width || thickness * 2 >= height) {
+			label.fill(x, y, width, height, paint);
+		} else {
+			label.fill(x, y, width, thickness, paint);
+			label.fill(x, y + height - thickness, width, thickness, paint);
+			label.fill(x, y + thickness, thickness, height - 2 * thickness, paint);
+			label.fill(x + width - thickness, y + thickness, thickness, height - 2 * thickness, paint);
+		}
+	}
+
+	/**
+	 * ^GFa,b,c,d,data: a is the data format, c the image size in bytes and d the bytes per row.
+	 */
+	private void drawGraphic(MonoBitmap label, String[] p, String params) {
+		String format = p[0].trim().toUpperCase(Locale.ROOT);
+		int total = intParam(p, 2, 0);
+		int rowBytes = intParam(p, 3, 0);
+		//the sizes come from the ZPL, a graphic wider than the label is not allocated
+		if(!format.equals("A") || total <= 0 || rowBytes <= 0 || rowBytes > (label.width + 7) / 8 || p.length < 5) {
+			//binary data can't be told apart from the following commands
+			skippedCommands++;
+			return;
+		}
+		//rows below the label are not decoded
+		total = Math.min(total, rowBytes * label.height);
+		//the data may contain commas (ZPL compression)
+		int dataStart = 0;
+		for(int i = 0; i < 4; i++) dataStart = params.indexOf(',', dataStart) + 1;
+		String data = params.substring(dataStart);
+		byte[] image = data.startsWith(":Z64:") || data.startsWith(":B64:")
+			? decodeBase64(data, total)
+			: decodeCompressedHex(data, total, rowBytes);
+		MonoBitmap graphic = new MonoBitmap(rowBytes * 8, total / rowBytes, rowBytes, image);
+		int y = fieldBaseline ? fieldY - graphic.height : fieldY;
+		label.draw(graphic, fieldX, y, MonoBitmap.ROTATE_NONE, this.paint());
+	}
+
+	/**
+	 * ASCII hex with the ZPL run length compression: G-Y repeat the next digit 1-19 times, g-z 20-400 times,
+	 * ',' fills the rest of the row with 0, '!' with 1 and ':' repeats the previous row.
+	 */
+	private static byte[] decodeCompressedHex(String data, int total, int rowBytes) {
+		byte[] image = new byte[total];
+		int rowNibbles = rowBytes * 2;
+		int totalNibbles = total * 2;
+		int position = 0;
+		int count = 0;
+		for(int i = 0; i < data.length() && position < totalNibbles; i++) {
+			char c = data.charAt(i);
+			if(c >= 'G' && c <= 'Y') {
+				count += c - 'G' + 1;
+			} else if(c >= 'g' && c <= 'z') {
+				count += (c - 'g' + 1) * 20;
+			} else if(isHex(c)) {
+				int value = Character.digit(c, 16);
+				for(int n = Math.max(1, count); n > 0 && position < totalNibbles; n--, position++) {
+					image[position >> 1] |= (byte)((position & 1) == 0 ? value << 4 : value);
+				}
+				count = 0;
+			} else if(c == ',' || c == '!') {
+				int rowEnd = Math.min(totalNibbles, (position / rowNibbles + 1) * rowNibbles);
+				for(; position < rowEnd; position++) {
+					if(c == '!') image[position >> 1] |= (byte)((position & 1) == 0 ? 0xF0 : 0x0F);
+				}
+				count = 0;
+			} else if(c == ':') {
+				int row = position / rowNibbles;
+				if(row > 0 && row * rowBytes + rowBytes <= total) {
+					System.arraycopy(image, (row - 1) * rowBytes, image, row * rowBytes, rowBytes);
+				}
+				position = (row + 1) * rowNibbles;
+				count = 0;
+			}
+		}
+		return image;
+	}
+
+	/**
+	 * :Z64:data:crc (deflated) or :B64:data:crc.
+	 */
+	private static byte[] decodeBase64(String data, int total) {
+		int crcStart = data.indexOf(':', 5);
+		String encoded = data.substring(5, crcStart == -1 ? data.length() : crcStart);
+		byte[] decoded = base64Decode(encoded);
+		//data shorter than the graphic leaves the rest blank, longer data is cut off
+		byte[] image = new byte[total];
+		if(data.startsWith(":B64:")) {
+			System.arraycopy(decoded, 0, image, 0, Math.min(total, decoded.length));
+			return image;
+		}
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(decoded);
+			int size = 0;
+			while(size < total && !inflater.finished()) {
+				int n = inflater.inflate(image, size, total - size);
+				if(n == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+				size += n;
+			}
+			return image;
+		} catch(DataFormatException e) {
+			throw new IllegalArgumentException("Invalid Z64 graphic: " + e.getMessage());
+		} finally {
+			inflater.end();
+		}
+	}
+
+	/**
+	 * Decodes base64 with or without padding, characters outside the alphabet (line breaks) are skipped.
+	 * java.util.Base64 needs API 26.
+	 */
+	@NonNull
+	static byte[] base64Decode(@NonNull String text) {
+		byte[] decoded = new byte[text.length() / 4 * 3 + 2];
+		int size = 0;
+		int bits = 0;
+		int count = 0;
+		for(int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if(c == '=') break;
+			int value = c < 128 ? BASE64_VALUES[c] : -1;
+			if(value < 0) continue;
+			bits = bits << 6 | value;
+			if(++count == 4) {
+				decoded[size++] = (byte)(bits >> 16);
+				decoded[size++] = (byte)(bits >> 8);
+				decoded[size++] = (byte)bits;
+				bits = 0;
+				count = 0;
+			}
+		}
+		//2 or 3 characters left carry 1 or 2 bytes
+		if(count == 2) {
+			decoded[size++] = (byte)(bits >> 4);
+		} else if(count == 3) {
+			decoded[size++] = (byte)(bits >> 10);
+			decoded[size++] = (byte)(bits >> 2);
+		}
+		return size == decoded.length ? decoded : Arrays.copyOf(decoded, size);
+	}
+
+	// === barcodes ===
+
+	/**
+	 * ^BCo,h,f,g,e,m: orientation, height, interpretation line, line above, check digit (always in the symbol), mode.
+	 */
+	private void drawCode128(MonoBitmap label, String data) {
+		orientation = orientationParam(barcodeParams, 0, orientation);
+		int height = Math.max(1, intParam(barcodeParams, 1, barcodeHeight));
+		boolean interpretation = !yesNoParam(barcodeParams, 2, 'Y').equals("N");
+		boolean above = yesNoParam(barcodeParams, 3, 'N').equals("Y");
+		boolean automatic = !yesNoParam(barcodeParams, 5, 'N').equals("N");
+		Code128.Symbol symbol = Code128.encode(data, automatic);
+
+		int textHeight = 0;
+		MonoBitmap text = null;
+		if(interpretation && !symbol.text.isEmpty()) {
+			int[] size = this.fontSize();
+			text = this.renderLine(symbol.text, size[0], size[1]);
+			textHeight = size[0];
+		}
+		int barsTop = above ? textHeight : 0;
+		int width = Math.max(symbol.modules() * moduleWidth, text != null ? text.width : 0);
+		MonoBitmap image = new MonoBitmap(width, height + textHeight);
+		int x = (width - symbol.modules() * moduleWidth) / 2;
+		for(int i = 0; i < symbol.widths.length; i++) {
+			int barWidth = symbol.widths[i] * moduleWidth;
+			if(i % 2 == 0) image.fill(x, barsTop, barWidth, height, MonoBitmap.PAINT_BLACK);
+			x += barWidth;
+		}
+		if(text != null) {
+			image.draw(text, (width - text.width) / 2, above ? 0 : height, MonoBitmap.ROTATE_NONE, MonoBitmap.PAINT_BLACK);
+		}
+		this.place(label, image, barsTop + height - 1);
+	}
+
+	/**
+	 * ^BQa,b,c,d,e: orientation, model, magnification, error correction, mask.
+	 * The field data starts with the error correction level and input mode, e.g. "QA,".
+	 */
+	private void drawQrCode(MonoBitmap label, String data) {
+		int magnification = Math.max(1, Math.min(10, intParam(barcodeParams, 2, dpi <= 150 ? 1 : dpi <= 200 ? 2 : dpi <= 300 ? 3 : 6)));
+		int ecc = eccLevel(barcodeParams.length > 3 && !barcodeParams[3].isEmpty() ? barcodeParams[3].charAt(0) : 'Q', QrCode.ECC_Q);
+		int mask = intParam(barcodeParams, 4, QrCode.MASK_AUTO);
+		if(data.length() >= 3 && data.charAt(2) == ',') {
+			ecc = eccLevel(data.charAt(0), ecc);
+			boolean manual = Character.toUpperCase(data.charAt(1)) == 'M';
+			data = data.substring(3);
+			if(manual && !data.isEmpty()) {
+				char mode = Character.toUpperCase(data.charAt(0));
+				//byte mode has a 4 digit length
+				if(mode == 'B' && data.length() >= 5) data = data.substring(5);
+				else if(mode == 'N' || mode == 'A') data = data.substring(1);
+			}
+		}
+		QrCode qr = QrCode.encode(data, ecc, mask >= 0 && mask <= 7 ? mask : QrCode.MASK_AUTO);
+		MonoBitmap image = new MonoBitmap(qr.size * magnification, qr.size * magnification);
+		for(int y = 0; y < qr.size; y++) {
+			for(int x = 0; x < qr.size; x++) {
+				if(qr.get(x, y)) image.fill(x * magnification, y * magnification, magnification, magnification, MonoBitmap.PAINT_BLACK);
+			}
+		}
+		this.place(label, image, image.height - 1);
+	}
+
+	private static int eccLevel(char c, int fallback) {
+		switch(Character.toUpperCase(c)) {
+			case 'L': return QrCode.ECC_L;
+			case 'M': return QrCode.ECC_M;
+			case 'Q': return QrCode.ECC_Q;
+			case 'H': return QrCode.ECC_H;
+			default: return fallback;
+		}
+	}
+
+	// === parameters ===
+
+	private static int intParam(String[] p, int index, int fallback) {
+		if(index >= p.length) return fallback;
+		String value = p[index].trim();
+		if(value.isEmpty()) return fallback;
+		try {
+			return (int)Math.round(Double.parseDouble(value));
+		} catch(NumberFormatException e) {
+			return fallback;
+		}
+	}
+
+	private static int orientationParam(String[] p, int index, int fallback) {
+		if(index >= p.length || p[index].trim().isEmpty()) return fallback;
+		int orientation = ORIENTATIONS.indexOf(Character.toUpperCase(p[index].trim().charAt(0)));
+		return orientation >= 0 ? orientation : fallback;
+	}
+
+	private static String yesNoParam(String[] p, int index, char fallback) {
+		if(index >= p.length || p[index].trim().isEmpty()) return String.valueOf(fallback);
+		return p[index].trim().substring(0, 1).toUpperCase(Locale.ROOT);
+	}
+}
@@ -0,0 +1,29 @@
+package com.rnzebralinkos;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Glyph source drawing every character as a solid block, GlyphCache needs the Android font rasterizer.
+ */
+final class BlockGlyphs implements ZplRenderer.GlyphSource {
+
+	private final Map<Long, ZplRenderer.Glyph> glyphs = new HashMap<>();
+
+	@NonNull
+	@Override
+	public synchronized ZplRenderer.Glyph glyph(char c, int height, int width) {
+		height = Math.max(1, height);
+		width = Math.max(1, width);
+		long key = (long)c << 32 | (long)height << 16 | width;
+		ZplRenderer.Glyph glyph = glyphs.get(key);
+		if(glyph != null) return glyph;
+		MonoBitmap mask = new MonoBitmap(width, height);
+		if(c != ' ') mask.fill(width / 8, height / 8, width - width / 4, height - height / 4, MonoBitmap.PAINT_BLACK);
+		glyph = new ZplRenderer.Glyph(mask, width, height - height / 8);
+		glyphs.put(key, glyph);
+		return glyph;
+	}
+}
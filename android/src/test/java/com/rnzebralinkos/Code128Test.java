@@ -0,0 +1,71 @@
+package com.rnzebralinkos;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import org.junit.Test;
+
+public class Code128Test {
+
+	private static final String START_A = "211412";
+	private static final String START_B = "211214";
+	private static final String START_C = "211232";
+	private static final String STOP = "2331112";
+
+	@Test
+	public void encodesDigitPairsInSubsetC() {
+		Code128.Symbol symbol = Code128.encode("123456", true);
+		//12, 34, 56, check symbol (105 + 1*12 + 2*34 + 3*56) % 103 = 44
+		assertEquals(START_C + "112232" + "131123" + "331121" + "132131" + STOP, widths(symbol));
+		assertEquals("123456", symbol.text);
+		assertEquals(5 * 11 + 13, symbol.modules());
+	}
+
+	@Test
+	public void encodesTextInSubsetB() {
+		Code128.Symbol symbol = Code128.encode("Ab", false);
+		//A = 33, b = 66, check symbol (104 + 1*33 + 2*66) % 103 = 63
+		assertEquals(START_B + "111323" + "121421" + "111224" + STOP, widths(symbol));
+		assertEquals("Ab", symbol.text);
+	}
+
+	@Test
+	public void followsZplInvocationCodes() {
+		//>; starts in subset C, >6 switches to B (100), >8 is FNC1 (102)
+		Code128.Symbol symbol = Code128.encode(">;>81234>6X", false);
+		String bars = widths(symbol);
+		assertEquals(START_C, bars.substring(0, 6));
+		assertEquals("411131", bars.substring(6, 12));
+		assertEquals(STOP, bars.substring(bars.length() - 7));
+		assertEquals("1234X", symbol.text);
+	}
+
+	@Test
+	public void switchesSubsetsAutomatically() {
+		//a control character needs subset A, the following run of digits subset C
+		Code128.Symbol symbol = Code128.encode("\t1234", true);
+		String bars = widths(symbol);
+		assertEquals(START_A, bars.substring(0, 6));
+		//tab = 73, code C = 99, 12, 34, check symbol, stop
+		assertEquals(6 * 11 + 13, symbol.modules());
+	}
+
+	@Test
+	public void usesAllModulesOfEverySymbol() {
+		Code128.Symbol symbol = Code128.encode("Zebra 0123456789 Link-OS", true);
+		int symbols = (symbol.widths.length - 7) / 6;
+		assertEquals(symbols * 11 + 13, symbol.modules());
+	}
+
+	@Test
+	public void rejectsInvalidData() {
+		assertThrows(IllegalArgumentException.class, () -> Code128.encode(">;123", false));
+		assertThrows(IllegalArgumentException.class, () -> Code128.encode("é", false));
+	}
+
+	private static String widths(Code128.Symbol symbol) {
+		StringBuilder bars = new StringBuilder(symbol.widths.length);
+		for(int width : symbol.widths) bars.append(width);
+		return bars.toString();
+	}
+}
@@ -0,0 +1,40 @@
+package com.rnzebralinkos;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+
+import org.junit.Test;
+
+public class ObjectUploadTest {
+
+	@Test
+	public void mapsExtensionsToDownloadCodes() {
+		assertEquals("G", ObjectUpload.extensionCode("E:LOGO.GRF"));
+		assertEquals("P", ObjectUpload.extensionCode("E:logo.png"));
+		assertEquals("B", ObjectUpload.extensionCode("R:IMAGE.BMP"));
+		assertEquals("X", ObjectUpload.extensionCode("IMAGE.PCX"));
+		assertEquals("T", ObjectUpload.extensionCode("E:ARIAL.TTF"));
+		assertEquals("E", ObjectUpload.extensionCode("E:ARIAL.TTE"));
+		assertEquals("NRD", ObjectUpload.extensionCode("E:CERT.NRD"));
+		assertEquals("PAC", ObjectUpload.extensionCode("E:CERT.PAC"));
+	}
+
+	@Test
+	public void leavesOtherFilesToTheUncompressedUpload() {
+		//F is the code of .HTM pages, not of fonts
+		assertNull(ObjectUpload.extensionCode("E:FONT.FNT"));
+		assertNull(ObjectUpload.extensionCode("E:LABEL.ZPL"));
+		assertNull(ObjectUpload.extensionCode("E:NOEXTENSION"));
+	}
+
+	@Test
+	public void rejectsUnknownCompression() {
+		ObjectUpload.checkMode(null);
+		ObjectUpload.checkMode(ObjectUpload.MODE_AUTO);
+		assertThrows(IllegalArgumentException.class, () -> ObjectUpload.checkMode("gzip"));
+		assertEquals(ObjectUpload.MODE_NONE, ObjectUpload.resolveMode(null, new byte[16]));
+		//all zeros compress well
+		assertEquals(ObjectUpload.MODE_Z64, ObjectUpload.resolveMode(ObjectUpload.MODE_AUTO, new byte[4096]));
+	}
+}
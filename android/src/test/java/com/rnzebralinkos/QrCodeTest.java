@@ -0,0 +1,124 @@
+package com.rnzebralinkos;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class QrCodeTest {
+
+	//"HELLO WORLD" at version 1-M, data and error correction codewords from the QR Code specification's worked example
+	private static final int[] HELLO_WORLD_CODEWORDS = {
+		32, 91, 11, 120, 209, 114, 220, 77, 67, 64, 236, 17, 236, 17, 236, 17,
+		196, 35, 39, 119, 235, 215, 231, 226, 93, 23
+	};
+
+	@Test
+	public void encodesCodewordsOfVersion1() {
+		QrCode qr = QrCode.encode("HELLO WORLD", QrCode.ECC_M, 0);
+		assertEquals(1, qr.version);
+		assertEquals(21, qr.size);
+		assertArrayEquals(HELLO_WORLD_CODEWORDS, readVersion1Codewords(qr));
+	}
+
+	@Test
+	public void writesFormatInformation() {
+		//format strings from the specification, mask pattern 0
+		assertEquals(0x77C4, readFormatBits(QrCode.encode("1", QrCode.ECC_L, 0)));
+		assertEquals(0x5412, readFormatBits(QrCode.encode("1", QrCode.ECC_M, 0)));
+		assertEquals(0x355F, readFormatBits(QrCode.encode("1", QrCode.ECC_Q, 0)));
+		assertEquals(0x1689, readFormatBits(QrCode.encode("1", QrCode.ECC_H, 0)));
+	}
+
+	@Test
+	public void picksSmallestVersion() {
+		//version 1-L holds 41 digits, 25 alphanumeric characters or 17 bytes
+		assertEquals(1, QrCode.encode(repeat('7', 41), QrCode.ECC_L, QrCode.MASK_AUTO).version);
+		assertEquals(2, QrCode.encode(repeat('7', 42), QrCode.ECC_L, QrCode.MASK_AUTO).version);
+		assertEquals(1, QrCode.encode(repeat('A', 25), QrCode.ECC_L, QrCode.MASK_AUTO).version);
+		assertEquals(2, QrCode.encode(repeat('A', 26), QrCode.ECC_L, QrCode.MASK_AUTO).version);
+		assertEquals(1, QrCode.encode(repeat('a', 17), QrCode.ECC_L, QrCode.MASK_AUTO).version);
+		assertEquals(2, QrCode.encode(repeat('a', 18), QrCode.ECC_L, QrCode.MASK_AUTO).version);
+	}
+
+	@Test
+	public void dataCodewordsMatchSpecification() {
+		assertEquals(19, QrCode.dataCodewords(1, QrCode.ECC_L));
+		assertEquals(9, QrCode.dataCodewords(1, QrCode.ECC_H));
+		assertEquals(2956, QrCode.dataCodewords(40, QrCode.ECC_L));
+		assertEquals(1276, QrCode.dataCodewords(40, QrCode.ECC_H));
+	}
+
+	@Test
+	public void drawsFunctionPatterns() {
+		QrCode qr = QrCode.encode("https://www.zebra.com", QrCode.ECC_Q, QrCode.MASK_AUTO);
+		int size = qr.size;
+		for(int i = 0; i < 7; i++) {
+			//outer ring of the three finder patterns
+			assertTrue(qr.get(i, 0) && qr.get(0, i));
+			assertTrue(qr.get(size - 1 - i, 0) && qr.get(size - 1, i));
+			assertTrue(qr.get(i, size - 1) && qr.get(0, size - 1 - i));
+		}
+		for(int i = 8; i < size - 8; i++) {
+			assertEquals(i % 2 == 0, qr.get(i, 6));
+			assertEquals(i % 2 == 0, qr.get(6, i));
+		}
+		assertTrue(qr.get(8, size - 8));
+	}
+
+	@Test
+	public void rejectsTooLongData() {
+		assertThrows(IllegalArgumentException.class, () -> QrCode.encode(repeat('a', 3000), QrCode.ECC_L, QrCode.MASK_AUTO));
+	}
+
+	private static int readFormatBits(QrCode qr) {
+		int bits = 0;
+		for(int i = 0; i <= 5; i++) bits |= bit(qr.get(8, i), i);
+		bits |= bit(qr.get(8, 7), 6);
+		bits |= bit(qr.get(8, 8), 7);
+		bits |= bit(qr.get(7, 8), 8);
+		for(int i = 9; i < 15; i++) bits |= bit(qr.get(14 - i, 8), i);
+		return bits;
+	}
+
+	/**
+	 * Reads the codewords of a version 1 symbol with mask pattern 0 in placement order.
+	 */
+	private static int[] readVersion1Codewords(QrCode qr) {
+		int size = qr.size;
+		int[] codewords = new int[26];
+		int read = 0;
+		for(int right = size - 1; right >= 1; right -= 2) {
+			if(right == 6) right = 5;
+			for(int vert = 0; vert < size; vert++) {
+				for(int j = 0; j < 2; j++) {
+					int x = right - j;
+					boolean upward = ((right + 1) & 2) == 0;
+					int y = upward ? size - 1 - vert : vert;
+					if(isVersion1Function(x, y, size)) continue;
+					boolean dark = qr.get(x, y) ^ ((x + y) % 2 == 0);
+					codewords[read / 8] |= bit(dark, 7 - read % 8);
+					read++;
+				}
+			}
+		}
+		assertEquals(26 * 8, read);
+		return codewords;
+	}
+
+	private static boolean isVersion1Function(int x, int y, int size) {
+		return (x < 9 && y < 9) || (x >= size - 8 && y < 9) || (x < 9 && y >= size - 8) || x == 6 || y == 6;
+	}
+
+	private static int bit(boolean value, int position) {
+		return value ? 1 << position : 0;
+	}
+
+	private static String repeat(char c, int count) {
+		StringBuilder text = new StringBuilder(count);
+		for(int i = 0; i < count; i++) text.append(c);
+		return text.toString();
+	}
+}
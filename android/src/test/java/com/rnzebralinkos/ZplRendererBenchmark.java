@@ -0,0 +1,79 @@
+package com.rnzebralinkos;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.zip.Deflater;
+
+import org.junit.Test;
+
+/**
+ * Render time of a 4x6" shipping label at 203 dpi, printed to the test output.
+ * Glyphs come from BlockGlyphs, so the time of the Android font rasterizer is not included.
+ */
+public class ZplRendererBenchmark {
+
+	private static final int DPI = 203;
+	private static final int WIDTH = 4 * DPI;
+	private static final int HEIGHT = 6 * DPI;
+	private static final int WARM_UP = 50;
+	private static final int RUNS = 200;
+
+	@Test
+	public void renderShippingLabel() {
+		String zpl = shippingLabel();
+		ZplRenderer.GlyphSource glyphs = new BlockGlyphs();
+		for(int i = 0; i < WARM_UP; i++) {
+			new ZplRenderer(glyphs, DPI).render(zpl, WIDTH, HEIGHT);
+		}
+		long start = System.nanoTime();
+		int skipped = 0;
+		for(int i = 0; i < RUNS; i++) {
+			ZplRenderer renderer = new ZplRenderer(glyphs, DPI);
+			renderer.render(zpl, WIDTH, HEIGHT);
+			skipped += renderer.getSkippedCommands();
+		}
+		double render = (System.nanoTime() - start) / 1e6 / RUNS;
+
+		MonoBitmap label = new ZplRenderer(glyphs, DPI).render(zpl, WIDTH, HEIGHT);
+		start = System.nanoTime();
+		for(int i = 0; i < RUNS; i++) {
+			label.toPng(DPI);
+		}
+		double png = (System.nanoTime() - start) / 1e6 / RUNS;
+
+		System.out.printf("4x6\" label at %d dpi: %.2f ms render, %.2f ms PNG%n", DPI, render, png);
+		assertEquals(0, skipped);
+	}
+
+	private static String shippingLabel() {
+		byte[] logo = new byte[25 * 200];
+		for(int i = 0; i < logo.length; i++) logo[i] = (byte)((i / 25) % 16 < 8 ? 0xF0 : 0x0F);
+		Deflater deflater = new Deflater();
+		deflater.setInput(logo);
+		deflater.finish();
+		byte[] deflated = new byte[logo.length];
+		int length = deflater.deflate(deflated);
+		deflater.end();
+		String logoData = Base64.getEncoder().encodeToString(Arrays.copyOf(deflated, length));
+
+		return "^XA^CI28^PW812^LL1218"
+			+ "^FO20,20^GB772,1178,4^FS"
+			+ "^FO40,40^GFA," + logo.length + "," + logo.length + ",25,:Z64:" + logoData + ":0000^FS"
+			+ "^FO300,50^A0N,40,40^FDACME Logistics^FS"
+			+ "^FO300,100^A0N,25,25^FD1200 Warehouse Rd, Springfield^FS"
+			+ "^FO20,260^GB772,0,3^FS"
+			+ "^FO40,290^A0N,30,30^FDSHIP TO:^FS"
+			+ "^FO40,330^A0N,45,45^FDJane Doe^FS"
+			+ "^FO40,385^A0N,35,35^FD742 Evergreen Terrace^FS"
+			+ "^FO40,430^A0N,35,35^FDSpringfield, OR 97477^FS"
+			+ "^FO20,490^GB772,0,3^FS"
+			+ "^FO40,520^BY3^BCN,200,Y,N,N^FD1Z999AA10123456784^FS"
+			+ "^FO40,800^BQN,2,6^FDQA,https://track.example.com/1Z999AA10123456784^FS"
+			+ "^FO420,820^A0N,30,30^FB340,4,5,L^FDWeight 2.4 kg\\&Parcel 1 of 1\\&Ref PO-558120^FS"
+			+ "^FO420,1000^GB330,150,150^FS"
+			+ "^FO440,1040^A0N,70,70^FR^FDPRIORITY^FS"
+			+ "^XZ";
+	}
+}
@@ -0,0 +1,106 @@
+package com.rnzebralinkos;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.zip.Deflater;
+
+import org.junit.Test;
+
+public class ZplRendererTest {
+
+	@Test
+	public void drawsCode128Bars() {
+		MonoBitmap label = render("^XA^BY2^FO10,10^BCN,50,N,N,N,N^FD123456^FS^XZ", 400, 100);
+		Code128.Symbol symbol = Code128.encode("123456", false);
+		int x = 10;
+		for(int i = 0; i < symbol.widths.length; i++) {
+			int width = symbol.widths[i] * 2;
+			for(int dx = 0; dx < width; dx++) {
+				assertEquals("dot " + (x + dx), i % 2 == 0, label.get(x + dx, 30));
+			}
+			x += width;
+		}
+		assertFalse(label.get(x, 30));
+		assertFalse(label.get(20, 9));
+		assertTrue(label.get(10, 59));
+		assertFalse(label.get(10, 60));
+	}
+
+	@Test
+	public void drawsQrCodeModules() {
+		MonoBitmap label = render("^XA^FO20,20^BQN,2,3^FDMA,HELLO WORLD^FS^XZ", 200, 200);
+		QrCode qr = QrCode.encode("HELLO WORLD", QrCode.ECC_M, QrCode.MASK_AUTO);
+		for(int y = 0; y < qr.size; y++) {
+			for(int x = 0; x < qr.size; x++) {
+				//center of the module
+				assertEquals("module " + x + "," + y, qr.get(x, y), label.get(20 + x * 3 + 1, 20 + y * 3 + 1));
+			}
+		}
+		assertFalse(label.get(19, 20));
+		assertFalse(label.get(20 + qr.size * 3, 20));
+	}
+
+	@Test
+	public void padsShortBase64Graphic() {
+		//two rows of data for a four row graphic
+		String data = Base64.getEncoder().encodeToString(new byte[] { (byte)0xFF, (byte)0xFF });
+		MonoBitmap label = render("^XA^FO0,0^GFA,4,4,1,:B64:" + data + ":0000^FS^XZ", 16, 16);
+		assertTrue(label.get(0, 0));
+		assertTrue(label.get(7, 1));
+		assertFalse(label.get(0, 2));
+		assertFalse(label.get(0, 3));
+	}
+
+	@Test
+	public void capsInflatedGraphic() {
+		byte[] dots = new byte[64];
+		Arrays.fill(dots, (byte)0xFF);
+		Deflater deflater = new Deflater();
+		deflater.setInput(dots);
+		deflater.finish();
+		byte[] deflated = new byte[128];
+		int length = deflater.deflate(deflated);
+		deflater.end();
+		String data = Base64.getEncoder().encodeToString(Arrays.copyOf(deflated, length));
+		//64 bytes of data for an 8 row graphic
+		MonoBitmap label = render("^XA^FO0,0^GFA,8,8,1,:Z64:" + data + ":0000^FS^XZ", 16, 16);
+		assertTrue(label.get(0, 7));
+		assertFalse(label.get(0, 8));
+		assertFalse(label.get(8, 0));
+	}
+
+	@Test
+	public void limitsGraphicToLabel() {
+		//a byte count far beyond the label only decodes the rows which fit
+		MonoBitmap label = render("^XA^FO0,0^GFA,999999999,999999999,1,FF:^FS^XZ", 16, 16);
+		assertTrue(label.get(0, 0));
+		assertTrue(label.get(7, 1));
+		assertFalse(label.get(0, 2));
+		//rows wider than the label are skipped
+		ZplRenderer renderer = new ZplRenderer(new BlockGlyphs(), 203);
+		renderer.render("^XA^FO0,0^GFA,999999999,999999,999999,FF^FS^XZ", 16, 16);
+		assertEquals(1, renderer.getSkippedCommands());
+	}
+
+	@Test
+	public void decodesBase64() {
+		for(int length = 0; length < 10; length++) {
+			byte[] data = new byte[length];
+			for(int i = 0; i < length; i++) data[i] = (byte)(i * 73 - 100);
+			String encoded = Base64.getEncoder().encodeToString(data);
+			assertArrayEquals(data, ZplRenderer.base64Decode(encoded));
+			//without padding and with line breaks
+			String bare = Base64.getEncoder().withoutPadding().encodeToString(data);
+			assertArrayEquals(data, ZplRenderer.base64Decode(bare.length() > 2 ? bare.substring(0, 2) + "\r\n" + bare.substring(2) : bare));
+		}
+	}
+
+	private static MonoBitmap render(String zpl, int width, int height) {
+		return new ZplRenderer(new BlockGlyphs(), 203).render(zpl, width, height);
+	}
+}
@@ -0,0 +1,154 @@
+import { DeviceEventEmitter, EmitterSubscription } from "react-native";
+import { createOperationId } from "./index";
+import NativeModule, {
+	handleNativeException,
+	PrinterHandle,
+	PrintStreamEvent,
+	PrintStreamOptions,
+	PrintStreamSummary,
+	PRINT_STREAM_EVENT
+} from "./native/NativeRNZebraLinkOS";
+
+
+/**
+ * Write stream for long print runs. Chunks are copied into a native buffer of fixed size
+ * which a native worker drains to the printer, so memory stays flat however many labels are sent
+ * and the printer does not wait for the JS thread.
+ * When write() resolves false the buffer is filling up; wait for waitForDrain() before writing more.
+ */
+export class PrintStream {
+
+	private readonly streamId: string;
+	private readonly subscription: EmitterSubscription;
+	private readonly listeners = new Set<(event: PrintStreamEvent) => void>();
+	private drainWaiters: { resolve: () => void, reject: (e: unknown) => void }[] = [];
+	private error: unknown = null;
+	//a write resolved false and the drain event did not follow yet
+	private backpressured = false;
+
+	private constructor(streamId: string) {
+		this.streamId = streamId;
+		this.subscription = DeviceEventEmitter.addListener(PRINT_STREAM_EVENT, (event: PrintStreamEvent) => {
+			if(event.streamId !== this.streamId) return;
+			if(event.type === 'error') {
+				handleNativeException(Promise.reject(Object.assign(new Error(event.message), { code: event.code })))
+					.catch((e) => this.fail(e));
+			} else if(event.type === 'drain') {
+				this.backpressured = false;
+				this.settleDrainWaiters();
+			}
+			this.listeners.forEach((listener) => listener(event));
+		});
+	}
+
+	/**
+	 * Opens a print stream to the printer. The stream ID can also be passed to cancelOperation().
+	 * @param options - buffer size, progress event interval, template for writeRecords()
+	 */
+	static async open(handle: PrinterHandle, options?: PrintStreamOptions): Promise<PrintStream> {
+		const stream = new PrintStream(createOperationId());
+		try {
+			await handleNativeException(NativeModule.openPrintStream(handle, stream.streamId, options));
+		} catch(e) {
+			stream.subscription.remove();
+			throw e;
+		}
+		return stream;
+	}
+
+	getId() {
+		return this.streamId;
+	}
+
+	/**
+	 * Queues a chunk of printer commands (ZPL/CPCL). Chunks should hold whole labels.
+	 * Waits only if the chunk does not fit in the buffer.
+	 * @returns false if the buffer is filling up and the caller should wait for waitForDrain().
+	 */
+	public async write(data: string): Promise<boolean> {
+		if(this.error) throw this.error;
+		return this.track(await handleNativeException(NativeModule.writePrintStream(this.streamId, data)));
+	}
+
+	/**
+	 * Fills the stream's template with each record and queues the labels as one chunk.
+	 * @param records - field data for the ^FNn placeholders of each label, an array starts with ^FN1
+	 * @returns false if the buffer is filling up and the caller should wait for waitForDrain().
+	 */
+	public async writeRecords(records: (string[] | { [key: number]: string })[]): Promise<boolean> {
+		if(this.error) throw this.error;
+		const fields = records.map((record) => Array.isArray(record)
+			? record.reduce((acc, val, index) => {
+				acc[index + 1] = val;
+				return acc;
+			}, {} as { [key: number]: string })
+			: record);
+		return this.track(await handleNativeException(NativeModule.writePrintStreamRecords(this.streamId, fields)));
+	}
+
+	private track(ready: boolean) {
+		if(!ready) this.backpressured = true;
+		return ready;
+	}
+
+	/**
+	 * Resolves when the buffer has room again after a write resolved false. Rejects if the stream failed.
+	 */
+	public waitForDrain(): Promise<void> {
+		if(this.error) return Promise.reject(this.error);
+		if(!this.backpressured) return Promise.resolve();
+		return new Promise((resolve, reject) => {
+			this.drainWaiters.push({ resolve, reject });
+		});
+	}
+
+	/**
+	 * Adds a listener for progress ("flushed"), "drain" and "error" events.
+	 * @returns function removing the listener.
+	 */
+	public addListener(listener: (event: PrintStreamEvent) => void): () => void {
+		this.listeners.add(listener);
+		return () => this.listeners.delete(listener);
+	}
+
+	/**
+	 * Sends the buffered data and closes the stream.
+	 */
+	public async close(): Promise<PrintStreamSummary> {
+		return await this.finish(false);
+	}
+
+	/**
+	 * Closes the stream, throwing away the data which is not sent yet.
+	 * The connection is reopened if a label was cut off.
+	 */
+	public async abort(): Promise<PrintStreamSummary> {
+		return await this.finish(true);
+	}
+
+	private async finish(abort: boolean): Promise<PrintStreamSummary> {
+		//the native stream is gone once it failed
+		if(this.error) throw this.error;
+		try {
+			return await handleNativeException(NativeModule.closePrintStream(this.streamId, abort));
+		} finally {
+			this.settleDrainWaiters();
+			this.subscription.remove();
+		}
+	}
+
+	private fail(error: unknown) {
+		this.error = error;
+		this.settleDrainWaiters();
+		this.subscription.remove();
+	}
+
+	private settleDrainWaiters() {
+		const waiters = this.drainWaiters;
+		this.drainWaiters = [];
+		for(const waiter of waiters) {
+			if(this.error) waiter.reject(this.error);
+			else waiter.resolve();
+		}
+	}
+}
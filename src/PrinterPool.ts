@@ -0,0 +1,62 @@
+import NativeModule, {
+	handleNativeException,
+	PoolJobOptions,
+	PoolJobResult,
+	PoolStats,
+	PrinterHandle
+} from "./native/NativeRNZebraLinkOS";
+
+
+/**
+ * Several identical printers used as one logical printer.
+ * Each job goes to the ready printer with the shallowest queue, printers reporting head open,
+ * paper out or pause are skipped, and a job failing on one printer is moved to the next one.
+ */
+export class PrinterPool {
+
+	private static nextPoolId = 0;
+
+	private readonly poolId: string;
+
+	private constructor(poolId: string) {
+		this.poolId = poolId;
+	}
+
+	/**
+	 * Creates a pool of printers. The printers are connected on demand.
+	 * @param handles - printers of the pool
+	 * @param poolId - optional pool name, must be unique
+	 */
+	static async create(handles: PrinterHandle[], poolId = `pool-${PrinterPool.nextPoolId++}`) {
+		await handleNativeException(NativeModule.createPrinterPool(poolId, handles));
+		return new PrinterPool(poolId);
+	}
+
+	getId() {
+		return this.poolId;
+	}
+
+	/**
+	 * Sends the job to the least busy ready printer of the pool.
+	 * @param data - job content (ZPL/CPCL), encoded in the chosen printer's code page
+	 * @param options - status freshness, number of failover attempts, operation ID and deadline
+	 * @returns the printer which received the job.
+	 */
+	public async send(data: string, options?: PoolJobOptions): Promise<PoolJobResult> {
+		return await handleNativeException(NativeModule.submitPoolJob(this.poolId, data, options));
+	}
+
+	/**
+	 * Returns throughput of the pool and the state of each printer.
+	 */
+	public async getStats(): Promise<PoolStats> {
+		return await handleNativeException(NativeModule.getPrinterPoolStats(this.poolId));
+	}
+
+	/**
+	 * Removes the pool. Printer connections are kept.
+	 */
+	public async destroy() {
+		await handleNativeException(NativeModule.destroyPrinterPool(this.poolId));
+	}
+}
@@ -0,0 +1,80 @@
+import { EncodedPrinterStatus, PrinterStatus, ZplPrintMode } from "./native/NativeRNZebraLinkOS";
+
+//must be kept in sync with PrinterStatusEncoder.java
+const FLAG_PARTIAL_FORMAT_IN_PROGRESS = 1;
+const FLAG_HEAD_COLD = 1 << 1;
+const FLAG_HEAD_OPEN = 1 << 2;
+const FLAG_HEAD_TOO_HOT = 1 << 3;
+const FLAG_PAPER_OUT = 1 << 4;
+const FLAG_RIBBON_OUT = 1 << 5;
+const FLAG_RECEIVE_BUFFER_FULL = 1 << 6;
+const FLAG_PAUSED = 1 << 7;
+const FLAG_READY_TO_PRINT = 1 << 8;
+const PRINT_MODE_SHIFT = 16;
+
+//in the order of the native ZplPrintMode enum
+const PRINT_MODES = [
+	ZplPrintMode.REWIND,
+	ZplPrintMode.PEEL_OFF,
+	ZplPrintMode.TEAR_OFF,
+	ZplPrintMode.CUTTER,
+	ZplPrintMode.APPLICATOR,
+	ZplPrintMode.DELAYED_CUT,
+	ZplPrintMode.LINERLESS_PEEL,
+	ZplPrintMode.LINERLESS_REWIND,
+	ZplPrintMode.PARTIAL_CUTTER,
+	ZplPrintMode.RFID,
+	ZplPrintMode.KIOSK,
+	ZplPrintMode.UNKNOWN,
+];
+
+/**
+ * PrinterStatus backed by the compact array returned from native code.
+ * Fields are expanded only when they are read.
+ */
+class DecodedPrinterStatus implements PrinterStatus {
+
+	private readonly flags: number;
+	private readonly encoded: EncodedPrinterStatus;
+
+	constructor(encoded: EncodedPrinterStatus) {
+		this.encoded = encoded;
+		this.flags = encoded[0];
+	}
+
+	get isPartialFormatInProgress() { return (this.flags & FLAG_PARTIAL_FORMAT_IN_PROGRESS) !== 0; }
+	get isHeadCold() { return (this.flags & FLAG_HEAD_COLD) !== 0; }
+	get isHeadOpen() { return (this.flags & FLAG_HEAD_OPEN) !== 0; }
+	get isHeadTooHot() { return (this.flags & FLAG_HEAD_TOO_HOT) !== 0; }
+	get isPaperOut() { return (this.flags & FLAG_PAPER_OUT) !== 0; }
+	get isRibbonOut() { return (this.flags & FLAG_RIBBON_OUT) !== 0; }
+	get isReceiveBufferFull() { return (this.flags & FLAG_RECEIVE_BUFFER_FULL) !== 0; }
+	get isPaused() { return (this.flags & FLAG_PAUSED) !== 0; }
+	get isReadyToPrint() { return (this.flags & FLAG_READY_TO_PRINT) !== 0; }
+	get printMode() { return PRINT_MODES[(this.flags >> PRINT_MODE_SHIFT) & 0xFF] ?? ZplPrintMode.UNKNOWN; }
+	get labelLengthInDots() { return this.encoded[1]; }
+	get numberOfFormatsInReceiveBuffer() { return this.encoded[2]; }
+	get labelsRemainingInBatch() { return this.encoded[3]; }
+
+	toJSON(): PrinterStatus {
+		return {
+			isHeadCold: this.isHeadCold,
+			isHeadOpen: this.isHeadOpen,
+			isHeadTooHot: this.isHeadTooHot,
+			isPaperOut: this.isPaperOut,
+			isPartialFormatInProgress: this.isPartialFormatInProgress,
+			isPaused: this.isPaused,
+			isReadyToPrint: this.isReadyToPrint,
+			isReceiveBufferFull: this.isReceiveBufferFull,
+			isRibbonOut: this.isRibbonOut,
+			labelLengthInDots: this.labelLengthInDots,
+			labelsRemainingInBatch: this.labelsRemainingInBatch,
+			numberOfFormatsInReceiveBuffer: this.numberOfFormatsInReceiveBuffer,
+			printMode: this.printMode,
+		};
+	}
+}
+
+export function decodePrinterStatus(encoded: EncodedPrinterStatus): PrinterStatus {
+	return new DecodedPrinterStatus(encoded);
+}
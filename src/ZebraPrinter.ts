@@ -1,12 +1,31 @@
-import { handleToConnectionType } from "./index";
+import { DeviceEventEmitter } from "react-native";
+import { createOperationId, handleToConnectionType } from "./index";
+import { decodePrinterStatus } from "./PrinterStatusDecoder";
+import { PrintStream } from "./PrintStream";
 import NativeModule, {
 	handleNativeException,
 	NativePrinterConnectionData,
+	OperationOptions,
 	PrinterConnectionType,
 	PrinterHandle,
 	PrinterLanguage,
 	PrinterStatus,
-	ProgressCallback
+	PrintJobOptions,
+	PrintJobResult,
+	PrintStreamOptions,
+	ProgressCallback,
+	NativeResponseRecordsEvent,
+	ResponseParserType,
+	ResponseRecord,
+	ResponseStreamOptions,
+	TemplateCacheStats,
+	TemplateOptions,
+	TemplateResult,
+	TransferStats,
+	DispatchStats,
+	FileFilter,
+	UploadOptions,
+	RESPONSE_RECORDS_EVENT
 } from "./native/NativeRNZebraLinkOS";
 
 
@@ -19,7 +38,7 @@ export class ZebraPrinter {
 
 	constructor(data: NativePrinterConnectionData) {
 		this.handle = data.handle;
-		this.status = data.status;
+		this.status = decodePrinterStatus(data.status);
 		this.controlLanguage = data.controlLanguage as PrinterLanguage;
 		this.connectionType = handleToConnectionType(this.handle);
 	}
@@ -53,7 +72,7 @@ export class ZebraPrinter {
 
 	public async connect() {
 		const data = await handleNativeException(NativeModule.connectPrinter(this.handle));
-		this.status = data.status;
+		this.status = decodePrinterStatus(data.status);
 		this.controlLanguage = data.controlLanguage as PrinterLanguage;
 	}
 
@@ -66,7 +85,7 @@ export class ZebraPrinter {
 	 * Use getStatus() to retrieve it.
 	 */
 	public async queryPrinterStatus() {
-		this.status = await handleNativeException(NativeModule.getPrinterStatus(this.handle))
+		this.status = decodePrinterStatus(await handleNativeException(NativeModule.getPrinterStatus(this.handle)));
 	}
 
 	//tools
@@ -74,7 +93,6 @@ export class ZebraPrinter {
 	 * Sends the appropriate calibrate command to the printer.
 	 */
 	public async calibrate() {
-		console.log("Calibrating printer...", this.handle);
 		await handleNativeException(NativeModule.calibratePrinter(this.handle));
 	}
 
@@ -95,14 +113,122 @@ export class ZebraPrinter {
 	/**
 	 * Sends a command to the printer and waits for response.
 	 * This method can be used to print labels.
+	 * The text is encoded in the printer's code page, which follows the ^CI commands sent through this method
+	 * (UTF-8 until a code page is known, see setCodePage()).
 	 * @param data command content
 	 * @returns the command response, if any.
 	 */
 	public async send(data: string) {
-		console.log("Sending command...", this.handle);
 		return await handleNativeException(NativeModule.sendPrinterCommand(this.handle, data));
 	}
 
+	/**
+	 * Sends raw bytes to the printer and waits for response, without any text encoding.
+	 * @param data command content
+	 * @returns the raw response, if any.
+	 */
+	public async sendBytes(data: Buffer) {
+		const response = await handleNativeException(NativeModule.sendPrinterBytes(this.handle, Array.from(data)));
+		return response !== null ? Buffer.from(response) : null;
+	}
+
+	/**
+	 * Sends a print job and optionally waits until its labels are printed, see PrintJobOptions.waitFor.
+	 * With maxInFlight, jobs are held back until the printer has printed enough of the earlier ones,
+	 * so only a few labels are buffered in the printer at any time.
+	 * Use a multichannel handle (e.g. TCP_MULTI) for exact tracking with the printer's label counter.
+	 * @param data - ZPL job, e.g. "^XA...^PQ2^XZ".
+	 * @returns timestamps of the stages the job went through.
+	 */
+	public async printJob(data: string, options?: PrintJobOptions): Promise<PrintJobResult> {
+		return await handleNativeException(NativeModule.sendPrintJob(this.handle, data, options));
+	}
+
+	/**
+	 * Opens a write stream for long print runs, see PrintStream.
+	 * @param options - buffer size, progress event interval, template for PrintStream.writeRecords()
+	 */
+	public async openPrintStream(options?: PrintStreamOptions): Promise<PrintStream> {
+		return await PrintStream.open(this.handle, options);
+	}
+
+	/**
+	 * Sets the code page used to encode commands and decode responses, e.g. when the printer
+	 * has a ^CI setting saved in its configuration.
+	 * @param codePage - ZPL ^CI value (13 = CP850, 27 = CP1252, 28 = UTF-8, 31 = CP1250, 33 = CP1251, ...)
+	 */
+	public async setCodePage(codePage: number) {
+		await handleNativeException(NativeModule.setPrinterCodePage(this.handle, codePage));
+	}
+
+	/**
+	 * Returns the ZPL ^CI value currently used for this printer, or -1 if it is not known yet.
+	 */
+	public async getCodePage() {
+		return await handleNativeException(NativeModule.getPrinterCodePage(this.handle));
+	}
+
+	/**
+	 * Returns the write chunk size and throughput of transfers (files, fonts, jobs) to this printer.
+	 * Available for Bluetooth printers after the first transfer, null otherwise.
+	 */
+	public async getTransferStats(): Promise<TransferStats | null> {
+		return await handleNativeException(NativeModule.getTransferStats(this.handle));
+	}
+
+	/**
+	 * Returns how long calls to this printer waited for its channel, per priority class.
+	 * Null before the first call.
+	 */
+	public async getDispatchStats(): Promise<DispatchStats | null> {
+		return await handleNativeException(NativeModule.getDispatchStats(this.handle));
+	}
+
+	/**
+	 * Sends a command and parses the reply incrementally, yielding records as soon as they are received
+	 * instead of buffering the whole reply. Reading stops at the reply's terminator.
+	 * Leaving the loop early (break, return or throw) cancels the read on the printer.
+	 * @example
+	 * for await (const setting of printer.streamResponse('! U1 getvar "allcv"\r\n', ResponseParserType.Settings)) { ... }
+	 * @param command - command to send, encoded in the printer's code page
+	 * @param parser - how to split the reply into records
+	 * @param options - timeouts, batch size, custom terminator, operation ID and deadline
+	 */
+	public async *streamResponse(command: string, parser: ResponseParserType, options?: ResponseStreamOptions): AsyncGenerator<ResponseRecord, void, void> {
+		const requestId = createOperationId();
+		//the native read needs an operation ID, so stopping early can cancel it
+		const operationId = options?.operationId ?? requestId;
+		const pending: ResponseRecord[] = [];
+		let wake: (() => void) | null = null;
+		let done = false;
+		let error: unknown = null;
+
+		const subscription = DeviceEventEmitter.addListener(RESPONSE_RECORDS_EVENT, (event: NativeResponseRecordsEvent) => {
+			if(event.requestId !== requestId) return;
+			pending.push(...event.records);
+			wake?.();
+		});
+		handleNativeException(NativeModule.streamPrinterResponse(this.handle, command, parser, requestId, { ...options, operationId }))
+			.catch((e) => { error = e; })
+			.finally(() => { done = true; wake?.(); });
+
+		try {
+			while(true) {
+				while(pending.length > 0) {
+					yield pending.shift()!;
+				}
+				if(error) throw error;
+				if(done) return;
+				await new Promise<void>((resolve) => { wake = resolve; });
+				wake = null;
+			}
+		} finally {
+			subscription.remove();
+			//the consumer stopped before the reply was read
+			if(!done) NativeModule.cancelOperation(operationId).catch(() => {});
+		}
+	}
+
 	/**
 	 * Sends the appropriate reset command to the printer.
 	 * @remarks You should call disconnect() after this method, as resetting the printer will terminate the connection.
@@ -112,7 +238,8 @@ export class ZebraPrinter {
 	}
 
 	/**
-	 * Retrieves the names of the files which are stored on the printer.
+	 * Retrieves the names of the files which are stored on the printer (e.g. "E:LOGO.GRF").
+	 * Served from the printer's file index, see refreshFileIndex().
 	 * @param extensions - the extensions to filter on.
 	 */
 	public async retrieveFileNames(extensions?: string[]) {
@@ -121,19 +248,30 @@ export class ZebraPrinter {
 
 	/**
 	 * Retrieves the properties of the objects which are stored on the printer.
+	 * The first call lists the printer's drives into a file index, which later calls are served from.
+	 * The index follows the files stored and deleted through this library and is listed again after setFileIndexTtl().
+	 * @param filter - only return the objects on these drives or with these extensions.
 	 * @returns the list of objects with their properties.
 	 */
-	public async retrieveObjectsProperties() {
-		return await handleNativeException(NativeModule.retrieveObjectsProperties(this.handle));
+	public async retrieveObjectsProperties(filter?: FileFilter) {
+		return await handleNativeException(NativeModule.retrieveObjectsProperties(this.handle, filter));
+	}
+
+	/**
+	 * Lists the printer's drives again, e.g. after files were changed by another app or a printer menu.
+	 */
+	public async refreshFileIndex() {
+		await handleNativeException(NativeModule.refreshFileIndex(this.handle));
 	}
 	
 	/**
 	 * Sends the contents of a file to the printer.
 	 * @param filePath the full path of the file to be sent (e.g. "/storage/emulated/0/Documents/sample.lbl").
 	 * @param progressCallback callback to update on progress
+	 * @param options - operation ID and deadline, see cancelOperation().
 	 */
-	public async sendFileContents(filePath: string, progressCallback?: ProgressCallback) {
-		await handleNativeException(NativeModule.sendFileContents(this.handle, filePath, progressCallback));
+	public async sendFileContents(filePath: string, progressCallback?: ProgressCallback, options?: OperationOptions) {
+		await handleNativeException(NativeModule.sendFileContents(this.handle, filePath, progressCallback, options));
 	}
 
 	//graphics operations
@@ -166,13 +304,14 @@ export class ZebraPrinter {
 	 * @param image - the image to be stored on the printer.
 	 * @param width - desired width of the printed image, in dots. Passing -1 will preserve original width.
 	 * @param height - desired height of the printed image, in dots. Passing -1 will preserve original height.
+	 * @param options - compression (ZPL printers only), operation ID and deadline. Compressed images are stored as GRF.
 	 */
-	public async storeImage(deviceDriveAndFileName: string, image: string | Buffer, width = -1, height = -1) {
+	public async storeImage(deviceDriveAndFileName: string, image: string | Buffer, width = -1, height = -1, options?: UploadOptions) {
 		if(typeof image === "string") {
-			await handleNativeException(NativeModule.storeImageFromFile(this.handle, deviceDriveAndFileName, image, width, height));
+			await handleNativeException(NativeModule.storeImageFromFile(this.handle, deviceDriveAndFileName, image, width, height, options));
 		}
 		else {
-			await handleNativeException(NativeModule.storeImageFromBuffer(this.handle, deviceDriveAndFileName, Array.from(image), width, height));
+			await handleNativeException(NativeModule.storeImageFromBuffer(this.handle, deviceDriveAndFileName, Array.from(image), width, height, options));
 		}
 	}
 
@@ -212,6 +351,40 @@ export class ZebraPrinter {
 		await handleNativeException(NativeModule.printStoredFormat(this.handle, formatPathOnPrinter, vars));
 	}
 
+	/**
+	 * Prints a label template (ZPL with ^FNn field placeholders) filled with the field data.
+	 * Templates printed repeatedly are stored on the printer, after that only ^XF with the field data is sent.
+	 * Stored templates are checked against the printer's file list and stored again when they are missing.
+	 * The template must use the default ^ and ~ command prefixes. Printers without Link-OS always get the whole label.
+	 * @param template - ZPL label, e.g. "^XA^FO50,50^A0N,40^FN1^FS^XZ".
+	 * @param fields - field data, an array starts with ^FN1.
+	 * @param options - promotion and validation settings, operation ID and deadline.
+	 */
+	public async printTemplate(template: string, fields: string[] | { [key: number]: string }, options?: TemplateOptions): Promise<TemplateResult> {
+		if(Array.isArray(fields)) {
+			fields = fields.reduce((acc, val, index) => {
+				acc[index + 1] = val;
+				return acc;
+			}, {} as { [key: number]: string });
+		}
+		return await handleNativeException(NativeModule.printTemplate(this.handle, template, fields, options));
+	}
+
+	/**
+	 * Returns the templates stored on this printer by printTemplate() and how many bytes they saved.
+	 */
+	public async getTemplateCacheStats(): Promise<TemplateCacheStats | null> {
+		return await handleNativeException(NativeModule.getTemplateCacheStats(this.handle));
+	}
+
+	/**
+	 * Forgets the stored templates, so the next jobs are sent whole until they are stored again.
+	 * @param deleteFromPrinter - also delete the stored formats from the printer.
+	 */
+	public async clearTemplateCache(deleteFromPrinter = false) {
+		await handleNativeException(NativeModule.clearTemplateCache(this.handle, deleteFromPrinter));
+	}
+
 	/**
 	 * Get the printer's SNMP get community name.
 	 */
@@ -251,9 +424,10 @@ export class ZebraPrinter {
 	 * These commands include download commands and any immediate commands (~CC, ~CD, ~DB, ~DE, ~DG, ~DY, ~EG, ~HI, ~HU, ~HM, ~HQ, ~HS, ~JA, ~JB, ~JC, ~JD, ~JE, ~JF, ~JG, ~JI, ~JL, ~JN, ~JO, ~JP, ~JQ, ~JR, ~JS, ~JX, ~NC, ~NT, ~PL, ~PP, ~PR, ~PS, ~RO, ~SD, ~TA, ~WC, ~WQ, ^DF)
 	 * @param targetPath - the full file path (e.g. "C:\\Users\\%USERNAME%\\Documents\\sample.zpl").
 	 * @param fileContents - the full name of the file on the printer (e.g "R:SAMPLE.ZPL").
+	 * @param options - compression, operation ID and deadline, see cancelOperation().
 	 */
-	public async storeFileOnPrinter(targetPath: string, fileContents: Buffer) {
-		await handleNativeException(NativeModule.storeFileOnPrinter(this.handle, targetPath, Array.from(fileContents)));
+	public async storeFileOnPrinter(targetPath: string, fileContents: Buffer, options?: UploadOptions) {
+		await handleNativeException(NativeModule.storeFileOnPrinter(this.handle, targetPath, Array.from(fileContents), options));
 	}
 
 	/**
@@ -279,18 +453,20 @@ export class ZebraPrinter {
 	 * Sends a TrueType® font file to a printer and stores it at the specified path as a TTF.
 	 * @param targetPath - Buffer containing the raw font data.
 	 * @param fontData - Location to save the font file on the printer.
+	 * @param options - compression, operation ID and deadline, see cancelOperation().
 	 */
-	public async uploadTTFFont(targetPath: string, fontData: Buffer) {
-		await handleNativeException(NativeModule.uploadTTFFont(this.handle, targetPath, Array.from(fontData)));
+	public async uploadTTFFont(targetPath: string, fontData: Buffer, options?: UploadOptions) {
+		await handleNativeException(NativeModule.uploadTTFFont(this.handle, targetPath, Array.from(fontData), options));
 	}
 
 	/**
 	 * Sends a TrueType® font to a printer and stores it at the specified path as a TrueType® extension (TTE).
 	 * @param targetPath - Buffer containing the raw font data.
 	 * @param fontData - Location to save the font file on the printer.
+	 * @param options - compression, operation ID and deadline, see cancelOperation().
 	 */
-	public async uploadTTEFont(targetPath: string, fontData: Buffer) {
-		await handleNativeException(NativeModule.uploadTTEFont(this.handle, targetPath, Array.from(fontData)));
+	public async uploadTTEFont(targetPath: string, fontData: Buffer, options?: UploadOptions) {
+		await handleNativeException(NativeModule.uploadTTEFont(this.handle, targetPath, Array.from(fontData), options));
 	}
 
 	/**
@@ -14,3 +14,6 @@ export class ZebraIllegalArgumentError extends BaseError {}
 export class ZebraPrinterParseError extends BaseError {}
 export class DiscoveryError extends BaseError {}
 export class IOError extends BaseError {}
+export class SettingsError extends BaseError {}
+export class OperationCancelledError extends BaseError {}
+export class OperationTimeoutError extends BaseError {}
@@ -1,39 +1,250 @@
+import { DeviceEventEmitter } from "react-native";
 import { DiscoveredPrinter } from "./DiscoveredPrinter";
 import { ZebraPrinter } from "./ZebraPrinter";
+import { PrinterPool } from "./PrinterPool";
+import { PrintStream } from "./PrintStream";
 import ZebraNative, {
 	handleNativeException,
-	NativeDiscoveredPrinter,
 	PrinterConnectionType,
 	PrinterHandle,
+	RawByteArray,
 	ZplPrintMode,
 	PrinterStatus,
 	PrinterObjectProperties,
+	FileFilter,
 	DriveType,
 	StorageInfo,
-	TcpPortStatus
+	TcpPortStatus,
+	OperationOptions,
+	LogCategory,
+	LogLevel,
+	IoTraceEvent,
+	CaptureSummary,
+	ResponseParserType,
+	ResponseRecord,
+	ResponseStreamOptions,
+	DiscoveryOptions,
+	DiscoverySummary,
+	NativeDiscoveryBatchEvent,
+	NativeGroupOperation,
+	GroupOptions,
+	GroupResult,
+	GroupReport,
+	PoolJobOptions,
+	PoolJobResult,
+	PoolStats,
+	PoolPrinterStats,
+	KnownPrinter,
+	TransferStats,
+	DispatchStats,
+	LaneStats,
+	UploadOptions,
+	TemplateOptions,
+	TemplateResult,
+	TemplateCacheStats,
+	StoredTemplate,
+	PrintJobOptions,
+	PrintJobResult,
+	PrintStreamOptions,
+	PrintStreamEvent,
+	PrintStreamSummary,
+	DISCOVERY_BATCH_EVENT,
+	DISCOVERY_SUMMARY_EVENT
 } from "./native/NativeRNZebraLinkOS";
 
+let operationCounter = 0;
+
+/**
+ * Creates a unique ID which can be passed in OperationOptions to make an operation cancellable.
+ */
+export function createOperationId(): string {
+	return `op-${Date.now().toString(36)}-${(operationCounter++).toString(36)}`;
+}
+
+/**
+ * Cancels a running operation (file transfer, font upload, discovery) started with the given operationId.
+ * Transfers stop at the next chunk boundary and their promise rejects with OperationCancelledError.
+ * @returns true if a running operation was found and cancelled.
+ */
+export async function cancelOperation(operationId: string): Promise<boolean> {
+	return await handleNativeException(ZebraNative.cancelOperation(operationId));
+}
+
+/**
+ * Sets the native log level for a category. Disabled levels cost nothing.
+ * Debuggable apps default to LogLevel.Debug, release builds to LogLevel.Warn.
+ */
+export async function setLogLevel(category: LogCategory, level: LogLevel): Promise<void> {
+	await handleNativeException(ZebraNative.setLogLevel(category, level));
+}
+
+/**
+ * Enables a ring buffer holding the last `capacity` I/O events (bytes, timing, handle). Pass 0 to disable it.
+ */
+export async function setIoTraceCapacity(capacity: number): Promise<void> {
+	await handleNativeException(ZebraNative.setIoTraceCapacity(capacity));
+}
+
+/**
+ * Sets how long a printer's file index (see ZebraPrinter.retrieveObjectsProperties()) is used before the printer's drives
+ * are listed again, to pick up files changed outside the app. Defaults to 5 minutes, 0 lists the drives on every lookup.
+ */
+export async function setFileIndexTtl(ttlMs: number): Promise<void> {
+	await handleNativeException(ZebraNative.setFileIndexTtl(ttlMs));
+}
+
+/**
+ * Returns the I/O events recorded in the ring buffer, oldest first. Useful for support dumps.
+ */
+export async function dumpIoTrace(): Promise<IoTraceEvent[]> {
+	return await handleNativeException(ZebraNative.dumpIoTrace());
+}
+
+/**
+ * Starts recording every byte written to and read from the printer, with timestamps, into a capture file.
+ * The printer is reconnected, so the capture covers the whole session including connecting.
+ * The file can be played back by connecting to the handle "REPLAY:path" (original timing) or "REPLAY:timeScale:path",
+ * where the delays are multiplied by timeScale (0 replays without delays).
+ * @param path - file path, relative paths are in the app's files directory.
+ * @returns the absolute path of the capture file.
+ */
+export async function startCapture(handle: PrinterHandle, path: string): Promise<string> {
+	return await handleNativeException(ZebraNative.startCapture(handle, path));
+}
+
+/**
+ * Stops recording and closes the capture file. The printer is disconnected if the capture was running.
+ * @returns null if no capture was started for the handle.
+ */
+export async function stopCapture(handle: PrinterHandle): Promise<CaptureSummary | null> {
+	return await handleNativeException(ZebraNative.stopCapture(handle));
+}
+
+/**
+ * Renders the first label (^XA to ^XZ) of a ZPL job offline, without a printer, e.g. to preview it or to check a template.
+ * Supported: ^LH ^FO ^FT ^FW ^FD ^FV ^FH ^FR ^LR ^A ^CF ^FB ^GB ^GF ^BY ^BC ^BQ; other commands are skipped.
+ * Text is drawn with a font similar to font 0 at the requested size, so line breaks and widths are close but not exact.
+ * @param dpi - printer resolution, stored in the PNG and used for resolution dependent defaults.
+ * @param widthDots - label width in dots, e.g. 812 for 4" at 203 dpi.
+ * @param heightDots - label length in dots.
+ * @returns a 1-bit PNG image.
+ */
+export async function renderPreview(zpl: string, dpi: number, widthDots: number, heightDots: number): Promise<RawByteArray> {
+	return await handleNativeException(ZebraNative.renderPreview(zpl, dpi, widthDots, heightDots));
+}
+
+/**
+ * Opens a write stream for long print runs (e.g. 100k serialized labels) with constant memory use, see PrintStream.
+ * @param options - buffer size, progress event interval, template for PrintStream.writeRecords()
+ */
+export async function openPrintStream(handle: PrinterHandle, options?: PrintStreamOptions): Promise<PrintStream> {
+	return await PrintStream.open(handle, options);
+}
+
+/**
+ * Enables opening connections to the most recently used printers as soon as the app starts,
+ * so the first label does not pay for connecting and language detection. The setting is persisted.
+ */
+export async function setWarmUpEnabled(enabled: boolean): Promise<void> {
+	await handleNativeException(ZebraNative.setWarmUpEnabled(enabled));
+}
+
+/**
+ * Connects the most recently used printers in parallel.
+ * @returns number of printers connected.
+ */
+export async function warmUpPrinters(maxPrinters = 4): Promise<number> {
+	return await handleNativeException(ZebraNative.warmUpPrinters(maxPrinters));
+}
+
+/**
+ * Returns the printers remembered from previous connections, most recently used first.
+ * Their control language and Link-OS version are cached, which makes reconnecting faster.
+ */
+export async function getKnownPrinters(): Promise<KnownPrinter[]> {
+	return await handleNativeException(ZebraNative.getKnownPrinters());
+}
+
+/**
+ * Removes a printer from the known printers, e.g. after it was replaced by a different model.
+ */
+export async function forgetKnownPrinter(handle: PrinterHandle): Promise<boolean> {
+	return await handleNativeException(ZebraNative.forgetKnownPrinter(handle));
+}
+
+export async function clearKnownPrinters(): Promise<void> {
+	await handleNativeException(ZebraNative.clearKnownPrinters());
+}
+
+/**
+ * Operation run on every printer of a group, see groupExecute().
+ */
+export type GroupOperation =
+	| { type: 'send', data: string }
+	| { type: 'storeFile', targetPath: string, fileContents: Buffer }
+	| { type: 'setClock', dateTime: string }
+	| { type: 'setSettings', settings: { [name: string]: string } }
+	| { type: 'printConfigurationLabel' };
+
+/**
+ * Runs the same operation on many printers in parallel, e.g. a nightly clock sync or settings refresh.
+ * Failures do not stop the other printers, each one is reported in the returned report.
+ * @param handles - printers to run the operation on, connected on demand
+ * @param operation - what to do on each printer
+ * @param concurrencyLimit - maximum number of printers handled at once, 0 for no limit
+ * @param options - per-printer timeout and an operation ID cancelling the whole group
+ */
+export async function groupExecute(handles: PrinterHandle[], operation: GroupOperation, concurrencyLimit = 8, options?: GroupOptions): Promise<GroupReport> {
+	const nativeOperation: NativeGroupOperation = operation.type === 'storeFile'
+		? { ...operation, fileContents: Array.from(operation.fileContents) }
+		: operation;
+	return await handleNativeException(ZebraNative.groupExecute(handles, nativeOperation, concurrencyLimit, options));
+}
+
+/**
+ * Runs a discovery, delivering the found printers from native batch events of this session.
+ */
+async function discover(onPrinterFound: (printer: DiscoveredPrinter) => void, start: (sessionId: string) => Promise<DiscoverySummary>): Promise<DiscoverySummary> {
+	const sessionId = createOperationId();
+	const subscription = DeviceEventEmitter.addListener(DISCOVERY_BATCH_EVENT, (event: NativeDiscoveryBatchEvent) => {
+		if(event.sessionId !== sessionId) return;
+		for(const printer of event.printers) {
+			onPrinterFound(new DiscoveredPrinter(printer));
+		}
+	});
+	try {
+		return await handleNativeException(start(sessionId));
+	} finally {
+		subscription.remove();
+	}
+}
+
 /**
  * This function will search the network using a combination of discovery methods to find printers on the network. 
  * When the discovery is finished, the promise returned will resolve.
  * @param onPrinterFound Callback that will be invoked for each printer found during discovery.
+ * @param options - batching of results, operation ID and deadline, see cancelOperation().
+ * @returns number of printers found and time taken.
  */
-export function findNetworkPrinters(onPrinterFound: (printer: DiscoveredPrinter) => void): Promise<void> {
-	return ZebraNative.findNetworkPrinters((printer: NativeDiscoveredPrinter) => {
-		onPrinterFound(new DiscoveredPrinter(printer));
-	});
+export function findNetworkPrinters(onPrinterFound: (printer: DiscoveredPrinter) => void, options?: DiscoveryOptions): Promise<DiscoverySummary> {
+	return discover(onPrinterFound, (sessionId) => ZebraNative.findNetworkPrinters(sessionId, options));
 }
 
-export function findBluetoothPrinters(onPrinterFound: (printer: DiscoveredPrinter) => void, useBle: boolean): Promise<void> {
-	return ZebraNative.findBluetoothPrinters((printer: NativeDiscoveredPrinter) => {
-		onPrinterFound(new DiscoveredPrinter(printer));
-	}, useBle);
+export function findBluetoothPrinters(onPrinterFound: (printer: DiscoveredPrinter) => void, useBle: boolean, options?: DiscoveryOptions): Promise<DiscoverySummary> {
+	return discover(onPrinterFound, (sessionId) => ZebraNative.findBluetoothPrinters(sessionId, useBle, options));
 }
 
-export function findUsbPrinters(onPrinterFound: (printer: DiscoveredPrinter) => void): Promise<void> {
-	return ZebraNative.findUsbPrinters((printer: NativeDiscoveredPrinter) => {
-		onPrinterFound(new DiscoveredPrinter(printer));
-	});
+export function findUsbPrinters(onPrinterFound: (printer: DiscoveredPrinter) => void, options?: DiscoveryOptions): Promise<DiscoverySummary> {
+	return discover(onPrinterFound, (sessionId) => ZebraNative.findUsbPrinters(sessionId, options));
+}
+
+/**
+ * Subscribes to the summary events of all discovery runs, e.g. for diagnostics.
+ * @returns function removing the listener.
+ */
+export function addDiscoverySummaryListener(listener: (summary: DiscoverySummary) => void): () => void {
+	const subscription = DeviceEventEmitter.addListener(DISCOVERY_SUMMARY_EVENT, listener);
+	return () => subscription.remove();
 }
 
 export async function connectPrinter(handle: string): Promise<ZebraPrinter> {
@@ -87,6 +298,7 @@ export function handleToConnectionType(handle: PrinterHandle) {
 		else return PrinterConnectionType.Bluetooth;
 	}
 	if(handle.startsWith('USB')) return PrinterConnectionType.USB;
+	if(handle.startsWith('REPLAY')) return PrinterConnectionType.Replay;
 	throw new Error(`Invalid handle: ${handle}`);
 }
 
@@ -98,8 +310,42 @@ export {
 	ZplPrintMode,
 	PrinterStatus,
 	PrinterObjectProperties,
+	FileFilter,
 	DriveType,
 	StorageInfo,
 	TcpPortStatus,
-	PrinterConnectionType
+	PrinterConnectionType,
+	OperationOptions,
+	LogCategory,
+	LogLevel,
+	IoTraceEvent,
+	CaptureSummary,
+	ResponseParserType,
+	ResponseRecord,
+	ResponseStreamOptions,
+	DiscoveryOptions,
+	DiscoverySummary,
+	GroupOptions,
+	GroupResult,
+	GroupReport,
+	PrinterPool,
+	PoolJobOptions,
+	PoolJobResult,
+	PoolStats,
+	PoolPrinterStats,
+	KnownPrinter,
+	TransferStats,
+	DispatchStats,
+	LaneStats,
+	UploadOptions,
+	TemplateOptions,
+	TemplateResult,
+	TemplateCacheStats,
+	StoredTemplate,
+	PrintJobOptions,
+	PrintJobResult,
+	PrintStream,
+	PrintStreamOptions,
+	PrintStreamEvent,
+	PrintStreamSummary
 };
\ No newline at end of file
@@ -6,7 +6,10 @@ import {
 	NotALinkOsPrinterError,
 	ZebraIllegalArgumentError,
 	ZebraPrinterLanguageUnknownError,
-	ZebraPrinterParseError
+	ZebraPrinterParseError,
+	OperationCancelledError,
+	OperationTimeoutError,
+	SettingsError
 } from "../errors";
 
 export type PrinterHandle = string;
@@ -50,6 +53,12 @@ export interface PrinterStatus {
 	printMode: ZplPrintMode;
 }
 
+/**
+ * PrinterStatus as sent by native code: [flags, labelLengthInDots, numberOfFormatsInReceiveBuffer, labelsRemainingInBatch].
+ * Use decodePrinterStatus() to read it.
+ */
+export type EncodedPrinterStatus = Array<number>;
+
 export interface PrinterObjectProperties {
 	drivePrefix: string;
 	fileName: string;
@@ -59,6 +68,14 @@ export interface PrinterObjectProperties {
 	fileSize: number;
 }
 
+/**
+ * Narrows a lookup in the printer's file index. Drives are given as letters ("E"), extensions without the dot ("GRF").
+ */
+export interface FileFilter {
+	drives?: string[];
+	extensions?: string[];
+}
+
 export enum DriveType {
 	Flash       ,//= 'FLASH',        // Onboard flash drive.
 	RAM         ,//= 'RAM',          // RAM Drive.
@@ -88,6 +105,8 @@ export enum PrinterConnectionType {
 	BluetoothLE = 'bluetooth-le',
 	BluetoothInsecure = 'bluetooth-insecure',
 	USB = 'usb',
+	/** Captured printer played back from a file, see startCapture(). */
+	Replay = 'replay',
 }
 
 export interface NativeException extends Error {
@@ -108,18 +127,418 @@ export interface NativeDiscoveredPrinter {
 	discoveryData: { [key: string]: string };
 }
 
+/**
+ * Options for long-running operations (file transfers, font uploads, discovery).
+ */
+export interface OperationOptions {
+	/** ID which can be passed to cancelOperation() to abort the operation. Must be unique among running operations. */
+	operationId?: string;
+	/** Deadline in milliseconds, after which the operation is aborted. 0 or undefined means no deadline. */
+	timeout?: number;
+}
+
+export interface DiscoveryOptions extends OperationOptions {
+	/** Found printers are delivered in batches at most this often (ms), default 250. 0 delivers every printer right away. */
+	batchInterval?: number;
+	/** A batch is delivered early once it holds this many printers, default 32. */
+	batchSize?: number;
+}
+
+export interface NativeDiscoveryBatchEvent {
+	sessionId: string;
+	printers: NativeDiscoveredPrinter[];
+}
+
+/**
+ * Sent as the last event of a discovery run on one transport.
+ */
+export interface DiscoverySummary {
+	sessionId: string;
+	connectionType: PrinterConnectionType;
+	result: 'finished' | 'error' | 'cancelled' | 'timeout';
+	/** Number of printers found. */
+	found: number;
+	elapsedMs: number;
+	/** Error message when result is "error". */
+	message?: string;
+}
+
+export const DISCOVERY_BATCH_EVENT = 'RNZebraLinkOS_discoveryBatch';
+export const DISCOVERY_SUMMARY_EVENT = 'RNZebraLinkOS_discoverySummary';
+
+//flattened GroupOperation, Codegen does not support unions of object types
+export interface NativeGroupOperation {
+	type: string;
+	data?: string;
+	targetPath?: string;
+	fileContents?: RawByteArray;
+	dateTime?: string;
+	settings?: { [name: string]: string };
+}
+
+export interface GroupOptions {
+	/** ID which can be passed to cancelOperation() to abort the whole group. */
+	operationId?: string;
+	/** Deadline for each printer in ms, connecting included. 0 or undefined means no deadline. */
+	timeout?: number;
+}
+
+export interface GroupResult {
+	handle: PrinterHandle;
+	success: boolean;
+	/** Native error code of the failure, e.g. "ConnectionException" or "OperationTimeoutException". */
+	code?: string;
+	message?: string;
+	durationMs: number;
+}
+
+export interface GroupReport {
+	/** One result per handle, in the order the handles were passed. A handle passed twice is run and reported once. */
+	results: GroupResult[];
+	succeeded: number;
+	failed: number;
+	elapsedMs: number;
+}
+
+export interface PoolJobOptions extends OperationOptions {
+	/** Printer statuses older than this (ms) are queried again before choosing a printer, default 1000. */
+	statusMaxAge?: number;
+	/** Number of printers tried before the job fails, defaults to the pool size. */
+	maxAttempts?: number;
+}
+
+export interface PoolJobResult {
+	/** Printer which received the job. */
+	handle: PrinterHandle;
+	/** 1 if the first chosen printer accepted the job, more after failovers. */
+	attempts: number;
+}
+
+export interface PoolPrinterStats {
+	handle: PrinterHandle;
+	/** False if the last status reported head open, paper out or pause, or the printer was unreachable. */
+	ready: boolean;
+	/** Formats waiting in the printer, labels left in the batch and jobs being sent. */
+	queueDepth: number;
+	jobs: number;
+	failures: number;
+	bytesSent: number;
+}
+
+export interface PoolStats {
+	poolId: string;
+	uptimeMs: number;
+	jobsCompleted: number;
+	jobsFailed: number;
+	/** Number of times a job was moved to another printer after a failure. */
+	failovers: number;
+	bytesSent: number;
+	/** Throughput over the last 60 seconds. */
+	jobsLastMinute: number;
+	averageJobMs: number;
+	printers: PoolPrinterStats[];
+}
+
+export interface KnownPrinter {
+	handle: PrinterHandle;
+	/** ms since epoch of the last connection. */
+	lastUsed: number;
+	controlLanguage?: string;
+	/** Link-OS version (major.minor.micro), if the printer was used through a Link-OS function. */
+	linkOsVersion?: string;
+	connected: boolean;
+}
+
+/**
+ * Write tuning and throughput of transfers to a Bluetooth printer.
+ */
+export interface TransferStats {
+	transport: string;
+	/** BLE MTU payload or RFCOMM frame size, chunks are a multiple of it. */
+	packetSize: number;
+	/** Current chunk size, adapted to the link and remembered for the next session. */
+	chunkSize: number;
+	/** Throughput of the last transfer. */
+	lastBytesPerSecond: number;
+	averageBytesPerSecond: number;
+	bytesSent: number;
+}
+
+/**
+ * Waiting for one priority class of a printer channel. Classes in order: control (calibrate, reset),
+ * status (status queries), interactive (commands, print jobs), bulk (file, font and image transfers).
+ * Bulk transfers let waiting work in between their commands, a command being sent is never interrupted.
+ */
+export interface LaneStats {
+	grants: number;
+	/** Calls waiting right now. */
+	waiting: number;
+	averageWaitMs: number;
+	maxWaitMs: number;
+}
+
+export interface DispatchStats {
+	printingChannel?: { [priority: string]: LaneStats };
+	/** Status work on multichannel printers, which does not wait for the printing channel. */
+	statusChannel?: { [priority: string]: LaneStats };
+}
+
+/**
+ * Options for uploading files, fonts and images.
+ */
+export interface UploadOptions extends OperationOptions {
+	/**
+	 * Sends the object with ~DY, compressed (z64: deflate + base64) or base64 encoded (b64).
+	 * "auto" uses z64 when a sample of the data shows it compresses well, otherwise the data is sent as is.
+	 * Default "none".
+	 */
+	compression?: 'auto' | 'z64' | 'b64' | 'none';
+}
+
+export interface TemplateOptions extends OperationOptions {
+	/** Number of submissions after which the template is stored on the printer. Default 3. */
+	promoteAfter?: number;
+	/** Drive the template is stored on, R: is used when it is full. Default "E". */
+	drive?: string;
+	/** How often the stored formats are checked against the printer's file list (CRC32), in ms. Default 60000. */
+	validateInterval?: number;
+}
+
+export interface TemplateResult {
+	/** The label was sent as ^XF recall of the stored format. */
+	recalled: boolean;
+	/** The template was stored on the printer by this job. */
+	stored: boolean;
+	/** Stored format, when recalled. */
+	path?: string;
+	/** Size of the label sent, in bytes. */
+	bytes: number;
+}
+
+export interface StoredTemplate {
+	path: string;
+	/** CRC32 of the template text, hex. */
+	fingerprint: string;
+	/** CRC32 of the stored format, as reported by the printer. */
+	crc32: number;
+	size: number;
+	recalls: number;
+}
+
+export interface TemplateCacheStats {
+	recalls: number;
+	inlineJobs: number;
+	/** Estimated bytes not sent thanks to recalls. */
+	bytesSaved: number;
+	formats: StoredTemplate[];
+}
+
+export interface PrintJobOptions extends OperationOptions {
+	/**
+	 * When the promise resolves: once the data is written ("sent"), once the printer has taken the job's formats
+	 * from its receive buffer ("buffered"), or once its labels are printed ("printed"). Default "sent".
+	 */
+	waitFor?: 'sent' | 'buffered' | 'printed';
+	/** Labels printed by the job. Default: the ^PQ quantities of its formats. */
+	labels?: number;
+	/** Maximum labels sent but not yet printed, the job waits in the queue until it fits. Default 0 (no limit). */
+	maxInFlight?: number;
+	/** How often the printer is queried while waiting, in ms. Default 200. */
+	pollInterval?: number;
+}
+
+/**
+ * Timestamps (ms since epoch) of a print job. Stages after the one waited for may be missing.
+ */
+export interface PrintJobResult {
+	labels: number;
+	/**
+	 * "odometer": the printer's label count, read over the status channel of a multichannel connection.
+	 * "status": the format and batch counters of the printer status, which is less exact.
+	 */
+	tracking: 'odometer' | 'status';
+	queued: number;
+	sent: number;
+	buffered?: number;
+	printed?: number;
+	/**
+	 * True if the printer's label count confirms the labels were printed.
+	 * With "status" tracking "printed" is inferred from the counters and this is false.
+	 */
+	confirmed: boolean;
+}
+
+export enum LogCategory {
+	All = 'all',
+	Discovery = 'discovery',
+	Connection = 'connection',
+	IO = 'io',
+	Images = 'images',
+}
+
+/**
+ * Native log levels, same values as android.util.Log priorities.
+ */
+export enum LogLevel {
+	Verbose = 2,
+	Debug = 3,
+	Info = 4,
+	Warn = 5,
+	Error = 6,
+	None = 7,
+}
+
+export interface IoTraceEvent {
+	/** Start of the exchange, ms since epoch. */
+	timestamp: number;
+	handle: PrinterHandle;
+	/** "command" for sendPrinterCommand, "transfer" for file/font transfers. */
+	kind: string;
+	bytesOut: number;
+	bytesIn: number;
+	durationUs: number;
+}
+
+export interface CaptureSummary {
+	/** Absolute path of the capture file. */
+	path: string;
+	/** Recorded events and data bytes, missing if the printer was not connected since the capture started. */
+	events?: number;
+	bytes?: number;
+}
+
+export enum ResponseParserType {
+	/** SGD listings such as "allcv": key is the setting name, extra holds the choices. */
+	Settings = 'settings',
+	/** ^HH host configuration: key is the setting name. */
+	HostConfig = 'hostConfig',
+	/** ^HW directory listing: extra is "file" for files (value = size) or "bytesFree" for drives. */
+	Directory = 'directory',
+	/** ~HS host status: one record per named field. */
+	HostStatus = 'hostStatus',
+	/** Any other reply: key is the line number. */
+	Lines = 'lines',
+}
+
+export interface ResponseRecord {
+	key: string;
+	value: string;
+	extra?: string;
+}
+
+export interface ResponseStreamOptions extends OperationOptions {
+	/** Time to wait for the first byte of the reply in ms, default 5000. */
+	initialTimeout?: number;
+	/** Reading stops when the printer sends nothing for this long (ms), default 500. */
+	completionTimeout?: number;
+	/** Number of records delivered together, default 64. */
+	batchSize?: number;
+	/** String ending the reply, overrides the STX/ETX framing of the parser. */
+	terminator?: string;
+}
+
+export interface ResponseStreamSummary {
+	records: number;
+	bytes: number;
+	/** True if the reply ended with its terminator, false if reading stopped on timeout. */
+	complete: boolean;
+}
+
+export interface NativeResponseRecordsEvent {
+	requestId: string;
+	records: ResponseRecord[];
+}
+
+/** Device event carrying batches of records parsed by streamPrinterResponse(). */
+export const RESPONSE_RECORDS_EVENT = 'RNZebraLinkOS_responseRecords';
+
+export interface PrintStreamOptions {
+	/** Size of the native ring buffer in bytes, default 256 KiB (4 KiB - 16 MiB). Memory use does not grow past it. */
+	bufferSize?: number;
+	/** "flushed" events are sent at most this often (ms), default 250. */
+	progressInterval?: number;
+	/** Label with ^FNn placeholders which writeRecords() fills in, like printTemplate(). */
+	template?: string;
+}
+
+export interface PrintStreamEvent {
+	streamId: string;
+	/**
+	 * "flushed" reports progress, "drain" follows a write which resolved false once the buffer has room again,
+	 * "error" is sent when the stream failed and is closed.
+	 */
+	type: 'flushed' | 'drain' | 'error';
+	/** Bytes written to the printer so far. */
+	bytesFlushed: number;
+	/** Bytes waiting in the buffer. */
+	bytesBuffered: number;
+	/** Records written with writeRecords() so far. */
+	records: number;
+	/** Error message of an "error" event. */
+	message?: string;
+	/** Error code of an "error" event. */
+	code?: string;
+}
+
+export interface PrintStreamSummary {
+	bytesWritten: number;
+	/** Buffered bytes thrown away by abort(). */
+	bytesDropped: number;
+	chunks: number;
+	records: number;
+	elapsedMs: number;
+	aborted: boolean;
+}
+
+/** Device event of print streams, see PrintStreamEvent. */
+export const PRINT_STREAM_EVENT = 'RNZebraLinkOS_printStream';
+
 export interface NativePrinterConnectionData {
 	handle: PrinterHandle;
 	controlLanguage: string;
-	status: PrinterStatus;
+	status: EncodedPrinterStatus;
 }
 
 //this interface is used by Codegen to generate native methods
 export interface Spec extends TurboModule {
 
-	findNetworkPrinters(onPrinterFound: (printer: NativeDiscoveredPrinter) => void): Promise<void>;
-	findBluetoothPrinters(onPrinterFound: (printer: NativeDiscoveredPrinter) => void, useBle: boolean): Promise<void>;
-	findUsbPrinters(onPrinterFound: (printer: NativeDiscoveredPrinter) => void): Promise<void>;
+	findNetworkPrinters(sessionId: string, options?: DiscoveryOptions): Promise<DiscoverySummary>;
+	findBluetoothPrinters(sessionId: string, useBle: boolean, options?: DiscoveryOptions): Promise<DiscoverySummary>;
+	findUsbPrinters(sessionId: string, options?: DiscoveryOptions): Promise<DiscoverySummary>;
+
+	//operations
+	cancelOperation(operationId: string): Promise<boolean>;
+
+	groupExecute(handles: PrinterHandle[], operation: NativeGroupOperation, concurrencyLimit: number, options?: GroupOptions): Promise<GroupReport>;
+
+	//known printers
+	setWarmUpEnabled(enabled: boolean): Promise<void>;
+	warmUpPrinters(maxPrinters: number): Promise<number>;
+	getKnownPrinters(): Promise<KnownPrinter[]>;
+	forgetKnownPrinter(handle: PrinterHandle): Promise<boolean>;
+	clearKnownPrinters(): Promise<void>;
+
+	//printer pools
+	createPrinterPool(poolId: string, handles: PrinterHandle[]): Promise<void>;
+	destroyPrinterPool(poolId: string): Promise<boolean>;
+	submitPoolJob(poolId: string, data: string, options?: PoolJobOptions): Promise<PoolJobResult>;
+	getPrinterPoolStats(poolId: string): Promise<PoolStats>;
+
+	//print streams
+	openPrintStream(handle: PrinterHandle, streamId: string, options?: PrintStreamOptions): Promise<void>;
+	writePrintStream(streamId: string, data: string): Promise<boolean>;
+	writePrintStreamRecords(streamId: string, records: { [key: number]: string }[]): Promise<boolean>;
+	closePrintStream(streamId: string, abort: boolean): Promise<PrintStreamSummary>;
+
+	//diagnostics
+	setLogLevel(category: string, level: number): Promise<void>;
+	setIoTraceCapacity(capacity: number): Promise<void>;
+	dumpIoTrace(): Promise<IoTraceEvent[]>;
+	startCapture(handle: PrinterHandle, path: string): Promise<string>;
+	stopCapture(handle: PrinterHandle): Promise<CaptureSummary | null>;
+
+	//preview
+	renderPreview(zpl: string, dpi: number, widthDots: number, heightDots: number): Promise<RawByteArray>;
 
 	connectPrinter(handle: PrinterHandle): Promise<NativePrinterConnectionData>;
 	//connectNetworkPrinter(ipAddress: string, port: number, maxTimeoutForRead: number, timeToWaitForMoreData: number): Promise<NativePrinterConnectionData>;
@@ -128,29 +547,41 @@ export interface Spec extends TurboModule {
 
 	isPrinterConnected(handle: PrinterHandle): Promise<boolean>;
 	disconnectPrinter(handle: PrinterHandle): Promise<void>;
-	getPrinterStatus(handle: PrinterHandle): Promise<PrinterStatus>;
+	getPrinterStatus(handle: PrinterHandle): Promise<EncodedPrinterStatus>;
 
 	printConfigurationLabel(handle: PrinterHandle): Promise<void>;
 	sendPrinterCommand(handle: PrinterHandle, data: string): Promise<string | null>;
+	sendPrinterBytes(handle: PrinterHandle, data: RawByteArray): Promise<RawByteArray | null>;
+	sendPrintJob(handle: PrinterHandle, data: string, options?: PrintJobOptions): Promise<PrintJobResult>;
+	setPrinterCodePage(handle: PrinterHandle, codePage: number): Promise<void>;
+	getTransferStats(handle: PrinterHandle): Promise<TransferStats | null>;
+	getDispatchStats(handle: PrinterHandle): Promise<DispatchStats | null>;
+	getPrinterCodePage(handle: PrinterHandle): Promise<number>;
+	streamPrinterResponse(handle: PrinterHandle, command: string, parser: string, requestId: string, options?: ResponseStreamOptions): Promise<ResponseStreamSummary>;
 	calibratePrinter(handle: PrinterHandle): Promise<void>;
 	resetPrinter(handle: PrinterHandle): Promise<void>;
 	restorePrinterDefaults(handle: PrinterHandle): Promise<void>;
 
 	//file operations
 	retrieveFileNames(handle: PrinterHandle, extensions?: string[]): Promise<string[]>;
-	retrieveObjectsProperties(handle: PrinterHandle): Promise<PrinterObjectProperties[]>;
-	sendFileContents(handle: PrinterHandle, filePath: string, progressCallback?: ProgressCallback): Promise<void>;
+	retrieveObjectsProperties(handle: PrinterHandle, filter?: FileFilter): Promise<PrinterObjectProperties[]>;
+	refreshFileIndex(handle: PrinterHandle): Promise<void>;
+	setFileIndexTtl(ttlMs: number): Promise<void>;
+	sendFileContents(handle: PrinterHandle, filePath: string, progressCallback?: ProgressCallback, options?: OperationOptions): Promise<void>;
 
 	//graphics operations
 	printImageFromFile(handle: PrinterHandle, imagePath: string, x: number, y: number, width: number, height: number, insideFormat: boolean): Promise<void>;
 	printImageFromBuffer(handle: PrinterHandle, imageData: RawByteArray, x: number, y: number, width: number, height: number, insideFormat: boolean): Promise<void>;
 	
-	storeImageFromFile(handle: PrinterHandle, targetPath: string, imagePath: string, width: number, height: number): Promise<void>;
-	storeImageFromBuffer(handle: PrinterHandle, targetPath: string, imageData: RawByteArray, width: number, height: number): Promise<void>;
+	storeImageFromFile(handle: PrinterHandle, targetPath: string, imagePath: string, width: number, height: number, options?: UploadOptions): Promise<void>;
+	storeImageFromBuffer(handle: PrinterHandle, targetPath: string, imageData: RawByteArray, width: number, height: number, options?: UploadOptions): Promise<void>;
 
 	//format operations
 	retrieveFormatFromPrinter(handle: PrinterHandle, formatPathOnPrinter: string): Promise<string>;
 	printStoredFormat(handle: PrinterHandle, formatPathOnPrinter: string, vars: { [key: number]: string }): Promise<void>;
+	printTemplate(handle: PrinterHandle, template: string, fields: { [key: number]: string }, options?: TemplateOptions): Promise<TemplateResult>;
+	getTemplateCacheStats(handle: PrinterHandle): Promise<TemplateCacheStats | null>;
+	clearTemplateCache(handle: PrinterHandle, deleteFromPrinter: boolean): Promise<void>;
 	
 	// === LINK OS only functions ===
 
@@ -160,13 +591,13 @@ export interface Spec extends TurboModule {
 
 	//file utils
 	getStorageInfo(handle: PrinterHandle): Promise<StorageInfo[]>;
-	storeFileOnPrinter(handle: PrinterHandle, targetPath: string, fileContents: RawByteArray): Promise<void>;
+	storeFileOnPrinter(handle: PrinterHandle, targetPath: string, fileContents: RawByteArray, options?: UploadOptions): Promise<void>;
 	getObjectFromPrinter(handle: PrinterHandle, filePath: string): Promise<RawByteArray>;
 	deleteFile(handle: PrinterHandle, filePath: string): Promise<void>;
 
 	//font utils
-	uploadTTFFont(handle: PrinterHandle, targetPath: string, fontData: RawByteArray): Promise<void>;
-	uploadTTEFont(handle: PrinterHandle, targetPath: string, fontData: RawByteArray): Promise<void>;
+	uploadTTFFont(handle: PrinterHandle, targetPath: string, fontData: RawByteArray, options?: UploadOptions): Promise<void>;
+	uploadTTEFont(handle: PrinterHandle, targetPath: string, fontData: RawByteArray, options?: UploadOptions): Promise<void>;
 
 	//tools
 	printDirectoryLabel(handle: PrinterHandle): Promise<void>;
@@ -204,8 +635,17 @@ export async function handleNativeException<T>(fn: Promise<T>): Promise<T> {
 			if(nativeException.code === 'DiscoveryException')
 				throw new DiscoveryError(nativeException.message);
 
+			if(nativeException.code === 'SettingsException')
+				throw new SettingsError(nativeException.message);
+
 			if(nativeException.code === 'IOException')
 				throw new IOError(nativeException.message);
+
+			if(nativeException.code === 'OperationCancelledException')
+				throw new OperationCancelledError(nativeException.message);
+
+			if(nativeException.code === 'OperationTimeoutException')
+				throw new OperationTimeoutError(nativeException.message);
 		}
 		throw new Error(String(e));
 	}